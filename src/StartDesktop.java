@@ -1,7 +1,14 @@
+import com.gamesbykevin.bubblebobble2.input.InputLog;
 import com.gamesbykevin.bubblebobble2.main.Main;
+import com.gamesbykevin.bubblebobble2.net.DelayTransport;
+import com.gamesbykevin.bubblebobble2.net.RollbackSession;
+import com.gamesbykevin.bubblebobble2.net.Transport;
+import com.gamesbykevin.bubblebobble2.net.UdpTransport;
 import com.gamesbykevin.bubblebobble2.shared.Shared;
 
 import java.awt.Dimension;
+import java.io.File;
+import java.net.InetSocketAddress;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 
@@ -14,6 +21,24 @@ public final class StartDesktop extends JPanel
     //our object that will run everything in the application
     private Main main;
     
+    //system property containing the csv file to write the frame stats to when the application exits
+    private static final String PROPERTY_FRAME_STATS = "frameStats";
+    
+    //system property containing the file to write the input recording to when the application exits
+    private static final String PROPERTY_RECORD = "record";
+    
+    //system property containing the input recording to replay
+    private static final String PROPERTY_REPLAY = "replay";
+    
+    //system properties for a two player game, the address (host:port) of the other player, our port, our player (0 or 1) and the seed both players use
+    private static final String PROPERTY_PEER = "peer";
+    private static final String PROPERTY_PORT = "port";
+    private static final String PROPERTY_PLAYER = "player";
+    private static final String PROPERTY_SEED = "seed";
+    
+    //system property containing the latency (milliseconds) to add when testing a two player game
+    private static final String PROPERTY_LATENCY = "latency";
+    
     public StartDesktop()
     {
         setCursor(Shared.CURSOR);
@@ -26,8 +51,31 @@ public final class StartDesktop extends JPanel
             //create a new instance of main with the specified ups/fps
             main = new Main(Shared.DEFAULT_UPS, this);
             
-            //new instance of our main engine
-            main.create();
+            //new instance of our main engine, both players of a two player game need the same seed
+            if (System.getProperty(PROPERTY_SEED) != null)
+            {
+                main.create(Long.parseLong(System.getProperty(PROPERTY_SEED)));
+            }
+            else
+            {
+                main.create();
+            }
+            
+            //if specified play a two player game with the other player
+            if (System.getProperty(PROPERTY_PEER) != null)
+                main.getEngine().setSession(createSession());
+            
+            //if specified write the frame stats on exit
+            if (System.getProperty(PROPERTY_FRAME_STATS) != null)
+                main.setStatsFile(new File(System.getProperty(PROPERTY_FRAME_STATS)));
+            
+            //if specified record the input of the game
+            if (System.getProperty(PROPERTY_RECORD) != null)
+                main.setRecordFile(new File(System.getProperty(PROPERTY_RECORD)));
+            
+            //if specified replay the recorded input instead of the keyboard
+            if (System.getProperty(PROPERTY_REPLAY) != null)
+                main.getEngine().setInputLog(new InputLog(new File(System.getProperty(PROPERTY_REPLAY))));
             
             //start the thread
             main.start();
@@ -38,6 +86,26 @@ public final class StartDesktop extends JPanel
         }
     }
     
+    /**
+     * Create the session with the other player from the system properties
+     * @return The session
+     * @throws Exception 
+     */
+    private static RollbackSession createSession() throws Exception
+    {
+        final String[] peer = System.getProperty(PROPERTY_PEER).split(":");
+        final int port = Integer.parseInt(System.getProperty(PROPERTY_PORT, peer[1]));
+        final int player = Integer.parseInt(System.getProperty(PROPERTY_PLAYER, "0"));
+        
+        Transport transport = new UdpTransport(port, new InetSocketAddress(peer[0], Integer.parseInt(peer[1])));
+        
+        //add latency for testing
+        if (System.getProperty(PROPERTY_LATENCY) != null)
+            transport = new DelayTransport(transport, Long.parseLong(System.getProperty(PROPERTY_LATENCY)), 0, System.nanoTime());
+        
+        return new RollbackSession(player, transport);
+    }
+    
     public static void main(String[] args)
     {
         try
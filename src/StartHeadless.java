@@ -0,0 +1,81 @@
+import com.gamesbykevin.bubblebobble2.main.SessionHost;
+import com.gamesbykevin.bubblebobble2.shared.Shared;
+
+/**
+ * This file will run seeded games without a display or audio as fast as possible.<br>
+ * The games are run at the same time sharing the resources.<br>
+ * Arguments: [games] [max updates per game] [seed] [threads]
+ * @author GOD
+ */
+public final class StartHeadless
+{
+    //default number of games to simulate
+    private static final int DEFAULT_GAMES = 1;
+    
+    //default max number of updates per game (1 hour of play)
+    private static final long DEFAULT_UPDATES = Shared.DEFAULT_UPS * 60L * 60L;
+    
+    //how many updates each game performs before the host checks the limit
+    private static final int UPDATES_PER_STEP = Shared.DEFAULT_UPS;
+    
+    private StartHeadless()
+    {
+        //can't create
+    }
+    
+    public static void main(String[] args)
+    {
+        //there is no display
+        System.setProperty("java.awt.headless", "true");
+        
+        try
+        {
+            final int games   = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+            final long limit  = (args.length > 1) ? Long.parseLong(args[1]) : DEFAULT_UPDATES;
+            final long seed   = (args.length > 2) ? Long.parseLong(args[2]) : System.nanoTime();
+            final int threads = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+            
+            //create the host, this will load the resources shared by all games
+            final SessionHost host = new SessionHost(StartHeadless.class, threads);
+            
+            for (int i = 0; i < games; i++)
+            {
+                //each game will have its own seed
+                host.add(seed + i);
+            }
+            
+            //update all games until they are over or the update limit has been reached
+            long updates = 0;
+            
+            while (updates < limit)
+            {
+                final int count = (int)Math.min(UPDATES_PER_STEP, limit - updates);
+                
+                if (!host.update(count))
+                    break;
+                
+                updates += count;
+            }
+            
+            for (int i = 0; i < host.getCount(); i++)
+            {
+                //display result of this game
+                System.out.println("Game " + (i + 1) + ", seed = " + (seed + i) + ", updates = " + host.getTicks(i));
+            }
+            
+            //display the results
+            System.out.println("Threads = " + threads);
+            System.out.println("Updates = " + host.getTicks());
+            System.out.println("Seconds = " + host.getSeconds());
+            System.out.println("UPS = " + (long)host.getTicksPerSecond());
+            System.out.println("Simulated seconds = " + (host.getTicks() / Shared.DEFAULT_UPS));
+            
+            //free up resources
+            host.dispose();
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,137 @@
+import com.gamesbykevin.bubblebobble2.engine.Engine;
+import com.gamesbykevin.bubblebobble2.input.Input;
+import com.gamesbykevin.bubblebobble2.input.KeyState;
+import com.gamesbykevin.bubblebobble2.main.Main;
+import com.gamesbykevin.bubblebobble2.net.DelayTransport;
+import com.gamesbykevin.bubblebobble2.net.LocalTransport;
+import com.gamesbykevin.bubblebobble2.net.RollbackSession;
+import com.gamesbykevin.bubblebobble2.resources.Resources;
+import com.gamesbykevin.bubblebobble2.shared.Shared;
+
+import java.util.Random;
+
+/**
+ * This file will run a two player game in one process without a display or audio.<br>
+ * The players are connected by a transport with latency and packet loss, and both press random keys.
+ * The checksums of the game are compared while playing to make sure the game is the same for both players.<br>
+ * Arguments: [updates] [latency milliseconds] [packet loss 0 - 1] [seed]
+ * @author GOD
+ */
+public final class StartLoopback
+{
+    //default number of updates (1 minute of play)
+    private static final long DEFAULT_UPDATES = Shared.DEFAULT_UPS * 60L;
+    
+    //default latency (milliseconds) in each direction
+    private static final long DEFAULT_LATENCY = 100L;
+    
+    //default chance a packet is lost
+    private static final double DEFAULT_LOSS = 0.05;
+    
+    //how often (updates) the random keys change
+    private static final int KEY_DELAY = 10;
+    
+    private StartLoopback()
+    {
+        //can't create
+    }
+    
+    public static void main(String[] args)
+    {
+        //there is no display
+        System.setProperty("java.awt.headless", "true");
+        
+        try
+        {
+            final long limit   = (args.length > 0) ? Long.parseLong(args[0]) : DEFAULT_UPDATES;
+            final long latency = (args.length > 1) ? Long.parseLong(args[1]) : DEFAULT_LATENCY;
+            final double loss  = (args.length > 2) ? Double.parseDouble(args[2]) : DEFAULT_LOSS;
+            final long seed    = (args.length > 3) ? Long.parseLong(args[3]) : System.nanoTime();
+            
+            //the resources are loaded once and shared by both players
+            final Resources resources = new Resources(false);
+            
+            resources.load(StartLoopback.class).get();
+            
+            final LocalTransport[] transports = LocalTransport.createPair();
+            
+            final Main[] mains = new Main[RollbackSession.PLAYERS];
+            final Random[] players = new Random[RollbackSession.PLAYERS];
+            
+            for (int i = 0; i < mains.length; i++)
+            {
+                //both players use the same seed
+                mains[i] = new Main(Shared.DEFAULT_UPS, StartLoopback.class);
+                mains[i].create(seed, resources);
+                mains[i].getEngine().setSession(new RollbackSession(i, new DelayTransport(transports[i], latency, loss, seed + i)));
+                
+                //each player presses different keys
+                players[i] = new Random(seed + i);
+            }
+            
+            //the updates happen in real time so the latency is the same as it would be over a network
+            long time = System.nanoTime();
+            
+            for (long updates = 0; updates < limit; updates++)
+            {
+                for (int i = 0; i < mains.length; i++)
+                {
+                    if (updates % KEY_DELAY == 0)
+                        press(mains[i].getEngine().getKeys(), players[i]);
+                    
+                    mains[i].update();
+                }
+                
+                time += mains[0].getTime();
+                
+                final long remaining = time - System.nanoTime();
+                
+                if (remaining > 0)
+                    Thread.sleep(remaining / 1000000L, (int)(remaining % 1000000L));
+            }
+            
+            //display the results
+            System.out.println("Seed = " + seed + ", latency = " + latency + "ms, loss = " + loss);
+            
+            for (int i = 0; i < mains.length; i++)
+            {
+                final Engine engine = mains[i].getEngine();
+                final RollbackSession session = engine.getSession();
+                
+                System.out.println("Player " + (i + 1) + ", updates = " + session.getTick() + ", confirmed = " + session.getRemoteTick() +
+                    ", rollbacks = " + session.getRollbacks() + ", repeated = " + session.getRepeated() + ", stalls = " + session.getStalls() +
+                    ", desync = " + session.hasDesync() + ", lives = " + engine.getManager().getHero(i).getLives());
+            }
+            
+            //free up resources
+            for (int i = 0; i < mains.length; i++)
+            {
+                mains[i].dispose();
+            }
+            
+            resources.dispose();
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Press random keys
+     * @param keys The keys of the player
+     * @param random Object used to pick the keys
+     */
+    private static void press(final KeyState keys, final Random random)
+    {
+        keys.reset();
+        
+        keys.addKeyPressed(random.nextBoolean() ? Input.KEY_LEFT : Input.KEY_RIGHT);
+        
+        if (random.nextInt(4) == 0)
+            keys.addKeyPressed(Input.KEY_JUMP);
+        
+        if (random.nextInt(3) == 0)
+            keys.addKeyReleased(Input.KEY_FIRE);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+import com.gamesbykevin.bubblebobble2.input.InputLog;
+import com.gamesbykevin.bubblebobble2.main.Main;
+import com.gamesbykevin.bubblebobble2.manager.Manager;
+import com.gamesbykevin.bubblebobble2.shared.Shared;
+
+import java.io.File;
+
+/**
+ * This file will replay an input recording without a display or audio as fast as possible.<br>
+ * To watch a recording run StartDesktop with -Dreplay=[recording].<br>
+ * Arguments: [recording] [max updates]
+ * @author GOD
+ */
+public final class StartReplay
+{
+    //default max number of updates (1 hour of play)
+    private static final long DEFAULT_UPDATES = Shared.DEFAULT_UPS * 60L * 60L;
+    
+    private StartReplay()
+    {
+        //can't create
+    }
+    
+    public static void main(String[] args)
+    {
+        //there is no display
+        System.setProperty("java.awt.headless", "true");
+        
+        try
+        {
+            final InputLog inputLog = new InputLog(new File(args[0]));
+            final long limit = (args.length > 1) ? Long.parseLong(args[1]) : DEFAULT_UPDATES;
+            
+            //create a new instance of main without a container
+            final Main main = new Main(Shared.DEFAULT_UPS, StartReplay.class);
+            
+            //use the seed of the recording
+            main.create(inputLog.getSeed());
+            
+            //replay the recorded input
+            main.getEngine().setInputLog(inputLog);
+            
+            long updates = 0;
+            
+            Manager manager = null;
+            
+            while (updates < limit)
+            {
+                //update the game
+                main.update();
+                
+                updates++;
+                
+                manager = main.getEngine().getManager();
+                
+                //stop once the game is over or there is no more input
+                if (manager != null && (manager.hasGameover() || inputLog.hasFinished()))
+                    break;
+            }
+            
+            //display the results
+            System.out.println("Seed = " + inputLog.getSeed());
+            System.out.println("Recorded input = " + inputLog.getCount());
+            System.out.println("Updates = " + updates);
+            System.out.println("Game over = " + (manager != null && manager.hasGameover()));
+            System.out.println("Lives = " + ((manager != null) ? manager.getHero().getLives() : 0));
+            
+            //free up resources
+            main.dispose();
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+    }
+}
\ No newline at end of file
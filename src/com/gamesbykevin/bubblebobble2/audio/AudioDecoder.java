@@ -0,0 +1,78 @@
+package com.gamesbykevin.bubblebobble2.audio;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+/**
+ * Opens and decodes audio resources to the common format
+ * @author GOD
+ */
+public final class AudioDecoder
+{
+    //the extension of the files decoded with jlayer
+    private static final String EXTENSION_MP3 = ".mp3";
+    
+    private AudioDecoder()
+    {
+        //can't create
+    }
+    
+    /**
+     * Open a stream to decode the audio
+     * @param input The audio data
+     * @param location The location of the audio, used to determine the format
+     * @return The stream
+     * @throws Exception if the format isn't supported
+     */
+    public static PcmStream open(final InputStream input, final String location) throws Exception
+    {
+        if (location.toLowerCase().endsWith(EXTENSION_MP3))
+            return new Mp3Stream(input);
+        
+        return new SampledStream(input);
+    }
+    
+    /**
+     * Decode all of the audio, this is meant for short sound effects
+     * @param data The audio data
+     * @param location The location of the audio, used to determine the format
+     * @return The audio in the common format
+     * @throws Exception if the format isn't supported
+     */
+    public static byte[] decode(final byte[] data, final String location) throws Exception
+    {
+        return decode(new ByteArrayInputStream(data), location);
+    }
+    
+    /**
+     * Decode all of the audio, this is meant for short sound effects
+     * @param input The audio data
+     * @param location The location of the audio, used to determine the format
+     * @return The audio in the common format
+     * @throws Exception if the format isn't supported
+     */
+    public static byte[] decode(final InputStream input, final String location) throws Exception
+    {
+        final PcmStream stream = open(input, location);
+        
+        try
+        {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            final byte[] block = new byte[stream.getMaxRead()];
+            
+            int count;
+            
+            while ((count = stream.read(block)) >= 0)
+            {
+                output.write(block, 0, count);
+            }
+            
+            return output.toByteArray();
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+}
\ No newline at end of file
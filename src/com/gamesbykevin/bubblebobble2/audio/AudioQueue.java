@@ -0,0 +1,231 @@
+package com.gamesbykevin.bubblebobble2.audio;
+
+import com.gamesbykevin.bubblebobble2.shared.Histogram;
+import com.gamesbykevin.bubblebobble2.shared.TripleBuffer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock free ring buffer of audio commands from a single producer (the game thread)
+ * to a single consumer (the mixer thread), so the game never waits on the audio.<br>
+ * Each command is stamped with the time it was added so we can measure how long it waited.
+ * The waits are recorded by the consumer only and handed to the reader once per window, so neither thread waits on the other.
+ * @author GOD
+ */
+public final class AudioQueue
+{
+    /**
+     * Play the audio for the key
+     */
+    public static final byte PLAY = 0;
+    
+    /**
+     * Stop the audio for the key
+     */
+    public static final byte STOP = 1;
+    
+    /**
+     * Stop all audio, there is no key
+     */
+    public static final byte STOP_ALL = 2;
+    
+    //the number of commands we can hold, must be a power of 2
+    private static final int CAPACITY = 256;
+    
+    //mask to get the index in the ring
+    private static final int MASK = CAPACITY - 1;
+    
+    //each bucket is 50 microseconds, up to 100 milliseconds
+    private static final long RESOLUTION = 50000L;
+    private static final int SIZE = 2000;
+    
+    //the latency is handed to the reader once a window of at least 1 second is complete
+    private static final long WINDOW = 1000000000L;
+    
+    //the commands
+    private final byte[] types = new byte[CAPACITY];
+    private final Object[] keys = new Object[CAPACITY];
+    private final boolean[] loops = new boolean[CAPACITY];
+    
+    //the time (nanoseconds) each command was added
+    private final long[] times = new long[CAPACITY];
+    
+    //the number of commands added (producer), and the number removed (consumer)
+    private final AtomicLong tail = new AtomicLong(), head = new AtomicLong();
+    
+    //the command most recently removed
+    private byte type;
+    private Object key;
+    private boolean loop;
+    
+    //the time from each command being added until it was removed, for the window in progress (consumer only)
+    private final Histogram latency = new Histogram(RESOLUTION, SIZE);
+    
+    //the time the window in progress started (consumer only)
+    private long windowStart = System.nanoTime();
+    
+    //the completed windows handed from the consumer to the reader
+    private final TripleBuffer<Histogram> windows = new TripleBuffer<>(new Histogram(RESOLUTION, SIZE), new Histogram(RESOLUTION, SIZE), new Histogram(RESOLUTION, SIZE));
+    
+    //the most commands waiting at once
+    private volatile int depth = 0;
+    
+    //the number of commands that didn't fit, and the number of duplicates ignored
+    private volatile long dropped = 0, coalesced = 0;
+    
+    public AudioQueue()
+    {
+        //default constructor
+    }
+    
+    /**
+     * Add the command, called by the producer thread only
+     * @param type The type of command
+     * @param key The key of the audio, null when stopping all audio
+     * @param loop Do we start over once the end is reached
+     * @return true if added, false if the queue is full and the command was dropped
+     */
+    public boolean offer(final byte type, final Object key, final boolean loop)
+    {
+        final long index = tail.get();
+        final int waiting = (int)(index - head.get());
+        
+        //the consumer hasn't caught up
+        if (waiting >= CAPACITY)
+        {
+            dropped++;
+            return false;
+        }
+        
+        types[(int)index & MASK] = type;
+        keys[(int)index & MASK] = key;
+        loops[(int)index & MASK] = loop;
+        times[(int)index & MASK] = System.nanoTime();
+        
+        //publish the command to the consumer
+        tail.lazySet(index + 1);
+        
+        if (waiting + 1 > depth)
+            depth = waiting + 1;
+        
+        return true;
+    }
+    
+    /**
+     * Count a command that wasn't added because the same command was already added, called by the producer thread only
+     */
+    public void coalesce()
+    {
+        coalesced++;
+    }
+    
+    /**
+     * Remove the next command, called by the consumer thread only.<br>
+     * The command is available from getType(), getKey() and isLoop().
+     * @return true if a command was removed, false if there are none
+     */
+    public boolean poll()
+    {
+        final long index = head.get();
+        
+        //no commands
+        if (index >= tail.get())
+            return false;
+        
+        this.type = types[(int)index & MASK];
+        this.key = keys[(int)index & MASK];
+        this.loop = loops[(int)index & MASK];
+        
+        //remove the reference
+        keys[(int)index & MASK] = null;
+        
+        final long now = System.nanoTime();
+        
+        latency.record(now - times[(int)index & MASK]);
+        
+        //hand the completed window to the reader
+        if (now - windowStart >= WINDOW)
+        {
+            windows.getBack().set(latency);
+            windows.publish();
+            
+            latency.reset();
+            windowStart = now;
+        }
+        
+        //hand the slot back to the producer
+        head.lazySet(index + 1);
+        
+        return true;
+    }
+    
+    public byte getType()
+    {
+        return this.type;
+    }
+    
+    public Object getKey()
+    {
+        return this.key;
+    }
+    
+    public boolean isLoop()
+    {
+        return this.loop;
+    }
+    
+    /**
+     * Get the most commands waiting at once
+     * @return The largest depth of the queue
+     */
+    public int getDepth()
+    {
+        return this.depth;
+    }
+    
+    /**
+     * Get the number of commands dropped because the queue was full
+     * @return The total number of dropped commands
+     */
+    public long getDropped()
+    {
+        return this.dropped;
+    }
+    
+    /**
+     * Get the number of duplicate commands that were ignored
+     * @return The total number of coalesced commands
+     */
+    public long getCoalesced()
+    {
+        return this.coalesced;
+    }
+    
+    /**
+     * Get the most recent completed window of latency, called by the reader thread only before getLatency()
+     * @return true if a new window was completed, false if the window is the same as before
+     */
+    public boolean updateLatency()
+    {
+        return windows.update();
+    }
+    
+    /**
+     * Get the time commands waited to be handled during the most recent completed window
+     * @param percentile The percentile (0 - 100)
+     * @return The duration (nanoseconds)
+     */
+    public long getLatency(final double percentile)
+    {
+        return windows.getFront().getPercentile(percentile);
+    }
+    
+    /**
+     * Get the longest time a command waited to be handled during the most recent completed window
+     * @return The duration (nanoseconds)
+     */
+    public long getLatencyMax()
+    {
+        return windows.getFront().getMax();
+    }
+}
\ No newline at end of file
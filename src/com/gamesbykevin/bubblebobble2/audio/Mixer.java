@@ -0,0 +1,328 @@
+package com.gamesbykevin.bubblebobble2.audio;
+
+import com.gamesbykevin.framework.resources.Disposable;
+
+import java.util.Arrays;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Mixes all sound effects and the music onto a single line on its own thread.<br>
+ * There is a fixed number of voices, when all are playing the lowest priority (then the oldest) voice is replaced.
+ * Nothing is created when a sound is played, so the cost of the audio is the same no matter how many sounds are requested.<br>
+ * The voices are only changed on the mixer thread, see setCommands().
+ * @author GOD
+ */
+public final class Mixer implements Runnable, Disposable
+{
+    /**
+     * The most sounds that can play at the same time
+     */
+    public static final int VOICES = 16;
+    
+    //the number of frames mixed at a time, 1/100 of a second
+    private static final int BLOCK_FRAMES = Pcm.SAMPLE_RATE / 100;
+    
+    //the number of samples mixed at a time
+    private static final int BLOCK_SAMPLES = BLOCK_FRAMES * Pcm.CHANNELS;
+    
+    //the size of the line's buffer, the delay before a sound is heard
+    private static final int LINE_BUFFER = BLOCK_FRAMES * Pcm.FRAME_SIZE * 4;
+    
+    /**
+     * A sound playing
+     */
+    private static final class Voice
+    {
+        //the samples of the sound, null if the voice isn't playing
+        private short[] samples;
+        
+        //the next sample to mix
+        private int position;
+        
+        //do we start over once the end is reached
+        private boolean loop;
+        
+        //the priority of the sound
+        private int priority;
+        
+        //when the sound started, used to find the oldest voice
+        private long started;
+        
+        //the key the sound was played with
+        private Object key;
+        
+        private boolean isPlaying()
+        {
+            return (samples != null);
+        }
+        
+        private void stop()
+        {
+            samples = null;
+            key = null;
+        }
+        
+        /**
+         * Add the next samples of the sound to the mix
+         * @param mix The samples mixed so far
+         */
+        private void mix(final int[] mix)
+        {
+            int index = 0;
+            
+            while (index < mix.length)
+            {
+                final int count = Math.min(mix.length - index, samples.length - position);
+                
+                for (int i = 0; i < count; i++)
+                {
+                    mix[index + i] += samples[position + i];
+                }
+                
+                index += count;
+                position += count;
+                
+                if (position >= samples.length)
+                {
+                    if (!loop || samples.length == 0)
+                    {
+                        stop();
+                        return;
+                    }
+                    
+                    position = 0;
+                }
+            }
+        }
+    }
+    
+    //the voices
+    private final Voice[] voices = new Voice[VOICES];
+    
+    //the samples mixed before they are converted for the line
+    private final int[] mix = new int[BLOCK_SAMPLES];
+    
+    //the bytes written to the line, and the bytes of music read
+    private final byte[] output = new byte[BLOCK_SAMPLES * 2], block = new byte[BLOCK_SAMPLES * 2];
+    
+    //the music playing, null if none
+    private MusicStream music;
+    
+    //handles the requests to play and stop audio before each block, null if none
+    private volatile Runnable commands;
+    
+    //the number of sounds played, used to find the oldest voice
+    private long sequence = 0;
+    
+    //the line everything is mixed on
+    private SourceDataLine line;
+    
+    //the thread mixing
+    private Thread thread;
+    
+    //is the mixer running
+    private volatile boolean running = false;
+    
+    public Mixer()
+    {
+        for (int i = 0; i < voices.length; i++)
+        {
+            voices[i] = new Voice();
+        }
+    }
+    
+    /**
+     * Open the line and start mixing on a new thread
+     * @throws Exception if the line can't be opened
+     */
+    public void start() throws Exception
+    {
+        line = AudioSystem.getSourceDataLine(Pcm.FORMAT);
+        line.open(Pcm.FORMAT, LINE_BUFFER);
+        line.start();
+        
+        running = true;
+        
+        thread = new Thread(this, "Mixer");
+        
+        //don't keep the application running
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+    
+    /**
+     * Set what handles the requests to play and stop audio, this is run on the mixer thread before each block
+     * @param commands The commands to run, null for none
+     */
+    public void setCommands(final Runnable commands)
+    {
+        this.commands = commands;
+    }
+    
+    /**
+     * Play a sound, called on the mixer thread only.<br>
+     * If all voices are playing the lowest priority (then the oldest) voice is replaced.<br>
+     * If every voice has a higher priority the sound isn't played.
+     * @param samples The samples of the sound in the common format
+     * @param key The key used to stop the sound
+     * @param priority The priority of the sound, higher is more important
+     * @param loop Do we start over once the end is reached
+     */
+    public void play(final short[] samples, final Object key, final int priority, final boolean loop)
+    {
+        Voice voice = null;
+        
+        for (Voice tmp : voices)
+        {
+            //use the first free voice
+            if (!tmp.isPlaying())
+            {
+                voice = tmp;
+                break;
+            }
+            
+            //else find the lowest priority, then the oldest
+            if (voice == null || tmp.priority < voice.priority || (tmp.priority == voice.priority && tmp.started < voice.started))
+                voice = tmp;
+        }
+        
+        //everything playing is more important
+        if (voice.isPlaying() && voice.priority > priority)
+            return;
+        
+        voice.samples = samples;
+        voice.position = 0;
+        voice.loop = loop;
+        voice.priority = priority;
+        voice.started = sequence++;
+        voice.key = key;
+    }
+    
+    /**
+     * Stop all sounds played with the key, called on the mixer thread only
+     * @param key The key the sounds were played with
+     */
+    public void stop(final Object key)
+    {
+        for (Voice voice : voices)
+        {
+            if (voice.isPlaying() && voice.key == key)
+                voice.stop();
+        }
+    }
+    
+    /**
+     * Stop all sounds, the music is not stopped, called on the mixer thread only
+     */
+    public void stopAll()
+    {
+        for (Voice voice : voices)
+        {
+            voice.stop();
+        }
+    }
+    
+    /**
+     * Set the music to mix with the sounds, called on the mixer thread only.<br>
+     * The music has to be started by the caller
+     * @param music The music, null for none
+     */
+    public void setMusic(final MusicStream music)
+    {
+        this.music = music;
+    }
+    
+    @Override
+    public void run()
+    {
+        try
+        {
+            while (running)
+            {
+                //handle the requests since the last block
+                final Runnable tmp = commands;
+                
+                if (tmp != null)
+                    tmp.run();
+                
+                Arrays.fill(mix, 0);
+                
+                for (Voice voice : voices)
+                {
+                    if (voice.isPlaying())
+                        voice.mix(mix);
+                }
+                
+                mixMusic();
+                
+                //clip the mix and convert to signed 16 bit little-endian
+                for (int i = 0, j = 0; i < mix.length; i++, j += 2)
+                {
+                    final int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mix[i]));
+                    
+                    output[j]     = (byte)sample;
+                    output[j + 1] = (byte)(sample >> 8);
+                }
+                
+                //this waits while the line is full, which keeps the mixer at the rate of the line
+                line.write(output, 0, output.length);
+            }
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Add the music decoded so far to the mix, if the decoder is behind the rest is silent
+     */
+    private void mixMusic()
+    {
+        final MusicStream current = music;
+        
+        if (current == null || current.hasFinished())
+            return;
+        
+        //only read whole frames
+        final int available = current.getBuffer().getAvailable();
+        final int count = current.getBuffer().read(block, 0, Math.min(block.length, available - (available % Pcm.FRAME_SIZE)));
+        
+        for (int i = 0, j = 0; j < count; i++, j += 2)
+        {
+            mix[i] += (short)((block[j] & 0xFF) | (block[j + 1] << 8));
+        }
+    }
+    
+    @Override
+    public void dispose()
+    {
+        running = false;
+        
+        if (thread != null)
+        {
+            try
+            {
+                thread.join();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            
+            thread = null;
+        }
+        
+        if (line != null)
+        {
+            line.close();
+            line = null;
+        }
+        
+        stopAll();
+        music = null;
+        commands = null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.gamesbykevin.bubblebobble2.audio;
+
+import javazoom.jl.decoder.Bitstream;
+import javazoom.jl.decoder.Decoder;
+import javazoom.jl.decoder.Header;
+import javazoom.jl.decoder.SampleBuffer;
+
+import java.io.InputStream;
+
+/**
+ * Decodes an mp3 one frame at a time with jlayer
+ * @author GOD
+ */
+public final class Mp3Stream implements PcmStream
+{
+    //the most frames of the common format a single mp3 frame (1152 frames at the lowest rate 8000) can become
+    private static final int MAX_READ = ((1152 * Pcm.SAMPLE_RATE / 8000) + 2) * Pcm.FRAME_SIZE;
+    
+    //the mp3 frames
+    private final Bitstream bitstream;
+    
+    //decodes each frame
+    private final Decoder decoder = new Decoder();
+    
+    //converts the decoded samples, created once the format of the first frame is known
+    private Resampler resampler;
+    
+    /**
+     * Create the stream
+     * @param input The mp3 data
+     */
+    public Mp3Stream(final InputStream input)
+    {
+        this.bitstream = new Bitstream(input);
+    }
+    
+    @Override
+    public int read(final byte[] output) throws Exception
+    {
+        final Header header = bitstream.readFrame();
+        
+        //no more frames
+        if (header == null)
+            return -1;
+        
+        try
+        {
+            final SampleBuffer samples = (SampleBuffer)decoder.decodeFrame(header, bitstream);
+            
+            if (resampler == null)
+                resampler = new Resampler(decoder.getOutputFrequency(), decoder.getOutputChannels());
+            
+            return resampler.convert(samples.getBuffer(), samples.getBufferLength(), output);
+        }
+        finally
+        {
+            bitstream.closeFrame();
+        }
+    }
+    
+    @Override
+    public int getMaxRead()
+    {
+        return MAX_READ;
+    }
+    
+    @Override
+    public void close() throws Exception
+    {
+        bitstream.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,130 @@
+package com.gamesbykevin.bubblebobble2.audio;
+
+import com.gamesbykevin.bubblebobble2.resources.Bundle;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+
+/**
+ * Music that is decoded while it plays, instead of all at once when loading.<br>
+ * A background thread decodes the resource a frame at a time into a small ring buffer, the audio output reads from the buffer.
+ * @author GOD
+ */
+public final class MusicStream implements Runnable
+{
+    //the bytes of decoded music we keep ahead of the output, about 3/4 of a second
+    private static final int CAPACITY = 128 * 1024;
+    
+    //the bundle the music is read from, null to read from the class path
+    private final Bundle bundle;
+    
+    //class in root directory used to locate the resource
+    private final Class<?> source;
+    
+    //the location of the music
+    private final String location;
+    
+    //do we start over once the end is reached
+    private final boolean loop;
+    
+    //the decoded music waiting to be played
+    private final RingBuffer buffer = new RingBuffer(CAPACITY);
+    
+    /**
+     * Create the stream, the music isn't decoded until started
+     * @param bundle The bundle containing the music, null to read from the class path
+     * @param source Class in root directory of project so we know how to access the resource
+     * @param location The location of the music
+     * @param loop Do we start over once the end is reached
+     */
+    public MusicStream(final Bundle bundle, final Class<?> source, final String location, final boolean loop)
+    {
+        this.bundle = bundle;
+        this.source = source;
+        this.location = location;
+        this.loop = loop;
+    }
+    
+    /**
+     * Start decoding on a new thread
+     */
+    public void start()
+    {
+        final Thread thread = new Thread(this, "Music");
+        
+        //don't keep the application running
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Get the decoded music
+     * @return The buffer the music is decoded to
+     */
+    public RingBuffer getBuffer()
+    {
+        return this.buffer;
+    }
+    
+    /**
+     * Stop decoding, anything not yet played is discarded
+     */
+    public void stop()
+    {
+        buffer.close();
+    }
+    
+    /**
+     * Has the music finished playing
+     * @return true if the music was stopped, or it doesn't loop and everything has been played
+     */
+    public boolean hasFinished()
+    {
+        return (buffer.isClosed() || buffer.hasFinished());
+    }
+    
+    @Override
+    public void run()
+    {
+        try
+        {
+            do
+            {
+                //the resource is opened again for each loop
+                final InputStream input = Bundle.open(bundle, source, location);
+                
+                if (input == null)
+                    throw new Exception("Music not found: " + location);
+                
+                final PcmStream stream = AudioDecoder.open(new BufferedInputStream(input), location);
+                
+                try
+                {
+                    final byte[] block = new byte[stream.getMaxRead()];
+                    
+                    int count;
+                    
+                    while ((count = stream.read(block)) >= 0)
+                    {
+                        //stop if the buffer was closed
+                        if (!buffer.write(block, 0, count))
+                            return;
+                    }
+                }
+                finally
+                {
+                    stream.close();
+                }
+            }
+            while (loop && !buffer.isClosed());
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+        finally
+        {
+            buffer.finish();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.gamesbykevin.bubblebobble2.audio;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * The format all audio is converted to once decoded, so it can be played on the same line.
+ * @author GOD
+ */
+public final class Pcm
+{
+    /**
+     * The number of frames per second
+     */
+    public static final int SAMPLE_RATE = 44100;
+    
+    /**
+     * The number of channels (stereo)
+     */
+    public static final int CHANNELS = 2;
+    
+    /**
+     * The number of bytes for each frame (16 bits for each channel)
+     */
+    public static final int FRAME_SIZE = 2 * CHANNELS;
+    
+    /**
+     * Signed 16 bit little-endian stereo
+     */
+    public static final AudioFormat FORMAT = new AudioFormat(SAMPLE_RATE, 16, CHANNELS, true, false);
+    
+    private Pcm()
+    {
+        //can't create
+    }
+    
+    /**
+     * Get the samples of decoded audio
+     * @param bytes The audio in the common format
+     * @return The interleaved samples
+     */
+    public static short[] toSamples(final byte[] bytes)
+    {
+        final short[] samples = new short[bytes.length / 2];
+        
+        for (int i = 0; i < samples.length; i++)
+        {
+            samples[i] = (short)((bytes[i * 2] & 0xFF) | (bytes[(i * 2) + 1] << 8));
+        }
+        
+        return samples;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.gamesbykevin.bubblebobble2.audio;
+
+/**
+ * Decoded audio in the common format, read one block at a time
+ * @author GOD
+ */
+public interface PcmStream
+{
+    /**
+     * Decode the next block
+     * @param output Where the bytes are written, see getMaxRead()
+     * @return The number of bytes written, 0 if nothing was decoded this time, -1 at the end of the stream
+     * @throws Exception
+     */
+    public int read(final byte[] output) throws Exception;
+    
+    /**
+     * Get the size of the output needed for read()
+     * @return The most bytes a single read can write
+     */
+    public int getMaxRead();
+    
+    /**
+     * Close the stream
+     * @throws Exception
+     */
+    public void close() throws Exception;
+}
\ No newline at end of file
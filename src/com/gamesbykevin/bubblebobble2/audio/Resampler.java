@@ -0,0 +1,121 @@
+package com.gamesbykevin.bubblebobble2.audio;
+
+/**
+ * Converts blocks of 16 bit samples of any rate (mono or stereo) to the common format.<br>
+ * The position between blocks is kept so a stream can be converted one block at a time.
+ * Linear interpolation is used, which is good enough for the short effects and music of the game.
+ * @author GOD
+ */
+public final class Resampler
+{
+    //the number of channels of the samples
+    private final int channels;
+    
+    //the number of frames of the samples for each frame of the common format
+    private final double step;
+    
+    //the position of the next frame in the current block, negative when it is between the previous block and this one
+    private double position = 0;
+    
+    //the last frame of the previous block
+    private int previousLeft = 0, previousRight = 0;
+    
+    /**
+     * Create the resampler
+     * @param sampleRate The number of frames per second of the samples
+     * @param channels The number of channels (1 or 2) of the samples
+     */
+    public Resampler(final float sampleRate, final int channels)
+    {
+        if (channels < 1 || channels > 2)
+            throw new IllegalArgumentException("Only mono or stereo is supported: " + channels);
+        
+        this.channels = channels;
+        this.step = sampleRate / Pcm.SAMPLE_RATE;
+    }
+    
+    /**
+     * Get the most bytes that converting a block can produce
+     * @param count The number of samples in the block
+     * @return The size of the output needed
+     */
+    public int getMaxOutput(final int count)
+    {
+        return ((int)Math.ceil(((count / channels) + 1) / step) + 1) * Pcm.FRAME_SIZE;
+    }
+    
+    /**
+     * Convert the block
+     * @param samples The samples, each frame has a sample for each channel
+     * @param count The number of samples
+     * @param output Where the bytes are written, see getMaxOutput()
+     * @return The number of bytes written
+     */
+    public int convert(final short[] samples, final int count, final byte[] output)
+    {
+        final int frames = count / channels;
+        
+        if (frames == 0)
+            return 0;
+        
+        int written = 0;
+        
+        //the same rate so nothing to interpolate
+        if (step == 1.0)
+        {
+            for (int i = 0; i < frames; i++)
+            {
+                written = write(output, written, getLeft(samples, i), getRight(samples, i));
+            }
+            
+            return written;
+        }
+        
+        //interpolate between the frame before and after each position
+        while ((int)Math.floor(position) + 1 < frames)
+        {
+            final int index = (int)Math.floor(position);
+            final double fraction = position - index;
+            
+            final int left0  = (index < 0) ? previousLeft  : getLeft(samples, index);
+            final int right0 = (index < 0) ? previousRight : getRight(samples, index);
+            final int left1  = getLeft(samples, index + 1);
+            final int right1 = getRight(samples, index + 1);
+            
+            written = write(output, written, (int)(left0 + ((left1 - left0) * fraction)), (int)(right0 + ((right1 - right0) * fraction)));
+            
+            position += step;
+        }
+        
+        //continue from the same place in the next block
+        position -= frames;
+        previousLeft = getLeft(samples, frames - 1);
+        previousRight = getRight(samples, frames - 1);
+        
+        return written;
+    }
+    
+    private int getLeft(final short[] samples, final int frame)
+    {
+        return samples[frame * channels];
+    }
+    
+    private int getRight(final short[] samples, final int frame)
+    {
+        return samples[(frame * channels) + channels - 1];
+    }
+    
+    /**
+     * Write a frame of the common format
+     * @return The index after the frame
+     */
+    private static int write(final byte[] output, final int index, final int left, final int right)
+    {
+        output[index]     = (byte)left;
+        output[index + 1] = (byte)(left >> 8);
+        output[index + 2] = (byte)right;
+        output[index + 3] = (byte)(right >> 8);
+        
+        return index + Pcm.FRAME_SIZE;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,147 @@
+package com.gamesbykevin.bubblebobble2.audio;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed size buffer of bytes between one thread writing (the decoder) and one thread reading (the audio output).<br>
+ * No locks are used, the writer waits while the buffer is full.
+ * @author GOD
+ */
+public final class RingBuffer
+{
+    //how long the writer waits before checking for room again
+    private static final long WAIT = TimeUnit.MILLISECONDS.toNanos(2);
+    
+    //the bytes, the size is a power of 2
+    private final byte[] bytes;
+    
+    //used to get the index in the array
+    private final int mask;
+    
+    //the total number of bytes read and written, only changed by the reader and writer
+    private final AtomicLong head = new AtomicLong(), tail = new AtomicLong();
+    
+    //has the writer finished, or has the reader closed the buffer
+    private volatile boolean finished = false, closed = false;
+    
+    /**
+     * Create the buffer
+     * @param capacity The number of bytes, this has to be a power of 2
+     */
+    public RingBuffer(final int capacity)
+    {
+        if (Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Capacity has to be a power of 2: " + capacity);
+        
+        this.bytes = new byte[capacity];
+        this.mask = capacity - 1;
+    }
+    
+    /**
+     * Write all of the bytes, waiting while the buffer is full.<br>
+     * Only the writer thread calls this.
+     * @param data The bytes to write
+     * @param offset The first byte
+     * @param length The number of bytes
+     * @return true if all bytes were written, false if the buffer was closed
+     */
+    public boolean write(final byte[] data, final int offset, final int length)
+    {
+        int written = 0;
+        
+        while (written < length)
+        {
+            if (closed)
+                return false;
+            
+            final long position = tail.get();
+            final int room = (int)(bytes.length - (position - head.get()));
+            
+            if (room == 0)
+            {
+                //wait for the reader
+                LockSupport.parkNanos(WAIT);
+                continue;
+            }
+            
+            final int count = Math.min(room, length - written);
+            
+            for (int i = 0; i < count; i++)
+            {
+                bytes[(int)(position + i) & mask] = data[offset + written + i];
+            }
+            
+            written += count;
+            
+            //publish the bytes to the reader
+            tail.lazySet(position + count);
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Read the bytes available without waiting.<br>
+     * Only the reader thread calls this.
+     * @param data Where the bytes are written
+     * @param offset The first byte
+     * @param length The most bytes to read
+     * @return The number of bytes read, 0 if none are available
+     */
+    public int read(final byte[] data, final int offset, final int length)
+    {
+        final long position = head.get();
+        final int count = (int)Math.min(length, tail.get() - position);
+        
+        for (int i = 0; i < count; i++)
+        {
+            data[offset + i] = bytes[(int)(position + i) & mask];
+        }
+        
+        //give the room back to the writer
+        head.lazySet(position + count);
+        
+        return count;
+    }
+    
+    /**
+     * Get the number of bytes waiting to be read
+     * @return The number of bytes available
+     */
+    public int getAvailable()
+    {
+        return (int)(tail.get() - head.get());
+    }
+    
+    /**
+     * Flag that the writer has no more bytes
+     */
+    public void finish()
+    {
+        this.finished = true;
+    }
+    
+    /**
+     * Has everything been written and read
+     * @return true if the writer has finished and there are no more bytes to read, false otherwise
+     */
+    public boolean hasFinished()
+    {
+        return (finished && getAvailable() == 0);
+    }
+    
+    /**
+     * Stop the writer, anything not yet written is discarded
+     */
+    public void close()
+    {
+        this.closed = true;
+    }
+    
+    public boolean isClosed()
+    {
+        return this.closed;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.gamesbykevin.bubblebobble2.audio;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+
+/**
+ * Decodes the formats Java Sound supports (wav, au, aiff) one block at a time
+ * @author GOD
+ */
+public final class SampledStream implements PcmStream
+{
+    //the number of frames read at a time
+    private static final int BLOCK_FRAMES = 4096;
+    
+    //the audio as 16 bit signed little-endian at the original rate and channels
+    private final AudioInputStream stream;
+    
+    //converts to the common format
+    private final Resampler resampler;
+    
+    //the bytes and samples of each block
+    private final byte[] bytes;
+    private final short[] samples;
+    
+    /**
+     * Create the stream
+     * @param input The audio data
+     * @throws Exception if the format isn't supported
+     */
+    public SampledStream(final InputStream input) throws Exception
+    {
+        final AudioInputStream original = AudioSystem.getAudioInputStream(new BufferedInputStream(input));
+        final AudioFormat format = original.getFormat();
+        
+        //let Java Sound convert 8 bit, unsigned or big-endian samples, the rate and channels are converted by the resampler
+        this.stream = AudioSystem.getAudioInputStream(new AudioFormat(format.getSampleRate(), 16, format.getChannels(), true, false), original);
+        this.resampler = new Resampler(format.getSampleRate(), format.getChannels());
+        this.bytes = new byte[BLOCK_FRAMES * 2 * format.getChannels()];
+        this.samples = new short[BLOCK_FRAMES * format.getChannels()];
+    }
+    
+    @Override
+    public int read(final byte[] output) throws Exception
+    {
+        final int count = stream.read(bytes, 0, bytes.length);
+        
+        if (count < 0)
+            return -1;
+        
+        for (int i = 0; i < count / 2; i++)
+        {
+            samples[i] = (short)((bytes[i * 2] & 0xFF) | (bytes[(i * 2) + 1] << 8));
+        }
+        
+        return resampler.convert(samples, count / 2, output);
+    }
+    
+    @Override
+    public int getMaxRead()
+    {
+        return resampler.getMaxOutput(samples.length);
+    }
+    
+    @Override
+    public void close() throws Exception
+    {
+        stream.close();
+    }
+}
\ No newline at end of file
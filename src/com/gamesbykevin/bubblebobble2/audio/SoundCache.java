@@ -0,0 +1,198 @@
+package com.gamesbykevin.bubblebobble2.audio;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * File containing the decoded sound effects so later launches can skip decoding.<br>
+ * Each sound is stored with the checksum of its resource, a changed resource is decoded again.
+ * @author GOD
+ */
+public final class SoundCache
+{
+    //identify the file format, this changes when the format or common audio format changes
+    private static final int HEADER = 0x42425343;
+    private static final int VERSION = 1;
+    
+    //the default location of the cache
+    private static final String DEFAULT_FILE = ".bubblebobble2" + File.separator + "audio.cache";
+    
+    //the cache file
+    private final File file;
+    
+    //the checksum of the resource and the decoded sound for each location
+    private final Map<String, Long> checksums = new HashMap<>();
+    private final Map<String, byte[]> sounds = new HashMap<>();
+    
+    //has a sound been added since the file was read
+    private boolean changed = false;
+    
+    /**
+     * Create the cache and read the file if it exists
+     * @param file The cache file
+     */
+    public SoundCache(final File file)
+    {
+        this.file = file;
+        
+        if (file.exists())
+            read();
+    }
+    
+    /**
+     * Create the cache in the default location (the user's home directory)
+     */
+    public SoundCache()
+    {
+        this(new File(System.getProperty("user.home"), DEFAULT_FILE));
+    }
+    
+    /**
+     * Read the file, if it is invalid it is ignored and written again later
+     */
+    private void read()
+    {
+        DataInputStream input = null;
+        
+        try
+        {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            
+            if (input.readInt() != HEADER || input.readInt() != VERSION || input.readInt() != Pcm.SAMPLE_RATE)
+                return;
+            
+            final int count = input.readInt();
+            
+            for (int i = 0; i < count; i++)
+            {
+                final String location = input.readUTF();
+                final long checksum = input.readLong();
+                final byte[] sound = new byte[input.readInt()];
+                input.readFully(sound);
+                
+                checksums.put(location, checksum);
+                sounds.put(location, sound);
+            }
+        }
+        catch (Exception e)
+        {
+            //start over with an empty cache
+            checksums.clear();
+            sounds.clear();
+            
+            e.printStackTrace();
+        }
+        finally
+        {
+            try
+            {
+                if (input != null)
+                    input.close();
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    /**
+     * Get the decoded sound
+     * @param location The location of the sound
+     * @param checksum The checksum of the resource
+     * @return The decoded sound, null if it isn't in the cache or the resource has changed
+     */
+    public byte[] get(final String location, final long checksum)
+    {
+        final Long cached = checksums.get(location);
+        
+        if (cached == null || cached != checksum)
+            return null;
+        
+        return sounds.get(location);
+    }
+    
+    /**
+     * Add the decoded sound
+     * @param location The location of the sound
+     * @param checksum The checksum of the resource
+     * @param sound The decoded sound
+     */
+    public void put(final String location, final long checksum, final byte[] sound)
+    {
+        checksums.put(location, checksum);
+        sounds.put(location, sound);
+        
+        this.changed = true;
+    }
+    
+    /**
+     * Write the file if a sound has been added.<br>
+     * The file is written to a temporary file first so a partly written cache is never read.
+     */
+    public void write()
+    {
+        if (!changed)
+            return;
+        
+        final File temporary = new File(file.getPath() + ".tmp");
+        
+        DataOutputStream output = null;
+        
+        try
+        {
+            if (file.getParentFile() != null)
+                file.getParentFile().mkdirs();
+            
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+            
+            output.writeInt(HEADER);
+            output.writeInt(VERSION);
+            output.writeInt(Pcm.SAMPLE_RATE);
+            output.writeInt(sounds.size());
+            
+            for (Map.Entry<String, byte[]> sound : sounds.entrySet())
+            {
+                output.writeUTF(sound.getKey());
+                output.writeLong(checksums.get(sound.getKey()));
+                output.writeInt(sound.getValue().length);
+                output.write(sound.getValue());
+            }
+            
+            output.close();
+            output = null;
+            
+            //replace the previous cache
+            if (file.exists() && !file.delete())
+                throw new Exception("Unable to replace " + file);
+            
+            if (!temporary.renameTo(file))
+                throw new Exception("Unable to write " + file);
+            
+            this.changed = false;
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+        finally
+        {
+            try
+            {
+                if (output != null)
+                    output.close();
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -7,6 +7,8 @@ import com.gamesbykevin.bubblebobble2.entity.Entity;
 import com.gamesbykevin.framework.util.Timer;
 import com.gamesbykevin.framework.util.Timers;
 
+import java.nio.ByteBuffer;
+
 public final class Bonus extends Entity implements Disposable
 {
     public enum Type
@@ -44,6 +46,27 @@ public final class Bonus extends Entity implements Disposable
         return this.timer;
     }
     
+    public Type getType()
+    {
+        return this.type;
+    }
+    
+    @Override
+    public void save(final ByteBuffer buffer)
+    {
+        super.save(buffer);
+        
+        save(timer, buffer);
+    }
+    
+    @Override
+    public void restore(final ByteBuffer buffer) throws Exception
+    {
+        super.restore(buffer);
+        
+        restore(timer, buffer);
+    }
+    
     @Override
     protected void setupAnimations() throws Exception
     {
@@ -4,15 +4,19 @@ import com.gamesbykevin.bubblebobble2.character.Character;
 import com.gamesbykevin.bubblebobble2.engine.Engine;
 import com.gamesbykevin.bubblebobble2.entity.Entity;
 import com.gamesbykevin.bubblebobble2.hero.Hero;
+import com.gamesbykevin.bubblebobble2.manager.Manager;
 import com.gamesbykevin.bubblebobble2.resources.GameAudio;
 import com.gamesbykevin.bubblebobble2.shared.IElement;
+import com.gamesbykevin.bubblebobble2.shared.WorldSnapshot;
 
 import com.gamesbykevin.framework.resources.Disposable;
 
 import java.awt.Graphics;
 import java.awt.Image;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 public final class Bonuses implements Disposable, IElement
 {
@@ -37,10 +41,16 @@ public final class Bonuses implements Disposable, IElement
         this.image = image;
     }
     
-    public void add(final Entity entity) throws Exception
+    /**
+     * Add a random bonus at the location of the entity
+     * @param entity The entity where the bonus will be placed
+     * @param random Object used to pick the bonus
+     * @throws Exception 
+     */
+    public void add(final Entity entity, final Random random) throws Exception
     {
         //pick random fruit
-        final int index = (int)(Math.random() * Bonus.Type.values().length);
+        final int index = random.nextInt(Bonus.Type.values().length);
         
         //create new bonus
         Bonus bonus = new Bonus(Bonus.Type.values()[index]);
@@ -76,6 +86,62 @@ public final class Bonuses implements Disposable, IElement
         }
     }
     
+    /**
+     * Save the bonuses and the number collected
+     * @param buffer The buffer to write to
+     */
+    public void save(final ByteBuffer buffer)
+    {
+        buffer.putInt(collected);
+        buffer.put((byte)bonuses.size());
+        
+        for (int i = 0; i < bonuses.size(); i++)
+        {
+            buffer.put((byte)getBonus(i).getType().ordinal());
+            getBonus(i).save(buffer);
+        }
+    }
+    
+    /**
+     * Restore the bonuses and the number collected, existing bonuses are reused if they are the same type
+     * @param buffer The buffer to read from
+     * @throws Exception 
+     */
+    public void restore(final ByteBuffer buffer) throws Exception
+    {
+        this.collected = buffer.getInt();
+        
+        final int count = buffer.get();
+        
+        for (int i = 0; i < count; i++)
+        {
+            final Bonus.Type type = Bonus.Type.values()[buffer.get()];
+            
+            if (i >= bonuses.size() || getBonus(i).getType() != type)
+            {
+                final Bonus bonus = new Bonus(type);
+                bonus.setImage(image);
+                
+                if (i < bonuses.size())
+                {
+                    bonuses.set(i, bonus);
+                }
+                else
+                {
+                    bonuses.add(bonus);
+                }
+            }
+            
+            getBonus(i).restore(buffer);
+        }
+        
+        //remove any bonuses that weren't saved
+        while (bonuses.size() > count)
+        {
+            bonuses.remove(bonuses.size() - 1);
+        }
+    }
+    
     public boolean hasBonuses()
     {
         return (!bonuses.isEmpty());
@@ -89,8 +155,6 @@ public final class Bonuses implements Disposable, IElement
     @Override
     public void update(final Engine engine)
     {
-        Hero hero = engine.getManager().getHero();
-        
         for (int i = 0; i < bonuses.size(); i++)
         {
             //get the bonus
@@ -99,8 +163,10 @@ public final class Bonuses implements Disposable, IElement
             //deduct time from timer
             bonus.getTimer().update(engine.getMain().getTime());
             
-            //if the hero is close enough to the bonus
-            if (hero.hasVelocity() && hero.getDistance(bonus) <= bonus.getWidth() * Character.COLLISION_RATIO)
+            //the hero close enough to collect the bonus, if any
+            final Hero hero = getCollector(engine.getManager(), bonus);
+            
+            if (hero != null)
             {
                 //add to total
                 this.collected++;
@@ -141,6 +207,25 @@ public final class Bonuses implements Disposable, IElement
         }
     }
     
+    /**
+     * Get the hero that collects the bonus
+     * @param manager The manager containing the heroes
+     * @param bonus The bonus
+     * @return The first moving hero close enough to the bonus, null if none
+     */
+    private Hero getCollector(final Manager manager, final Bonus bonus)
+    {
+        for (int i = 0; i < manager.getHeroCount(); i++)
+        {
+            final Hero hero = manager.getHero(i);
+            
+            if (hero.hasLives() && hero.hasVelocity() && hero.getDistance(bonus) <= bonus.getWidth() * Character.COLLISION_RATIO)
+                return hero;
+        }
+        
+        return null;
+    }
+    
     @Override
     public void dispose()
     {
@@ -157,14 +242,54 @@ public final class Bonuses implements Disposable, IElement
         }
     }
     
+    /**
+     * Record the location of every bonus at the start of an update
+     */
+    public void startUpdate()
+    {
+        if (bonuses != null)
+        {
+            for (int i = 0; i < bonuses.size(); i++)
+            {
+                bonuses.get(i).startUpdate();
+            }
+        }
+    }
+    
     @Override
     public void render(final Graphics graphics) throws Exception
+    {
+        render(graphics, 1);
+    }
+    
+    /**
+     * Draw the bonuses between their previous and current location
+     * @param graphics Graphics object used for drawing
+     * @param interpolation The fraction of an update (0 - 1) that has passed since the last update
+     * @throws Exception 
+     */
+    public void render(final Graphics graphics, final double interpolation) throws Exception
+    {
+        if (bonuses != null)
+        {
+            for (int i = 0; i < bonuses.size(); i++)
+            {
+                bonuses.get(i).render(graphics, interpolation);
+            }
+        }
+    }
+    
+    /**
+     * Add the bonuses to the snapshot
+     * @param snapshot The snapshot of the current update
+     */
+    public void write(final WorldSnapshot snapshot)
     {
         if (bonuses != null)
         {
             for (int i = 0; i < bonuses.size(); i++)
             {
-                bonuses.get(i).render(graphics);
+                bonuses.get(i).write(snapshot);
             }
         }
     }
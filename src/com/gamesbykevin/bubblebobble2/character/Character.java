@@ -8,10 +8,13 @@ import com.gamesbykevin.bubblebobble2.entity.Entity;
 import com.gamesbykevin.bubblebobble2.maps.Map;
 import com.gamesbykevin.bubblebobble2.projectile.Projectile;
 import com.gamesbykevin.bubblebobble2.shared.IElement;
+import com.gamesbykevin.bubblebobble2.shared.WorldSnapshot;
 import com.gamesbykevin.framework.util.Timers;
 
 import java.awt.Graphics;
+import java.awt.Image;
 import java.awt.Point;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -33,13 +36,13 @@ public abstract class Character extends Entity implements Disposable, IElement
     private boolean idle = false, walk = false, jump = false, fall = false, attack = false, dead = false, start = true, invincible = false;
     
     //the max speed a character can fall
-    private static final double MAX_SPEED_FALL = 1;
+    public static final double MAX_SPEED_FALL = 1;
     
     //the max speed a character can jump
     public static final double MAX_SPEED_JUMP = 4.75;
     
     //the rate at which to increase/decrease y-velocity
-    private static final double VELOCITY_Y_CHANGE = .25;
+    public static final double VELOCITY_Y_CHANGE = .25;
     
     //where to place the character
     private double destinationX, destinationY;
@@ -310,6 +313,101 @@ public abstract class Character extends Entity implements Disposable, IElement
         timer = null;
     }
     
+    @Override
+    public void save(final ByteBuffer buffer)
+    {
+        super.save(buffer);
+        
+        //store each state as a bit
+        int states = 0;
+        states |= (idle       ? 1 << 0 : 0);
+        states |= (walk       ? 1 << 1 : 0);
+        states |= (jump       ? 1 << 2 : 0);
+        states |= (fall       ? 1 << 3 : 0);
+        states |= (attack     ? 1 << 4 : 0);
+        states |= (dead       ? 1 << 5 : 0);
+        states |= (start      ? 1 << 6 : 0);
+        states |= (invincible ? 1 << 7 : 0);
+        buffer.put((byte)states);
+        
+        buffer.putInt(limit);
+        buffer.putDouble(destinationX);
+        buffer.putDouble(destinationY);
+        
+        save(timer, buffer);
+        
+        //save the projectiles with their type
+        buffer.put((byte)projectiles.size());
+        
+        for (int i = 0; i < projectiles.size(); i++)
+        {
+            buffer.put((byte)projectiles.get(i).getType().ordinal());
+            projectiles.get(i).save(buffer);
+        }
+    }
+    
+    @Override
+    public void restore(final ByteBuffer buffer) throws Exception
+    {
+        super.restore(buffer);
+        
+        final int states = buffer.get();
+        this.idle       = ((states & (1 << 0)) != 0);
+        this.walk       = ((states & (1 << 1)) != 0);
+        this.jump       = ((states & (1 << 2)) != 0);
+        this.fall       = ((states & (1 << 3)) != 0);
+        this.attack     = ((states & (1 << 4)) != 0);
+        this.dead       = ((states & (1 << 5)) != 0);
+        this.start      = ((states & (1 << 6)) != 0);
+        this.invincible = ((states & (1 << 7)) != 0);
+        
+        this.limit = buffer.getInt();
+        this.destinationX = buffer.getDouble();
+        this.destinationY = buffer.getDouble();
+        
+        restore(timer, buffer);
+        
+        final int count = buffer.get();
+        
+        for (int i = 0; i < count; i++)
+        {
+            final Projectile.Type type = Projectile.Type.values()[buffer.get()];
+            
+            //reuse the existing projectile if it is the same type
+            if (i >= projectiles.size() || projectiles.get(i).getType() != type)
+            {
+                final Projectile projectile = Projectile.create(type);
+                projectile.setImage(getProjectileImage());
+                
+                if (i < projectiles.size())
+                {
+                    projectiles.set(i, projectile);
+                }
+                else
+                {
+                    projectiles.add(projectile);
+                }
+            }
+            
+            projectiles.get(i).restore(buffer);
+        }
+        
+        //remove any projectiles that weren't saved
+        while (projectiles.size() > count)
+        {
+            projectiles.remove(projectiles.size() - 1);
+        }
+    }
+    
+    /**
+     * Get the image the projectiles of this character are drawn from
+     * @return The image
+     */
+    protected Image getProjectileImage()
+    {
+        return getImage();
+    }
+    
     /**
      * Make sure the appropriate animation is set
      */
@@ -545,16 +643,38 @@ public abstract class Character extends Entity implements Disposable, IElement
     }
     
     @Override
-    public void render(final Graphics graphics) throws Exception
+    public void startUpdate()
+    {
+        for (int i = 0; i < getProjectiles().size(); i++)
+        {
+            getProjectiles().get(i).startUpdate();
+        }
+        
+        super.startUpdate();
+    }
+    
+    @Override
+    public void render(final Graphics graphics, final double interpolation) throws Exception
     {
         if (!getProjectiles().isEmpty())
         {
             for (int i = 0; i < getProjectiles().size(); i++)
             {
-                getProjectiles().get(i).render(graphics);
+                getProjectiles().get(i).render(graphics, interpolation);
             }
         }
         
-        super.render(graphics);
+        super.render(graphics, interpolation);
+    }
+    
+    @Override
+    public void write(final WorldSnapshot snapshot)
+    {
+        for (int i = 0; i < getProjectiles().size(); i++)
+        {
+            getProjectiles().get(i).write(snapshot);
+        }
+        
+        super.write(snapshot);
     }
 }
\ No newline at end of file
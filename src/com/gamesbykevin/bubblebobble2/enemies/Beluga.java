@@ -35,7 +35,7 @@ public class Beluga extends Enemy
                 {
                     if (!hasVelocityX())
                     {
-                        Hero hero = engine.getManager().getHero();
+                        Hero hero = engine.getManager().getHero(this);
                         
                         if (hero.getX() > getX())
                         {
@@ -31,7 +31,7 @@ public final class BubbleBuster extends Enemy
                 }
                 else
                 {
-                    Hero hero = engine.getManager().getHero();
+                    Hero hero = engine.getManager().getHero(this);
                     
                     if (!hasVelocityX())
                     {
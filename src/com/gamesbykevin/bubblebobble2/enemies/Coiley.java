@@ -31,7 +31,7 @@ public class Coiley extends Enemy
                 }
                 else
                 {
-                    Hero hero = engine.getManager().getHero();
+                    Hero hero = engine.getManager().getHero(this);
                     
                     if (!hasVelocityX())
                     {
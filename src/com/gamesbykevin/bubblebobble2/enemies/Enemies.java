@@ -4,15 +4,17 @@ import com.gamesbykevin.framework.resources.Disposable;
 
 import com.gamesbykevin.bubblebobble2.character.Character;
 import com.gamesbykevin.bubblebobble2.engine.Engine;
-import com.gamesbykevin.bubblebobble2.hero.Hero;
+import com.gamesbykevin.bubblebobble2.manager.Manager;
 import com.gamesbykevin.bubblebobble2.maps.Map;
 import com.gamesbykevin.bubblebobble2.projectile.Projectile;
 import com.gamesbykevin.bubblebobble2.resources.GameAudio;
 import com.gamesbykevin.bubblebobble2.resources.Resources;
 import com.gamesbykevin.bubblebobble2.shared.IElement;
+import com.gamesbykevin.bubblebobble2.shared.WorldSnapshot;
 
 import java.awt.Graphics;
 import java.awt.Image;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -184,47 +186,8 @@ public final class Enemies implements Disposable, IElement
     {
         try
         {
-            //enemy instance
-            final Enemy enemy;
-
             //create new enemy of specified type
-            switch(type)
-            {
-                case BubbleBuster:
-                    enemy = new BubbleBuster();
-                    break;
-
-                case Incendo:
-                    enemy = new Incendo();
-                    break;
-
-                case Beluga:
-                    enemy = new Beluga();
-                    break;
-
-                case Stoner:
-                    enemy = new Stoner();
-                    break;
-
-                case Coiley:
-                    enemy = new Coiley();
-                    break;
-
-                case Hullaballoon:
-                    enemy = new Hullaballoon();
-                    break;
-
-                case SuperSocket:
-                    enemy = new SuperSocket();
-                    break;
-
-                case WillyWhistle:
-                    enemy = new WillyWhistle();
-                    break;
-
-                default:
-                    throw new Exception("Type not setup here: " + type.toString());
-            }
+            final Enemy enemy = create(type);
 
             //set the destination
             enemy.setDestinationX(x);
@@ -234,9 +197,6 @@ public final class Enemies implements Disposable, IElement
             enemy.setX(x);
             enemy.setY(Map.getBlockY(-1));
 
-            //store reference for enemy
-            enemy.setImage(image);
-
             //add to list
             enemies.add(enemy);
         }
@@ -246,6 +206,109 @@ public final class Enemies implements Disposable, IElement
         }
     }
     
+    /**
+     * Create a new enemy
+     * @param type The type of enemy we want to create
+     * @return The new enemy
+     * @throws Exception 
+     */
+    private Enemy create(final Enemy.Type type) throws Exception
+    {
+        //enemy instance
+        final Enemy enemy;
+
+        //create new enemy of specified type
+        switch(type)
+        {
+            case BubbleBuster:
+                enemy = new BubbleBuster();
+                break;
+
+            case Incendo:
+                enemy = new Incendo();
+                break;
+
+            case Beluga:
+                enemy = new Beluga();
+                break;
+
+            case Stoner:
+                enemy = new Stoner();
+                break;
+
+            case Coiley:
+                enemy = new Coiley();
+                break;
+
+            case Hullaballoon:
+                enemy = new Hullaballoon();
+                break;
+
+            case SuperSocket:
+                enemy = new SuperSocket();
+                break;
+
+            case WillyWhistle:
+                enemy = new WillyWhistle();
+                break;
+
+            default:
+                throw new Exception("Type not setup here: " + type.toString());
+        }
+        
+        //store reference for enemy
+        enemy.setImage(image);
+        
+        return enemy;
+    }
+    
+    /**
+     * Save all of the enemies
+     * @param buffer The buffer to write to
+     */
+    public void save(final ByteBuffer buffer)
+    {
+        buffer.put((byte)enemies.size());
+        
+        for (int i = 0; i < enemies.size(); i++)
+        {
+            buffer.put((byte)getEnemy(i).getType().ordinal());
+            getEnemy(i).save(buffer);
+        }
+    }
+    
+    /**
+     * Restore all of the enemies, existing enemies are reused if they are the same type
+     * @param buffer The buffer to read from
+     * @throws Exception 
+     */
+    public void restore(final ByteBuffer buffer) throws Exception
+    {
+        final int count = buffer.get();
+        
+        for (int i = 0; i < count; i++)
+        {
+            final Enemy.Type type = Enemy.Type.values()[buffer.get()];
+            
+            if (i >= enemies.size())
+            {
+                enemies.add(create(type));
+            }
+            else if (getEnemy(i).getType() != type)
+            {
+                enemies.set(i, create(type));
+            }
+            
+            getEnemy(i).restore(buffer);
+        }
+        
+        //remove any enemies that weren't saved
+        while (enemies.size() > count)
+        {
+            enemies.remove(enemies.size() - 1);
+        }
+    }
+    
     public boolean hasEnemies()
     {
         return (!enemies.isEmpty());
@@ -287,13 +350,16 @@ public final class Enemies implements Disposable, IElement
     @Override
     public void update(final Engine engine) throws Exception
     {
-        Hero hero = engine.getManager().getHero();
+        final Manager manager = engine.getManager();
         
         if (enemies != null)
         {
-            //don't continue if here is starting
-            if (hero.isStarting())
-                return;
+            //don't continue if any hero still playing is starting
+            for (int i = 0; i < manager.getHeroCount(); i++)
+            {
+                if (manager.getHero(i).hasLives() && manager.getHero(i).isStarting())
+                    return;
+            }
 
             boolean addProjectile = false;
             
@@ -316,7 +382,7 @@ public final class Enemies implements Disposable, IElement
                     remove(enemy);
                     
                     //add fruit
-                    engine.getManager().getBonuses().add(enemy);
+                    engine.getManager().getBonuses().add(enemy, engine.getRandom());
                     
                     //move index back
                     i--;
@@ -329,17 +395,61 @@ public final class Enemies implements Disposable, IElement
         }
         
         //check if the enemies hit the hero(es)
-        checkCharacterCollision(hero, engine.getResources());
+        for (int i = 0; i < manager.getHeroCount(); i++)
+        {
+            if (manager.getHero(i).hasLives())
+                checkCharacterCollision(manager.getHero(i), engine.getResources());
+        }
+    }
+    
+    /**
+     * Record the location of every enemy and their projectiles at the start of an update
+     */
+    public void startUpdate()
+    {
+        if (enemies != null)
+        {
+            for (int i = 0; i < enemies.size(); i++)
+            {
+                getEnemy(i).startUpdate();
+            }
+        }
     }
     
     @Override
     public void render(final Graphics graphics) throws Exception
+    {
+        render(graphics, 1);
+    }
+    
+    /**
+     * Draw the enemies between their previous and current location
+     * @param graphics Graphics object used for drawing
+     * @param interpolation The fraction of an update (0 - 1) that has passed since the last update
+     * @throws Exception 
+     */
+    public void render(final Graphics graphics, final double interpolation) throws Exception
+    {
+        if (enemies != null)
+        {
+            for (int i = 0; i < enemies.size(); i++)
+            {
+                getEnemy(i).render(graphics, interpolation);
+            }
+        }
+    }
+    
+    /**
+     * Add the enemies to the snapshot
+     * @param snapshot The snapshot of the current update
+     */
+    public void write(final WorldSnapshot snapshot)
     {
         if (enemies != null)
         {
             for (int i = 0; i < enemies.size(); i++)
             {
-                getEnemy(i).render(graphics);
+                getEnemy(i).write(snapshot);
             }
         }
     }
@@ -4,11 +4,15 @@ import com.gamesbykevin.framework.resources.Disposable;
 import com.gamesbykevin.framework.util.Timer;
 
 import com.gamesbykevin.bubblebobble2.character.Character;
+import com.gamesbykevin.bubblebobble2.engine.Engine;
+import com.gamesbykevin.bubblebobble2.maps.FlowField;
 import com.gamesbykevin.bubblebobble2.maps.Map;
 import com.gamesbykevin.bubblebobble2.projectile.Projectile;
 
 import com.gamesbykevin.framework.util.Timers;
 
+import java.nio.ByteBuffer;
+
 public abstract class Enemy extends Character implements Disposable
 {
     //speed to move
@@ -80,7 +84,7 @@ public abstract class Enemy extends Character implements Disposable
         return this.timer;
     }
     
-    private Type getType()
+    public Type getType()
     {
         return this.type;
     }
@@ -275,6 +279,45 @@ public abstract class Enemy extends Character implements Disposable
         correctAnimation();
     }
     
+    /**
+     * Walk towards the closest hero if the first step of the path is east or west
+     * @param map The current map played
+     * @return true if walking towards the hero, false if the path doesn't start east or west
+     */
+    private boolean chase(final Map map)
+    {
+        final byte step = map.getFlowField().getStep(getX(), getY());
+        
+        if (step != FlowField.EAST && step != FlowField.WEST)
+            return false;
+        
+        setVelocityX((step == FlowField.EAST) ? getSpeedRun() : -getSpeedRun());
+        setHorizontalFlip(step == FlowField.EAST);
+        
+        return true;
+    }
+    
+    /**
+     * An angry enemy walks towards the closest hero, otherwise pick a direction at random
+     * @param engine Object containing the current map and the random object
+     */
+    protected void chaseOrWander(final Engine engine)
+    {
+        if (isAngry() && chase(engine.getManager().getMaps().getMap()))
+            return;
+        
+        if (engine.getRandom().nextBoolean())
+        {
+            setVelocityX(isAngry()? getSpeedRun() : getSpeedWalk());
+            setHorizontalFlip(true);
+        }
+        else
+        {
+            setVelocityX(isAngry()? -getSpeedRun() : -getSpeedWalk());
+            setHorizontalFlip(false);
+        }
+    }
+    
     /**
      * Check if the captured phase is 
      * @param map The current map played
@@ -309,6 +352,28 @@ public abstract class Enemy extends Character implements Disposable
         }
     }
     
+    @Override
+    public void save(final ByteBuffer buffer)
+    {
+        super.save(buffer);
+        
+        buffer.put((byte)(angry ? 1 : 0));
+        buffer.put((byte)(capture ? 1 : 0));
+        
+        save(timer, buffer);
+    }
+    
+    @Override
+    public void restore(final ByteBuffer buffer) throws Exception
+    {
+        super.restore(buffer);
+        
+        this.angry = (buffer.get() != 0);
+        this.capture = (buffer.get() != 0);
+        
+        restore(timer, buffer);
+    }
+    
     @Override
     public void dispose()
     {
@@ -38,7 +38,7 @@ public class Hullaballoon extends Enemy
                 {
                     if (!hasVelocityX())
                     {
-                        Hero hero = engine.getManager().getHero();
+                        Hero hero = engine.getManager().getHero(this);
                         
                         if (hero.getX() > getX())
                         {
@@ -42,19 +42,11 @@ public final class Incendo extends Enemy
                         {
                             setWalk(true);
                             
-                            if (engine.getRandom().nextBoolean())
-                            {
-                                setVelocityX(isAngry()? getSpeedRun() : getSpeedWalk());
-                                setHorizontalFlip(true);
-                            }
-                            else
-                            {
-                                setVelocityX(isAngry()? -getSpeedRun() : -getSpeedWalk());
-                                setHorizontalFlip(false);
-                            }
+                            //an angry enemy walks towards the closest hero, otherwise pick a direction
+                            chaseOrWander(engine);
                         }
                         
-                        Hero hero = engine.getManager().getHero();
+                        Hero hero = engine.getManager().getHero(this);
                         
                         final double distance = (hero.getY() > getY()) ? hero.getY() - getY() : getY() - hero.getY();
                         
@@ -37,20 +37,12 @@ public final class SuperSocket extends Enemy
                         {
                             setWalk(true);
                             
-                            if (engine.getRandom().nextBoolean())
-                            {
-                                setVelocityX(isAngry()? getSpeedRun() : getSpeedWalk());
-                                setHorizontalFlip(true);
-                            }
-                            else
-                            {
-                                setVelocityX(isAngry()? -getSpeedRun() : -getSpeedWalk());
-                                setHorizontalFlip(false);
-                            }
+                            //an angry enemy walks towards the closest hero, otherwise pick a direction
+                            chaseOrWander(engine);
                         }
                         
                         //the hero to attack
-                        Hero hero = engine.getManager().getHero();
+                        Hero hero = engine.getManager().getHero(this);
                         
                         //make sure hero is below enemy
                         if (hero.getY() > getY())
@@ -34,16 +34,8 @@ public final class WillyWhistle extends Enemy
                         {
                             setWalk(true);
                             
-                            if (engine.getRandom().nextBoolean())
-                            {
-                                setVelocityX(isAngry()? getSpeedRun() : getSpeedWalk());
-                                setHorizontalFlip(true);
-                            }
-                            else
-                            {
-                                setVelocityX(isAngry()? -getSpeedRun() : -getSpeedWalk());
-                                setHorizontalFlip(false);
-                            }
+                            //an angry enemy walks towards the closest hero, otherwise pick a direction
+                            chaseOrWander(engine);
                         }
                     }
                     else
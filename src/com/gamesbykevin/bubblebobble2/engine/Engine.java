@@ -1,15 +1,24 @@
 package com.gamesbykevin.bubblebobble2.engine;
 
+import com.gamesbykevin.bubblebobble2.input.Input;
+import com.gamesbykevin.bubblebobble2.input.InputLog;
+import com.gamesbykevin.bubblebobble2.input.InputQueue;
+import com.gamesbykevin.bubblebobble2.input.KeyState;
+import com.gamesbykevin.bubblebobble2.main.FrameStats;
 import com.gamesbykevin.bubblebobble2.main.Main;
 import com.gamesbykevin.bubblebobble2.manager.Manager;
 import com.gamesbykevin.bubblebobble2.menu.CustomMenu;
+import com.gamesbykevin.bubblebobble2.net.RollbackSession;
 import com.gamesbykevin.bubblebobble2.resources.*;
+import com.gamesbykevin.bubblebobble2.shared.GameRandom;
 import com.gamesbykevin.bubblebobble2.shared.Shared;
+import com.gamesbykevin.bubblebobble2.shared.WorldSnapshot;
 
 import com.gamesbykevin.framework.input.*;
 
 import java.awt.*;
 import java.awt.event.*;
+import java.nio.ByteBuffer;
 import java.util.Random;
 
 public final class Engine implements KeyListener, MouseMotionListener, MouseListener, IEngine 
@@ -29,17 +38,35 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
     //keyboard object that will be recording key input
     private Keyboard keyboard;
     
+    //the state of the keys for the game
+    private KeyState keys;
+    
+    //input events waiting to be handled by the game thread
+    private InputQueue inputQueue;
+    
     //object containing all of the game elements
     private Manager manager;
     
     //object used to make random decisions
-    private Random random;
+    private GameRandom random;
     
     //default font
     private Font font;
     
     //seed for the Random object
-    private final long seed = System.nanoTime();
+    private final long seed;
+    
+    //are the resources loaded elsewhere and shared with other engines
+    private final boolean shared;
+    
+    //object recording or replaying the input, null if neither
+    private InputLog inputLog;
+    
+    //the number of games started
+    private int games = 0;
+    
+    //session with the remote player, null if playing alone
+    private RollbackSession session;
     
     /**
      * The Engine that contains the game/menu objects
@@ -48,18 +75,56 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
      * @throws CustomException 
      */
     public Engine(final Main main) throws Exception
+    {
+        this(main, System.nanoTime());
+    }
+    
+    /**
+     * The Engine that contains the game/menu objects
+     * 
+     * @param main Main object that contains important information so we need a reference to it
+     * @param seed The seed for the Random object
+     * @throws CustomException 
+     */
+    public Engine(final Main main, final long seed) throws Exception
+    {
+        this(main, seed, null);
+    }
+    
+    /**
+     * The Engine that contains the game/menu objects
+     * 
+     * @param main Main object that contains important information so we need a reference to it
+     * @param seed The seed for the Random object
+     * @param resources Resources that have already been loaded and are shared with other engines, null to load our own
+     * @throws CustomException 
+     */
+    public Engine(final Main main, final long seed, final Resources resources) throws Exception
     {
         //reference to parent class
         this.main = main;
         
+        //store the seed
+        this.seed = seed;
+        
+        //shared resources are not loaded or disposed by this engine
+        this.resources = resources;
+        this.shared = (resources != null);
+        
         //object used to track mouse input
         this.mouse = new Mouse();
         
         //object used to track keyboard input
         this.keyboard = new Keyboard();
         
+        //object used to track the keys for the game
+        this.keys = new KeyState();
+        
+        //the input events are added on the event dispatch thread and handled on the game thread
+        this.inputQueue = new InputQueue();
+        
         //create new Random object
-        random = new Random(seed);
+        random = new GameRandom(seed);
         
         //display seed if debugging
         if (Shared.DEBUG)
@@ -76,7 +141,10 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
         {
             if (resources != null)
             {
-                resources.dispose();
+                //the shared resources are still used by other engines
+                if (!shared)
+                    resources.dispose();
+                
                 resources = null;
             }
             
@@ -104,7 +172,15 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
                 manager = null;
             }
             
+            if (session != null)
+            {
+                session.dispose();
+                session = null;
+            }
+            
             random = null;
+            keys = null;
+            inputQueue = null;
         }
         catch(Exception e)
         {
@@ -117,7 +193,15 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
     {
         try
         {
-            if (menu == null)
+            //handle the input events received since the last update
+            updateInput(main);
+            
+            //when headless there is no menu, so go straight to the game
+            if (main.isHeadless())
+            {
+                updateGame();
+            }
+            else if (menu == null)
             {
                 //create new menu
                 menu = new CustomMenu(this);
@@ -139,32 +223,19 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
 
                 //if the menu is finished and the window has focus
                 if (menu.hasFinished() && menu.hasFocus())
-                {
-                    //if our resources object is empty create a new one
-                    if (resources == null)
-                        this.resources = new Resources();
-
-                    //check if we are still loading resources
-                    if (resources.isLoading())
-                    {
-                        //load resources
-                        resources.update(main.getContainerClass());
-                    }
-                    else
-                    {
-                        //create new manager because at this point our resources have loaded
-                        if (manager == null)
-                            manager = new Manager(this);
-
-                        //update main game logic
-                        manager.update(this);
-                    }
-                }
+                    updateGame();
 
                 //if the mouse is released reset all mouse events
                 if (mouse.isMouseReleased())
                     mouse.reset();
             }
+            
+            //the game keys released are handled through KeyState, don't let them build up here
+            Input.removeKeysReleased(keyboard);
+            
+            //the same audio can be requested again next update
+            if (resources != null)
+                resources.endAudioUpdate();
         }
         catch(Exception e)
         {
@@ -172,6 +243,129 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
         }
     }
     
+    /**
+     * Load the resources, and once loaded update the game
+     * @throws Exception 
+     */
+    private void updateGame() throws Exception
+    {
+        //if our resources object is empty create a new one, audio is not needed when headless
+        if (resources == null)
+            this.resources = new Resources(!main.isHeadless());
+
+        //check if we are still loading resources
+        if (resources.isLoading())
+        {
+            //there is no loading screen when headless so wait for the resources
+            if (main.isHeadless())
+                resources.load(main.getContainerClass()).get();
+            
+            //start loading the resources in the background, or check if they have finished
+            resources.update(main.getContainerClass());
+        }
+        else
+        {
+            //create new manager because at this point our resources have loaded
+            if (manager == null)
+            {
+                //start recording or replaying before the game is created
+                startInputLog();
+                
+                manager = new Manager(this);
+                
+                games++;
+                
+                //the session starts over with the new game
+                if (session != null)
+                    session.reset();
+            }
+
+            //update main game logic, the session will update the game when playing with a remote player
+            if (session != null)
+            {
+                session.update(this);
+            }
+            else
+            {
+                manager.update(this);
+            }
+        }
+    }
+    
+    /**
+     * Get the option selected in the menu
+     * @param layerKey The layer containing the option
+     * @param optionKey The option we want
+     * @return The index of the selection, or the first selection if there is no menu (headless)
+     */
+    public int getOptionSelectionIndex(final CustomMenu.LayerKey layerKey, final CustomMenu.OptionKey optionKey)
+    {
+        final int index = (menu == null) ? 0 : menu.getOptionSelectionIndex(layerKey, optionKey);
+        
+        //the game options are part of the recording, in game options (sound, full screen) are not
+        if (inputLog != null && layerKey == CustomMenu.LayerKey.Options)
+            return inputLog.getOption(optionKey.toString(), index);
+        
+        return index;
+    }
+    
+    /**
+     * Set the object to record or replay the input.<br>
+     * Recording or replaying starts with the next game.
+     * @param inputLog The input log, null to stop
+     */
+    public void setInputLog(final InputLog inputLog)
+    {
+        this.inputLog = inputLog;
+    }
+    
+    public InputLog getInputLog()
+    {
+        return this.inputLog;
+    }
+    
+    /**
+     * Set the session with the remote player.<br>
+     * Both players have to use the same seed and game options, the session starts with the next game.
+     * @param session The session, null to play alone
+     */
+    public void setSession(final RollbackSession session)
+    {
+        this.session = session;
+    }
+    
+    public RollbackSession getSession()
+    {
+        return this.session;
+    }
+    
+    /**
+     * Get the number of players
+     * @return 2 when playing with a remote player, 1 otherwise
+     */
+    public int getPlayers()
+    {
+        return (session != null) ? RollbackSession.PLAYERS : 1;
+    }
+    
+    /**
+     * Seed the random object for the new game so it can be recorded or replayed
+     */
+    private void startInputLog()
+    {
+        if (inputLog == null)
+            return;
+        
+        //the first game uses the engine seed, every game after has a new seed
+        final long gameSeed = (games == 0) ? seed : random.nextLong();
+        
+        //rewind the replay, or start a new recording
+        inputLog.start(gameSeed);
+        
+        //when replaying use the seed of the recording
+        random.setSeed(inputLog.isReplay() ? inputLog.getSeed() : gameSeed);
+    }
+    
     public long getSeed()
     {
         return this.seed;
@@ -185,7 +379,7 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
         //reset mouse and keyboard input
         resetInput();
         
-        if (this.resources != null)
+        if (this.resources != null && !shared)
         {
             this.resources.stopAllSound();
             this.resources.dispose();
@@ -204,6 +398,66 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
         //reset mouse and keyboard input
         getMouse().reset();
         getKeyboard().reset();
+        getKeys().reset();
+    }
+    
+    /**
+     * Apply all input events waiting in the queue to the mouse, keyboard and keys.<br>
+     * This is done once at the start of each update so the input can't change during an update.
+     * @param main Main object to track how long the events waited
+     */
+    private void updateInput(final Main main)
+    {
+        final long now = System.nanoTime();
+        
+        InputEvent event;
+        
+        while ((event = inputQueue.poll()) != null)
+        {
+            //track the time from the event until now
+            main.getStats().record(FrameStats.Key.Input, now - inputQueue.getTime());
+            
+            switch (event.getID())
+            {
+                case KeyEvent.KEY_PRESSED:
+                    keyboard.addKeyPressed(((KeyEvent)event).getKeyCode());
+                    keys.addKeyPressed(((KeyEvent)event).getKeyCode());
+                    break;
+                    
+                case KeyEvent.KEY_RELEASED:
+                    keyboard.addKeyReleased(((KeyEvent)event).getKeyCode());
+                    keys.addKeyReleased(((KeyEvent)event).getKeyCode());
+                    break;
+                    
+                case MouseEvent.MOUSE_CLICKED:
+                    mouse.setMouseClicked((MouseEvent)event);
+                    break;
+                    
+                case MouseEvent.MOUSE_PRESSED:
+                    mouse.setMousePressed((MouseEvent)event);
+                    break;
+                    
+                case MouseEvent.MOUSE_RELEASED:
+                    mouse.setMouseReleased((MouseEvent)event);
+                    break;
+                    
+                case MouseEvent.MOUSE_ENTERED:
+                    mouse.setMouseEntered(((MouseEvent)event).getPoint());
+                    break;
+                    
+                case MouseEvent.MOUSE_EXITED:
+                    mouse.setMouseExited(((MouseEvent)event).getPoint());
+                    break;
+                    
+                case MouseEvent.MOUSE_MOVED:
+                    mouse.setMouseMoved(((MouseEvent)event).getPoint());
+                    break;
+                    
+                case MouseEvent.MOUSE_DRAGGED:
+                    mouse.setMouseDragged(((MouseEvent)event).getPoint());
+                    break;
+            }
+        }
     }
     
     public Main getMain()
@@ -263,6 +517,25 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
         }
     }
     
+    /**
+     * Add the game to the snapshot.<br>
+     * The menu, mouse and loading screens aren't part of a snapshot and have to be drawn by the engine
+     * @param snapshot The snapshot of the current update
+     * @return true if the snapshot contains everything to be drawn, false otherwise
+     */
+    public boolean write(final WorldSnapshot snapshot)
+    {
+        //the menu is drawn while it is visible or the mouse is shown
+        if (menu == null || !menu.hasFinished() || !menu.hasFocus() || !Shared.HIDE_MOUSE)
+            return false;
+        
+        //the loading screen is drawn while resources are loading
+        if (resources == null || resources.isLoading() || manager == null)
+            return false;
+        
+        return manager.write(snapshot);
+    }
+    
     /**
      * Draw the Game Menu
      * 
@@ -283,6 +556,16 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
         }
     }
     
+    /**
+     * Set how far we are between the previous and current update, used when rendering the game
+     * @param interpolation The fraction of an update (0 - 1) that has passed since the last update
+     */
+    public void setInterpolation(final double interpolation)
+    {
+        if (manager != null)
+            manager.setInterpolation(interpolation);
+    }
+    
     /**
      * Object that contains all of the game elements
      * @return Manager
@@ -292,6 +575,34 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
         return this.manager;
     }
     
+    /**
+     * Write the state of the current game, including the random object, to the buffer
+     * @param buffer The buffer the state is written to, see Manager.SAVE_CAPACITY
+     * @throws Exception if there is no game in progress
+     */
+    public void saveGame(final ByteBuffer buffer) throws Exception
+    {
+        if (getManager() == null)
+            throw new Exception("There is no game to save");
+        
+        buffer.putLong(random.getState());
+        getManager().save(buffer);
+    }
+    
+    /**
+     * Restore the state of the current game previously written by saveGame()
+     * @param buffer The buffer the state is read from
+     * @throws Exception if there is no game in progress
+     */
+    public void restoreGame(final ByteBuffer buffer) throws Exception
+    {
+        if (getManager() == null)
+            throw new Exception("There is no game to restore");
+        
+        random.setState(buffer.getLong());
+        getManager().restore(buffer);
+    }
+    
     public CustomMenu getMenu()
     {
         return this.menu;
@@ -305,13 +616,13 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
     @Override
     public void keyReleased(KeyEvent e)
     {
-        keyboard.addKeyReleased(e.getKeyCode());
+        inputQueue.offer(e);
     }
     
     @Override
     public void keyPressed(KeyEvent e)
     {
-        keyboard.addKeyPressed(e.getKeyCode());
+        inputQueue.offer(e);
     }
     
     @Override
@@ -324,43 +635,43 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
     @Override
     public void mouseClicked(MouseEvent e)
     {
-        mouse.setMouseClicked(e);
+        inputQueue.offer(e);
     }
     
     @Override
     public void mousePressed(MouseEvent e)
     {
-        mouse.setMousePressed(e);
+        inputQueue.offer(e);
     }
     
     @Override
     public void mouseReleased(MouseEvent e)
     {
-        mouse.setMouseReleased(e);
+        inputQueue.offer(e);
     }
     
     @Override
     public void mouseEntered(MouseEvent e)
     {
-        mouse.setMouseEntered(e.getPoint());
+        inputQueue.offer(e);
     }
     
     @Override
     public void mouseExited(MouseEvent e)
     {
-        mouse.setMouseExited(e.getPoint());
+        inputQueue.offer(e);
     }
     
     @Override
     public void mouseMoved(MouseEvent e)
     {
-        mouse.setMouseMoved(e.getPoint());
+        inputQueue.offer(e);
     }
     
     @Override
     public void mouseDragged(MouseEvent e)
     {
-        mouse.setMouseDragged(e.getPoint());
+        inputQueue.offer(e);
     }
     
     public Mouse getMouse()
@@ -372,4 +683,32 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
     {
         return keyboard;
     }
+    
+    /**
+     * Get the state of the keys for the game
+     * @return KeyState
+     */
+    public KeyState getKeys()
+    {
+        return keys;
+    }
+    
+    /**
+     * Get the state of the keys for the specified player
+     * @param player The player
+     * @return The keys of the player when playing with a remote player, otherwise the local keys
+     */
+    public KeyState getKeys(final int player)
+    {
+        return (session != null) ? session.getKeys(player) : getKeys();
+    }
+    
+    /**
+     * Get the queue of input events waiting to be handled
+     * @return InputQueue
+     */
+    public InputQueue getInputQueue()
+    {
+        return inputQueue;
+    }
 }
\ No newline at end of file
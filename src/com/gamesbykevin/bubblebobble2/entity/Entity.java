@@ -3,14 +3,34 @@ package com.gamesbykevin.bubblebobble2.entity;
 import com.gamesbykevin.framework.base.Animation;
 import com.gamesbykevin.framework.base.Sprite;
 import com.gamesbykevin.framework.resources.Disposable;
+import com.gamesbykevin.framework.util.Timer;
+
+import com.gamesbykevin.bubblebobble2.shared.WorldSnapshot;
 
 import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 public abstract class Entity extends Sprite implements Disposable
 {
     //default animation key
     protected static final String DEFAULT_ANIMATION_KEY = "Default";
     
+    //any movement larger than this in 1 update is a reposition and won't be interpolated
+    private static final double INTERPOLATION_LIMIT = 8;
+    
+    //the location at the start of the current update, before the entity moved
+    private double previousX, previousY;
+    
+    //has the previous location been recorded
+    private boolean previous = false;
+    
+    //the keys of the animations in the order added, so the current animation can be saved as an index
+    private final List<Object> animationKeys = new ArrayList<>();
+    
     protected Entity()
     {
         //create sprite sheet
@@ -64,6 +84,9 @@ public abstract class Entity extends Sprite implements Disposable
         //add animation to sprite sheet
         super.getSpriteSheet().add(animation, object);
         
+        //track the key
+        animationKeys.add(object);
+        
         //if no animation has been set, set this as default
         if (getSpriteSheet().getCurrent() == null)
             setAnimation(object);
@@ -121,6 +144,105 @@ public abstract class Entity extends Sprite implements Disposable
         return (super.getSpriteSheet().hasFinished());
     }
     
+    /**
+     * Record the location at the start of an update, before anything moves.<br>
+     * The manager calls this for every entity once at the start of each update.
+     */
+    public void startUpdate()
+    {
+        resetPrevious();
+    }
+    
+    /**
+     * Use the current location as the previous location, so the entity isn't interpolated this update
+     */
+    private void resetPrevious()
+    {
+        previousX = getX();
+        previousY = getY();
+        previous = true;
+    }
+    
+    /**
+     * Place the entity, it won't be interpolated from where it was
+     * @param x x-coordinate
+     * @param y y-coordinate
+     */
+    @Override
+    public void setLocation(final double x, final double y)
+    {
+        super.setLocation(x, y);
+        resetPrevious();
+    }
+    
+    /**
+     * Place the entity at the location of another, it won't be interpolated from where it was
+     * @param sprite The sprite whose location we want
+     */
+    @Override
+    public void setLocation(final Sprite sprite)
+    {
+        super.setLocation(sprite);
+        resetPrevious();
+    }
+    
+    /**
+     * Get the x-coordinate where the entity is to be drawn
+     * @param interpolation The fraction of an update (0 - 1) that has passed since the last update
+     * @return The x-coordinate between the previous and current update
+     */
+    protected double getRenderX(final double interpolation)
+    {
+        final double x = getPreviousX();
+        
+        return x + ((getX() - x) * interpolation);
+    }
+    
+    /**
+     * Get the y-coordinate where the entity is to be drawn
+     * @param interpolation The fraction of an update (0 - 1) that has passed since the last update
+     * @return The y-coordinate between the previous and current update
+     */
+    protected double getRenderY(final double interpolation)
+    {
+        final double y = getPreviousY();
+        
+        return y + ((getY() - y) * interpolation);
+    }
+    
+    /**
+     * Get the x-coordinate at the start of the most recent update
+     * @return The previous x-coordinate, or the current if the entity was placed or didn't move
+     */
+    protected double getPreviousX()
+    {
+        return getPreviousLocation(previousX, getX());
+    }
+    
+    /**
+     * Get the y-coordinate at the start of the most recent update
+     * @return The previous y-coordinate, or the current if the entity was placed or didn't move
+     */
+    protected double getPreviousY()
+    {
+        return getPreviousLocation(previousY, getY());
+    }
+    
+    /**
+     * Get the location to interpolate from
+     * @param previous The coordinate at the start of the most recent update
+     * @param current The current coordinate
+     * @return The previous coordinate, or the current if it can't be interpolated
+     */
+    private double getPreviousLocation(final double previous, final double current)
+    {
+        //if no previous location or the entity was placed, don't interpolate
+        if (!this.previous || Math.abs(current - previous) > INTERPOLATION_LIMIT)
+            return current;
+        
+        return previous;
+    }
+    
     /**
      * Update the location and animation.
      * @param time The time deduction per frame (nanoseconds)
@@ -141,15 +263,31 @@ public abstract class Entity extends Sprite implements Disposable
         }
     }
     
+    /**
+     * Draw the entity at its current location
+     * @param graphics Graphics object used for drawing
+     * @throws Exception 
+     */
     public void render(final Graphics graphics) throws Exception
+    {
+        render(graphics, 1);
+    }
+    
+    /**
+     * Draw the entity between its previous and current location
+     * @param graphics Graphics object used for drawing
+     * @param interpolation The fraction of an update (0 - 1) that has passed since the last update
+     * @throws Exception 
+     */
+    public void render(final Graphics graphics, final double interpolation) throws Exception
     {
         //store original location
         final double x = getX();
         final double y = getY();
         
         //off-set location
-        super.setX(x - (getWidth() / 2));
-        super.setY(y - (getHeight() / 2));
+        super.setX(getRenderX(interpolation) - (getWidth() / 2));
+        super.setY(getRenderY(interpolation) - (getHeight() / 2));
         
         //draw character
         super.draw(graphics);
@@ -158,4 +296,113 @@ public abstract class Entity extends Sprite implements Disposable
         super.setX(x);
         super.setY(y);
     }
+    
+    /**
+     * Save the location, velocity and animation of the entity
+     * @param buffer The buffer to write to
+     */
+    public void save(final ByteBuffer buffer)
+    {
+        buffer.putDouble(getX());
+        buffer.putDouble(getY());
+        buffer.putDouble(getVelocityX());
+        buffer.putDouble(getVelocityY());
+        buffer.put((byte)(hasHorizontalFlip() ? 1 : 0));
+        
+        //the current animation and where it is at
+        final Animation animation = getSpriteSheet().getSpriteSheetAnimation();
+        
+        buffer.put((byte)animationKeys.indexOf(getSpriteSheet().getCurrent()));
+        buffer.putInt(animation.getIndex());
+        buffer.putLong(animation.getRemaining());
+        buffer.put((byte)(animation.hasFinished() ? 1 : 0));
+    }
+    
+    /**
+     * Restore the location, velocity and animation of the entity
+     * @param buffer The buffer to read from
+     * @throws Exception 
+     */
+    public void restore(final ByteBuffer buffer) throws Exception
+    {
+        super.setX(buffer.getDouble());
+        super.setY(buffer.getDouble());
+        super.setVelocityX(buffer.getDouble());
+        super.setVelocityY(buffer.getDouble());
+        super.setHorizontalFlip(buffer.get() != 0);
+        
+        //set the animation, this will also set the dimensions
+        setAnimation(animationKeys.get(buffer.get()));
+        
+        final Animation animation = getSpriteSheet().getSpriteSheetAnimation();
+        
+        animation.setIndex(buffer.getInt());
+        animation.setRemaining(buffer.getLong());
+        animation.setFinished(buffer.get() != 0);
+        
+        //where the entity was drawn from isn't part of the game, don't interpolate after a restore
+        resetPrevious();
+    }
+    
+    /**
+     * Save the time of the timer
+     * @param timer The timer
+     * @param buffer The buffer to write to
+     */
+    protected static void save(final Timer timer, final ByteBuffer buffer)
+    {
+        buffer.putLong(timer.getReset());
+        buffer.putLong(timer.getRemaining());
+    }
+    
+    /**
+     * Restore the time of the timer
+     * @param timer The timer
+     * @param buffer The buffer to read from
+     */
+    protected static void restore(final Timer timer, final ByteBuffer buffer)
+    {
+        timer.setReset(buffer.getLong());
+        timer.setRemaining(buffer.getLong());
+    }
+    
+    /**
+     * Add the entity to the snapshot
+     * @param snapshot The snapshot of the current update
+     */
+    public void write(final WorldSnapshot snapshot)
+    {
+        write(snapshot, getImage());
+    }
+    
+    /**
+     * Add the entity to the snapshot, the location is the center of the entity
+     * @param snapshot The snapshot of the current update
+     * @param image The image containing the animation
+     */
+    public void write(final WorldSnapshot snapshot, final Image image)
+    {
+        write(snapshot, image, getWidth() / 2, getHeight() / 2);
+    }
+    
+    /**
+     * Add the entity to the snapshot
+     * @param snapshot The snapshot of the current update
+     * @param image The image containing the animation
+     * @param offsetX The x-offset from the location to the west side
+     * @param offsetY The y-offset from the location to the north side
+     */
+    protected void write(final WorldSnapshot snapshot, final Image image, final double offsetX, final double offsetY)
+    {
+        //the location of the current animation frame
+        final Rectangle location = getSpriteSheet().getLocation();
+        
+        snapshot.add(
+            image, 
+            location.x, location.y, location.width, location.height, 
+            getPreviousX() - offsetX, getPreviousY() - offsetY, 
+            getX() - offsetX, getY() - offsetY, 
+            (int)getWidth(), (int)getHeight(), 
+            hasHorizontalFlip());
+    }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import com.gamesbykevin.bubblebobble2.character.Character;
 import com.gamesbykevin.bubblebobble2.engine.Engine;
 import com.gamesbykevin.bubblebobble2.maps.Map;
 import com.gamesbykevin.bubblebobble2.projectile.*;
+import com.gamesbykevin.bubblebobble2.shared.WorldSnapshot;
 import java.awt.AlphaComposite;
 
 import java.awt.Color;
@@ -14,6 +15,7 @@ import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.Point;
 import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
 
 public final class Hero extends Character
 {
@@ -97,6 +99,16 @@ public final class Hero extends Character
         return this.type;
     }
     
+    /**
+     * The projectiles use the original image, not the transparent image shown while invincible
+     * @return The original image
+     */
+    @Override
+    protected Image getProjectileImage()
+    {
+        return original;
+    }
+    
     public void setLives(final int lives)
     {
         this.lives = lives;
@@ -112,6 +124,22 @@ public final class Hero extends Character
         return (getLives() > 0);
     }
     
+    @Override
+    public void save(final ByteBuffer buffer)
+    {
+        super.save(buffer);
+        
+        buffer.putInt(lives);
+    }
+    
+    @Override
+    public void restore(final ByteBuffer buffer) throws Exception
+    {
+        super.restore(buffer);
+        
+        this.lives = buffer.getInt();
+    }
+    
     @Override
     public void update(final Engine engine) throws Exception
     {
@@ -165,8 +193,9 @@ public final class Hero extends Character
                 }
                 else
                 {
-                    //flag game over since no more lives
-                    engine.getManager().setResult(false);
+                    //flag game over once no hero has lives
+                    if (!engine.getManager().hasLives())
+                        engine.getManager().setResult(false);
                 }
             }
         }
@@ -286,21 +315,34 @@ public final class Hero extends Character
     }
     
     @Override
-    public void render(final Graphics graphics) throws Exception
+    public void render(final Graphics graphics, final double interpolation) throws Exception
     {
         //set image depending on invincible
         super.setImage(isInvincible() ? transparentImage : original);
         
         //draw character
-        super.render(graphics);
+        super.render(graphics, interpolation);
         
         //draw amount of lives
         if (renderLocation == null)
-            renderLocation = new Point(Map.BLOCK_SIZE, Map.BLOCK_SIZE);
+            renderLocation = new Point((type == Type.Hero1) ? Map.BLOCK_SIZE : Map.WIDTH - (Map.BLOCK_SIZE * 3), Map.BLOCK_SIZE);
         
         graphics.setColor(Color.BLACK);
         graphics.fillRect(renderLocation.x, renderLocation.y - Map.BLOCK_SIZE, Map.BLOCK_SIZE * 2, Map.BLOCK_SIZE);
         graphics.setColor(Color.WHITE);
         graphics.drawString((getLives() < 0) ? "" + 0 : getLives() + "", renderLocation.x + 1, renderLocation.y);
     }
+    
+    @Override
+    public void write(final WorldSnapshot snapshot)
+    {
+        //set image depending on invincible
+        super.setImage(isInvincible() ? transparentImage : original);
+        
+        //add character
+        super.write(snapshot);
+        
+        //add amount of lives
+        snapshot.setLives(getType().ordinal(), getLives());
+    }
 }
\ No newline at end of file
@@ -23,12 +23,84 @@ public final class Input
     public static final int KEY_JUMP  = KeyEvent.VK_A;
     public static final int KEY_FIRE  = KeyEvent.VK_S;
     
+    //the keys checked by the game, each has a pressed and a released bit in the state
+    private static final int[] KEYS = {KEY_LEFT, KEY_RIGHT, KEY_DOWN, KEY_JUMP, KEY_FIRE};
+    
+    /**
+     * The bits of the state that are set while keys are pressed
+     */
+    public static final short STATE_PRESSED = (short)((1 << KEYS.length) - 1);
+    
+    /**
+     * Get the state of the keys checked by the game
+     * @param keyboard Object containing keyboard input
+     * @return The pressed and released bits of each key
+     */
+    public static short getState(final KeyState keyboard)
+    {
+        short state = 0;
+        
+        for (int i = 0; i < KEYS.length; i++)
+        {
+            if (keyboard.hasKeyPressed(KEYS[i]))
+                state |= (1 << i);
+            if (keyboard.hasKeyReleased(KEYS[i]))
+                state |= (1 << (i + KEYS.length));
+        }
+        
+        return state;
+    }
+    
+    /**
+     * Replace the keyboard input with the state
+     * @param keyboard Object containing keyboard input
+     * @param state The pressed and released bits of each key, see getState()
+     */
+    public static void setState(final KeyState keyboard, final short state)
+    {
+        //remove any actual input
+        keyboard.reset();
+        
+        for (int i = 0; i < KEYS.length; i++)
+        {
+            if ((state & (1 << i)) != 0)
+                keyboard.addKeyPressed(KEYS[i]);
+            if ((state & (1 << (i + KEYS.length))) != 0)
+                keyboard.addKeyReleased(KEYS[i]);
+        }
+    }
+    
+    /**
+     * Remove the released flag of the keys checked by the game
+     * @param keyboard Object containing keyboard input
+     */
+    public static void removeKeysReleased(final KeyState keyboard)
+    {
+        for (int i = 0; i < KEYS.length; i++)
+        {
+            keyboard.removeKeyReleased(KEYS[i]);
+        }
+    }
+    
+    /**
+     * Remove the released flag of the keys checked by the game from the keyboard used by the menu.<br>
+     * The game reads these keys from KeyState, so nothing else would remove them.
+     * @param keyboard Object containing keyboard input
+     */
+    public static void removeKeysReleased(final Keyboard keyboard)
+    {
+        for (int i = 0; i < KEYS.length; i++)
+        {
+            keyboard.removeKeyReleased(KEYS[i]);
+        }
+    }
+    
     /**
      * Manage the character based on keyboard input
      * @param character The character we want to manage
      * @param keyboard Object containing keyboard input
      */
-    public static void update(final Character character, final Keyboard keyboard, final Resources resources)
+    public static void update(final Character character, final KeyState keyboard, final Resources resources)
     {
         //if the character is starting don't check input yet
         if (character.isStarting() || character.isDead())
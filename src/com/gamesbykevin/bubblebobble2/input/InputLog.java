@@ -0,0 +1,254 @@
+package com.gamesbykevin.bubblebobble2.input;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class will record the keyboard state each time the input is checked so a game can be replayed.<br>
+ * Together with the seed of the game and the game options the replay will be identical to the recording.
+ * @author GOD
+ */
+public final class InputLog
+{
+    //identify the file format
+    private static final int HEADER = 0x42425231;
+    
+    //the starting number of states we can store
+    private static final int DEFAULT_CAPACITY = 1024;
+    
+    //are we replaying or recording
+    private final boolean replay;
+    
+    //the seed of the game
+    private long seed;
+    
+    //the game options selected
+    private final Map<String, Integer> options = new HashMap<>();
+    
+    //the keyboard state for each time the input was checked
+    private short[] states = new short[DEFAULT_CAPACITY];
+    
+    //the number of states
+    private int count = 0;
+    
+    //the next state to replay
+    private int index = 0;
+    
+    /**
+     * Create a new log for recording
+     */
+    public InputLog()
+    {
+        this.replay = false;
+    }
+    
+    /**
+     * Create a log to replay the specified recording
+     * @param file The recording
+     * @throws Exception if the file is not a recording
+     */
+    public InputLog(final File file) throws Exception
+    {
+        this.replay = true;
+        
+        DataInputStream input = null;
+        
+        try
+        {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            
+            if (input.readInt() != HEADER)
+                throw new Exception("Not an input recording: " + file);
+            
+            this.seed = input.readLong();
+            
+            //the game options
+            final int size = input.readInt();
+            
+            for (int i = 0; i < size; i++)
+            {
+                options.put(input.readUTF(), input.readInt());
+            }
+            
+            //the states are stored as runs of the same state
+            final int runs = input.readInt();
+            
+            for (int i = 0; i < runs; i++)
+            {
+                final short state = input.readShort();
+                final int length = input.readInt();
+                
+                for (int j = 0; j < length; j++)
+                {
+                    add(state);
+                }
+            }
+        }
+        finally
+        {
+            if (input != null)
+                input.close();
+        }
+    }
+    
+    /**
+     * Write the recording
+     * @param file The file to write
+     * @throws Exception
+     */
+    public void write(final File file) throws Exception
+    {
+        DataOutputStream output = null;
+        
+        try
+        {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            
+            output.writeInt(HEADER);
+            output.writeLong(seed);
+            
+            output.writeInt(options.size());
+            
+            for (Map.Entry<String, Integer> option : options.entrySet())
+            {
+                output.writeUTF(option.getKey());
+                output.writeInt(option.getValue());
+            }
+            
+            //count the runs of the same state
+            int runs = 0;
+            
+            for (int i = 0; i < count; i++)
+            {
+                if (i == 0 || states[i] != states[i - 1])
+                    runs++;
+            }
+            
+            output.writeInt(runs);
+            
+            for (int i = 0; i < count; )
+            {
+                int length = 1;
+                
+                while (i + length < count && states[i + length] == states[i])
+                {
+                    length++;
+                }
+                
+                output.writeShort(states[i]);
+                output.writeInt(length);
+                
+                i += length;
+            }
+        }
+        finally
+        {
+            if (output != null)
+                output.close();
+        }
+    }
+    
+    /**
+     * Start a new game.<br>
+     * When recording everything previously recorded is removed, when replaying we go back to the start
+     * @param seed The seed of the game when recording, ignored when replaying
+     */
+    public void start(final long seed)
+    {
+        if (!replay)
+        {
+            this.seed = seed;
+            this.options.clear();
+            this.count = 0;
+        }
+        
+        this.index = 0;
+    }
+    
+    public boolean isReplay()
+    {
+        return this.replay;
+    }
+    
+    public long getSeed()
+    {
+        return this.seed;
+    }
+    
+    /**
+     * Have all of the states been replayed
+     * @return true if replaying and there are no more states, false otherwise
+     */
+    public boolean hasFinished()
+    {
+        return (replay && index >= count);
+    }
+    
+    /**
+     * Get the number of states
+     * @return The number of times the input was checked
+     */
+    public int getCount()
+    {
+        return this.count;
+    }
+    
+    /**
+     * Record the option selected or get the recorded option when replaying
+     * @param key Unique key of the option
+     * @param index The selection index from the menu
+     * @return The selection index to use
+     */
+    public int getOption(final String key, final int index)
+    {
+        if (replay)
+        {
+            //use the recorded option if there is one
+            final Integer recorded = options.get(key);
+            
+            return (recorded != null) ? recorded : index;
+        }
+        
+        options.put(key, index);
+        
+        return index;
+    }
+    
+    /**
+     * Record the keyboard state, or when replaying set the keyboard to the recorded state.<br>
+     * This is to be called each time before the input is checked.
+     * @param keyboard The keyboard state
+     */
+    public void update(final KeyState keyboard)
+    {
+        if (replay)
+        {
+            //no more input
+            Input.setState(keyboard, (index < count) ? states[index++] : 0);
+        }
+        else
+        {
+            add(Input.getState(keyboard));
+        }
+    }
+    
+    /**
+     * Add the state to the end of the log
+     * @param state The keyboard state
+     */
+    private void add(final short state)
+    {
+        if (count >= states.length)
+            states = Arrays.copyOf(states, states.length * 2);
+        
+        states[count++] = state;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.gamesbykevin.bubblebobble2.input;
+
+import java.awt.event.InputEvent;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock free ring buffer of input events from a single producer (the event dispatch thread)
+ * to a single consumer (the game thread).<br>
+ * Each event is stamped with the time it was added so we can measure how long it waited.
+ * @author GOD
+ */
+public final class InputQueue
+{
+    //the number of events we can hold, must be a power of 2
+    private static final int CAPACITY = 256;
+    
+    //mask to get the index in the ring
+    private static final int MASK = CAPACITY - 1;
+    
+    //the events
+    private final InputEvent[] events = new InputEvent[CAPACITY];
+    
+    //the time (nanoseconds) each event was added
+    private final long[] times = new long[CAPACITY];
+    
+    //the number of events added (producer), and the number removed (consumer)
+    private final AtomicLong tail = new AtomicLong(), head = new AtomicLong();
+    
+    //the time of the most recent event removed
+    private long time;
+    
+    //the number of events that didn't fit
+    private volatile long dropped = 0;
+    
+    public InputQueue()
+    {
+        //default constructor
+    }
+    
+    /**
+     * Add the event, called by the producer thread only
+     * @param event The input event
+     * @return true if added, false if the queue is full and the event was dropped
+     */
+    public boolean offer(final InputEvent event)
+    {
+        final long index = tail.get();
+        
+        //the consumer hasn't caught up
+        if (index - head.get() >= CAPACITY)
+        {
+            dropped++;
+            return false;
+        }
+        
+        events[(int)index & MASK] = event;
+        times[(int)index & MASK] = System.nanoTime();
+        
+        //publish the event to the consumer
+        tail.lazySet(index + 1);
+        
+        return true;
+    }
+    
+    /**
+     * Remove the next event, called by the consumer thread only
+     * @return The oldest event, or null if there are none
+     */
+    public InputEvent poll()
+    {
+        final long index = head.get();
+        
+        //no events
+        if (index >= tail.get())
+            return null;
+        
+        final InputEvent event = events[(int)index & MASK];
+        
+        //store the time and remove the reference
+        this.time = times[(int)index & MASK];
+        events[(int)index & MASK] = null;
+        
+        //hand the slot back to the producer
+        head.lazySet(index + 1);
+        
+        return event;
+    }
+    
+    /**
+     * Get the time the most recent event returned by poll() was added
+     * @return The time in nanoseconds
+     */
+    public long getTime()
+    {
+        return this.time;
+    }
+    
+    /**
+     * Get the number of events dropped because the queue was full
+     * @return The total number of dropped events
+     */
+    public long getDropped()
+    {
+        return this.dropped;
+    }
+}
\ No newline at end of file
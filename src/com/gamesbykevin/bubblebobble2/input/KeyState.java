@@ -0,0 +1,93 @@
+package com.gamesbykevin.bubblebobble2.input;
+
+/**
+ * The state of every key stored as bits, a key is either pressed, released (and not yet handled) or neither.<br>
+ * This is only used by the game thread, key events are handed over by the InputQueue.
+ * @author GOD
+ */
+public final class KeyState
+{
+    //the number of key codes we track
+    private static final int KEYS = 256;
+    
+    //the number of bits in each element
+    private static final int BITS = 64;
+    
+    //the pressed and released bits for each key code
+    private final long[] pressed = new long[KEYS / BITS], released = new long[KEYS / BITS];
+    
+    public KeyState()
+    {
+        //default constructor
+    }
+    
+    /**
+     * Flag the key pressed
+     * @param key The key code
+     */
+    public void addKeyPressed(final int key)
+    {
+        if (!isValid(key))
+            return;
+        
+        pressed[key / BITS]  |= getMask(key);
+        released[key / BITS] &= ~getMask(key);
+    }
+    
+    /**
+     * Flag the key released, it is no longer pressed
+     * @param key The key code
+     */
+    public void addKeyReleased(final int key)
+    {
+        if (!isValid(key))
+            return;
+        
+        pressed[key / BITS]  &= ~getMask(key);
+        released[key / BITS] |= getMask(key);
+    }
+    
+    /**
+     * Remove the released flag once it has been handled
+     * @param key The key code
+     */
+    public void removeKeyReleased(final int key)
+    {
+        if (!isValid(key))
+            return;
+        
+        released[key / BITS] &= ~getMask(key);
+    }
+    
+    public boolean hasKeyPressed(final int key)
+    {
+        return (isValid(key) && (pressed[key / BITS] & getMask(key)) != 0);
+    }
+    
+    public boolean hasKeyReleased(final int key)
+    {
+        return (isValid(key) && (released[key / BITS] & getMask(key)) != 0);
+    }
+    
+    /**
+     * Remove all pressed and released keys
+     */
+    public void reset()
+    {
+        for (int i = 0; i < pressed.length; i++)
+        {
+            pressed[i] = 0;
+            released[i] = 0;
+        }
+    }
+    
+    private static boolean isValid(final int key)
+    {
+        return (key >= 0 && key < KEYS);
+    }
+    
+    private static long getMask(final int key)
+    {
+        return (1L << (key % BITS));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,265 @@
+package com.gamesbykevin.bubblebobble2.main;
+
+import com.gamesbykevin.framework.resources.Disposable;
+
+import java.awt.BorderLayout;
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Container;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.ComponentListener;
+import java.awt.image.BufferStrategy;
+import java.awt.image.VolatileImage;
+
+/**
+ * Active rendering to a Canvas using a BufferStrategy for page flipping.<br>
+ * The game is rendered to an accelerated VolatileImage which is then drawn to the strategy's buffer.
+ * @author GOD
+ */
+public final class CanvasDisplay implements Disposable
+{
+    //how many buffers we want, if not available we will try with 1 less, down to a single buffer
+    private static final int BUFFERS = 3;
+    
+    //the canvas we will draw to
+    private Canvas canvas;
+    
+    //the container of the canvas
+    private Container container;
+    
+    //keeps the canvas the size of the container when the container doesn't do it
+    private ComponentListener resizer;
+    
+    //object used to flip the buffers
+    private BufferStrategy strategy;
+    
+    //no strategy could be created, so we draw straight to the canvas
+    private boolean passive = false;
+    
+    //the accelerated image where the game is rendered
+    private VolatileImage buffer;
+    
+    //the dimensions of the back buffer
+    private final int width, height;
+    
+    /**
+     * Create a canvas that fills the container
+     * @param container The container where the canvas will be added
+     * @param width Width of the back buffer
+     * @param height Height of the back buffer
+     */
+    public CanvasDisplay(final Container container, final int width, final int height)
+    {
+        this.container = container;
+        this.width = width;
+        this.height = height;
+        
+        //create the canvas, we will handle all painting ourselves
+        this.canvas = new Canvas();
+        this.canvas.setIgnoreRepaint(true);
+        this.canvas.setFocusable(true);
+        this.canvas.setBackground(Color.BLACK);
+        
+        //the canvas will fill the container, the layout of the container is kept
+        if (container.getLayout() instanceof BorderLayout)
+        {
+            container.add(canvas, BorderLayout.CENTER);
+        }
+        else
+        {
+            container.add(canvas);
+            
+            this.resizer = new ComponentAdapter()
+            {
+                @Override
+                public void componentResized(final ComponentEvent event)
+                {
+                    fill();
+                }
+            };
+            
+            container.addComponentListener(resizer);
+            fill();
+        }
+        
+        container.validate();
+    }
+    
+    /**
+     * Size the canvas to the container
+     */
+    private void fill()
+    {
+        if (canvas == null || container == null)
+            return;
+        
+        canvas.setPreferredSize(container.getSize());
+        canvas.setBounds(0, 0, container.getWidth(), container.getHeight());
+    }
+    
+    public Canvas getCanvas()
+    {
+        return this.canvas;
+    }
+    
+    /**
+     * Get the graphics object to render the game to.<br>
+     * The back buffer will be (re)created if needed.
+     * @return Graphics object for the back buffer, null if the canvas can't be drawn to yet
+     */
+    public Graphics getBufferGraphics()
+    {
+        //we can't create images until the canvas is displayable
+        if (!canvas.isDisplayable())
+            return null;
+        
+        final GraphicsConfiguration configuration = canvas.getGraphicsConfiguration();
+        
+        if (buffer == null || buffer.validate(configuration) == VolatileImage.IMAGE_INCOMPATIBLE)
+        {
+            if (buffer != null)
+                buffer.flush();
+            
+            buffer = configuration.createCompatibleVolatileImage(width, height);
+        }
+        
+        return buffer.createGraphics();
+    }
+    
+    /**
+     * Were the contents of the back buffer lost while rendering
+     * @return true if the game needs to be rendered again, false otherwise
+     */
+    public boolean isBufferLost()
+    {
+        return (buffer != null && buffer.contentsLost());
+    }
+    
+    /**
+     * Draw the back buffer to the canvas and show it
+     * @param destination Where the back buffer will be drawn on the canvas
+     * @param scaler Object used to letterbox the window when scaling by whole numbers, may be null
+     */
+    public void show(final Rectangle destination, final IntegerScaler scaler)
+    {
+        if (buffer == null || !canvas.isDisplayable())
+            return;
+        
+        if (strategy == null && !passive)
+            createStrategy();
+        
+        //no strategy could be created, draw straight to the canvas instead
+        if (strategy == null)
+        {
+            final Graphics graphics = canvas.getGraphics();
+            
+            if (graphics != null)
+            {
+                draw(graphics, destination, scaler);
+                graphics.dispose();
+            }
+            
+            return;
+        }
+        
+        do
+        {
+            do
+            {
+                final Graphics graphics = strategy.getDrawGraphics();
+                
+                draw(graphics, destination, scaler);
+                
+                graphics.dispose();
+            }
+            while (strategy.contentsRestored());
+            
+            //flip the buffers
+            strategy.show();
+        }
+        while (strategy.contentsLost());
+    }
+    
+    /**
+     * Draw the back buffer
+     * @param graphics Graphics object to draw to
+     * @param destination Where the back buffer will be drawn
+     * @param scaler Object used to letterbox the window when scaling by whole numbers, may be null
+     */
+    private void draw(final Graphics graphics, final Rectangle destination, final IntegerScaler scaler)
+    {
+        if (scaler != null)
+        {
+            //whole number scale doesn't need any filtering
+            ((Graphics2D)graphics).setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            
+            //draw the letterbox
+            scaler.renderBorders(graphics);
+        }
+        
+        //draw our rendered image at the specified location
+        graphics.drawImage(buffer, destination.x, destination.y, destination.x + destination.width, destination.y + destination.height, 0, 0, width, height, null);
+    }
+    
+    /**
+     * Create the buffer strategy, if the preferred number of buffers fails try with less.<br>
+     * If even a single buffer fails there is no strategy and the canvas is drawn to directly.
+     */
+    private void createStrategy()
+    {
+        for (int buffers = BUFFERS; buffers >= 1; buffers--)
+        {
+            try
+            {
+                canvas.createBufferStrategy(buffers);
+                break;
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+        }
+        
+        strategy = canvas.getBufferStrategy();
+        passive = (strategy == null);
+        
+        //now that the canvas is displayed it should have the focus
+        canvas.requestFocus();
+    }
+    
+    @Override
+    public void dispose()
+    {
+        if (strategy != null)
+        {
+            strategy.dispose();
+            strategy = null;
+        }
+        
+        if (buffer != null)
+        {
+            buffer.flush();
+            buffer = null;
+        }
+        
+        if (container != null)
+        {
+            if (resizer != null)
+            {
+                container.removeComponentListener(resizer);
+                resizer = null;
+            }
+            
+            container.remove(canvas);
+            container = null;
+        }
+        
+        canvas = null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,139 @@
+package com.gamesbykevin.bubblebobble2.main;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class will wait until a deadline by parking the thread and then spinning for the remaining time.<br>
+ * The time spent spinning is adjusted based on how much the thread oversleeps when parked.
+ * @author GOD
+ */
+public final class FramePacer
+{
+    //the range of time (nanoseconds) we will spin before a deadline
+    private static final long MIN_SPIN = 100000L;
+    private static final long MAX_SPIN = 2000000L;
+    
+    //the spin time to start with until oversleep has been measured
+    private static final long DEFAULT_SPIN = 1000000L;
+    
+    //how much each oversleep measurement affects the average
+    private static final double OVERSLEEP_WEIGHT = .1;
+    
+    //the spin time is this many times the average oversleep
+    private static final double SPIN_RATIO = 2.0;
+    
+    //the time to spin before a deadline
+    private long spin = DEFAULT_SPIN;
+    
+    //the average amount of time the thread sleeps longer than requested
+    private double oversleep = 0;
+    
+    //track how late we are waking up
+    private long jitterTotal = 0, jitterMax = 0;
+    
+    //number of times we have waited
+    private int count = 0;
+    
+    public FramePacer()
+    {
+        //default constructor
+    }
+    
+    /**
+     * Wait until the specified time has been reached
+     * @param deadline The time (System.nanoTime()) we want to wait for
+     */
+    public void waitUntil(final long deadline)
+    {
+        long now = System.nanoTime();
+        
+        //park the thread while we are far enough from the deadline
+        while (deadline - now > spin)
+        {
+            //the time we want to park for
+            final long request = deadline - now - spin;
+            
+            LockSupport.parkNanos(request);
+            
+            final long previous = now;
+            
+            now = System.nanoTime();
+            
+            //measure how much longer we were parked than requested
+            adjust((now - previous) - request);
+        }
+        
+        //spin for the remaining time
+        while (deadline - now > 0)
+        {
+            Thread.yield();
+            
+            now = System.nanoTime();
+        }
+        
+        //track how late we are
+        final long jitter = now - deadline;
+        
+        jitterTotal += jitter;
+        
+        if (jitter > jitterMax)
+            jitterMax = jitter;
+        
+        count++;
+    }
+    
+    /**
+     * Adjust the spin time based on the measured oversleep
+     * @param measured The time (nanoseconds) the thread slept longer than requested
+     */
+    private void adjust(final long measured)
+    {
+        //update the running average
+        oversleep += ((measured < 0 ? 0 : measured) - oversleep) * OVERSLEEP_WEIGHT;
+        
+        //spin long enough to cover the typical oversleep
+        spin = (long)(oversleep * SPIN_RATIO);
+        
+        if (spin < MIN_SPIN)
+            spin = MIN_SPIN;
+        if (spin > MAX_SPIN)
+            spin = MAX_SPIN;
+    }
+    
+    /**
+     * Get the current spin time
+     * @return The time (nanoseconds) we spin before each deadline
+     */
+    public long getSpin()
+    {
+        return this.spin;
+    }
+    
+    /**
+     * Get the average time we were late for a deadline since the last reset
+     * @return The average jitter (nanoseconds)
+     */
+    public long getJitterAverage()
+    {
+        return (count > 0) ? jitterTotal / count : 0;
+    }
+    
+    /**
+     * Get the most we were late for a deadline since the last reset
+     * @return The max jitter (nanoseconds)
+     */
+    public long getJitterMax()
+    {
+        return this.jitterMax;
+    }
+    
+    /**
+     * Reset the jitter measurements
+     */
+    public void reset()
+    {
+        jitterTotal = 0;
+        jitterMax = 0;
+        count = 0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,214 @@
+package com.gamesbykevin.bubblebobble2.main;
+
+import com.gamesbykevin.bubblebobble2.shared.Histogram;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+
+/**
+ * This class will track the time spent on each part of the game loop.<br>
+ * Durations are recorded into histograms, one for the window in progress,
+ * one for the last completed window and one for the total.
+ * Durations may be recorded by both the game and render threads,
+ * and written by a shutdown hook while the loop is still recording.
+ * @author GOD
+ */
+public final class FrameStats
+{
+    /**
+     * The different durations we track
+     */
+    public enum Key
+    {
+        //time to update the engine
+        Update,
+        
+        //time to render the game to the buffer
+        Render,
+        
+        //time to draw the buffer to the screen
+        Blit,
+        
+        //time between each frame displayed
+        Frame,
+        
+        //time from an input event until the update that handles it
+        Input
+    }
+    
+    //how long (nanoseconds) each window is
+    private static final long WINDOW = 1000000000L;
+    
+    //each bucket is 50 microseconds, up to 100 milliseconds
+    private static final long RESOLUTION = 50000L;
+    private static final int SIZE = 2000;
+    
+    //the histograms for the window in progress
+    private final Histogram[] current;
+    
+    //the histograms for the last completed window
+    private final Histogram[] previous;
+    
+    //the histograms since we started
+    private final Histogram[] total;
+    
+    //when the current window started
+    private long start;
+    
+    //when the previous frame was displayed
+    private long frame = 0;
+    
+    public FrameStats()
+    {
+        final int size = Key.values().length;
+        
+        this.current  = new Histogram[size];
+        this.previous = new Histogram[size];
+        this.total    = new Histogram[size];
+        
+        for (int i = 0; i < size; i++)
+        {
+            this.current[i]  = new Histogram(RESOLUTION, SIZE);
+            this.previous[i] = new Histogram(RESOLUTION, SIZE);
+            this.total[i]    = new Histogram(RESOLUTION, SIZE);
+        }
+        
+        this.start = System.nanoTime();
+    }
+    
+    /**
+     * Record a duration
+     * @param key The duration we are tracking
+     * @param duration The duration (nanoseconds)
+     */
+    public synchronized void record(final Key key, final long duration)
+    {
+        current[key.ordinal()].record(duration);
+    }
+    
+    /**
+     * Record that a frame has been displayed, the time since the previous frame will be recorded
+     * @param now The current time (nanoseconds)
+     */
+    public synchronized void recordFrame(final long now)
+    {
+        if (frame != 0)
+            record(Key.Frame, now - frame);
+        
+        frame = now;
+    }
+    
+    /**
+     * Complete the current window if enough time has passed
+     * @param now The current time (nanoseconds)
+     * @return true if a window was completed, false otherwise
+     */
+    public synchronized boolean update(final long now)
+    {
+        if (now - start < WINDOW)
+            return false;
+        
+        for (int i = 0; i < current.length; i++)
+        {
+            //the current window is now the previous
+            previous[i].set(current[i]);
+            
+            //add to the total
+            total[i].add(current[i]);
+            
+            //start a new window
+            current[i].reset();
+        }
+        
+        start = now;
+        
+        return true;
+    }
+    
+    /**
+     * Get the duration at the percentile for the last completed window
+     * @param key The duration we are tracking
+     * @param percentile The percentile (0 - 100)
+     * @return The duration (nanoseconds)
+     */
+    public synchronized long getPercentile(final Key key, final double percentile)
+    {
+        return previous[key.ordinal()].getPercentile(percentile);
+    }
+    
+    /**
+     * Get the largest duration for the last completed window
+     * @param key The duration we are tracking
+     * @return The duration (nanoseconds)
+     */
+    public synchronized long getMax(final Key key)
+    {
+        return previous[key.ordinal()].getMax();
+    }
+    
+    /**
+     * Get the number of durations in the last completed window
+     * @param key The duration we are tracking
+     * @return The number of durations
+     */
+    public synchronized int getCount(final Key key)
+    {
+        return previous[key.ordinal()].getCount();
+    }
+    
+    /**
+     * Get a description of the last completed window
+     * @param key The duration we are tracking
+     * @return Text containing the percentiles in milliseconds
+     */
+    public synchronized String toString(final Key key)
+    {
+        return key + " p50 = " + toMilliseconds(getPercentile(key, 50)) + ", p95 = " + toMilliseconds(getPercentile(key, 95)) +
+               ", p99 = " + toMilliseconds(getPercentile(key, 99)) + ", max = " + toMilliseconds(getMax(key));
+    }
+    
+    /**
+     * Write the totals of every duration tracked to a csv file
+     * @param file The file to write
+     * @throws Exception
+     */
+    public synchronized void write(final File file) throws Exception
+    {
+        PrintWriter writer = null;
+        
+        try
+        {
+            writer = new PrintWriter(new FileWriter(file));
+            
+            //the header
+            writer.println("key,count,p50,p95,p99,max");
+            
+            for (Key key : Key.values())
+            {
+                final Histogram histogram = total[key.ordinal()];
+                
+                writer.println(key + "," + histogram.getCount() + "," +
+                    toMilliseconds(histogram.getPercentile(50)) + "," +
+                    toMilliseconds(histogram.getPercentile(95)) + "," +
+                    toMilliseconds(histogram.getPercentile(99)) + "," +
+                    toMilliseconds(histogram.getMax()));
+            }
+        }
+        finally
+        {
+            if (writer != null)
+                writer.close();
+        }
+    }
+    
+    /**
+     * Convert nanoseconds to milliseconds
+     * @param nanoSeconds The duration
+     * @return The duration in milliseconds
+     */
+    private static double toMilliseconds(final long nanoSeconds)
+    {
+        return (nanoSeconds / 1000000.0);
+    }
+}
\ No newline at end of file
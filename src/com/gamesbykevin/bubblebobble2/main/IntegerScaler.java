@@ -0,0 +1,163 @@
+package com.gamesbykevin.bubblebobble2.main;
+
+import com.gamesbykevin.framework.resources.Disposable;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * This class will scale the game by the largest whole number that fits the window.<br>
+ * The remaining area of the window is letterboxed.
+ * @author GOD
+ */
+public final class IntegerScaler implements Disposable
+{
+    //the size of the image being scaled
+    private final int width, height;
+    
+    //the current scale
+    private int scale = 0;
+    
+    //the window we are scaling to
+    private Rectangle window;
+    
+    //where the scaled image will be drawn in the window
+    private Rectangle destination;
+    
+    //the cached image that contains the scaled image
+    private BufferedImage image;
+    
+    //graphics object to write the scaled image
+    private Graphics2D imageGraphics;
+    
+    /**
+     * Create a new scaler
+     * @param width Width of the image to scale
+     * @param height Height of the image to scale
+     */
+    public IntegerScaler(final int width, final int height)
+    {
+        this.width = width;
+        this.height = height;
+    }
+    
+    /**
+     * Set the window we are scaling to, the scale is only calculated when the window size changes
+     * @param window The area where the image will be displayed
+     * @param configuration The configuration of the display so we can create a compatible image, may be null
+     * @return The area in the window where the scaled image will be drawn
+     */
+    public Rectangle setWindow(final Rectangle window, final GraphicsConfiguration configuration)
+    {
+        //nothing changed
+        if (this.window != null && this.window.equals(window))
+            return destination;
+        
+        this.window = new Rectangle(window);
+        
+        //pick the largest whole number scale that fits, at least 1
+        final int tmp = Math.max(1, Math.min(window.width / width, window.height / height));
+        
+        //center the scaled image in the window
+        final int w = width * tmp;
+        final int h = height * tmp;
+        this.destination = new Rectangle(window.x + ((window.width - w) / 2), window.y + ((window.height - h) / 2), w, h);
+        
+        //only create a new image if the scale changed
+        if (tmp != scale || image == null)
+        {
+            this.scale = tmp;
+            
+            //remove the previous image
+            flush();
+            
+            if (configuration != null)
+            {
+                image = configuration.createCompatibleImage(w, h);
+            }
+            else
+            {
+                image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            }
+            
+            imageGraphics = image.createGraphics();
+            imageGraphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        }
+        
+        return destination;
+    }
+    
+    /**
+     * Get where the scaled image will be drawn
+     * @return The area in the window
+     */
+    public Rectangle getDestination()
+    {
+        return this.destination;
+    }
+    
+    /**
+     * Scale the image into our cached image
+     * @param source The image to scale
+     * @return The scaled image which can be drawn at the destination without further scaling
+     */
+    public Image scale(final Image source)
+    {
+        imageGraphics.drawImage(source, 0, 0, image.getWidth(), image.getHeight(), 0, 0, width, height, null);
+        
+        return image;
+    }
+    
+    /**
+     * Draw the letterbox around the destination
+     * @param graphics Graphics object to write to
+     */
+    public void renderBorders(final Graphics graphics)
+    {
+        if (window == null || destination == null)
+            return;
+        
+        graphics.setColor(Color.BLACK);
+        
+        //north and south
+        graphics.fillRect(window.x, window.y, window.width, destination.y - window.y);
+        graphics.fillRect(window.x, destination.y + destination.height, window.width, (window.y + window.height) - (destination.y + destination.height));
+        
+        //west and east
+        graphics.fillRect(window.x, destination.y, destination.x - window.x, destination.height);
+        graphics.fillRect(destination.x + destination.width, destination.y, (window.x + window.width) - (destination.x + destination.width), destination.height);
+    }
+    
+    /**
+     * Remove the cached image
+     */
+    private void flush()
+    {
+        if (imageGraphics != null)
+        {
+            imageGraphics.dispose();
+            imageGraphics = null;
+        }
+        
+        if (image != null)
+        {
+            image.flush();
+            image = null;
+        }
+    }
+    
+    @Override
+    public void dispose()
+    {
+        flush();
+        
+        window = null;
+        destination = null;
+    }
+}
\ No newline at end of file
@@ -1,12 +1,18 @@
 package com.gamesbykevin.bubblebobble2.main;
 
 import java.awt.*;
+import java.io.File;
 import javax.swing.*;
 
 import com.gamesbykevin.framework.resources.Disposable;
 
+import com.gamesbykevin.bubblebobble2.audio.AudioQueue;
 import com.gamesbykevin.bubblebobble2.engine.Engine;
+import com.gamesbykevin.bubblebobble2.input.InputLog;
+import com.gamesbykevin.bubblebobble2.resources.Resources;
 import com.gamesbykevin.bubblebobble2.shared.Shared;
+import com.gamesbykevin.bubblebobble2.shared.TripleBuffer;
+import com.gamesbykevin.bubblebobble2.shared.WorldSnapshot;
 
 public final class Main extends Thread implements Disposable
 {
@@ -34,20 +40,56 @@ public final class Main extends Thread implements Disposable
     //need double for accuracy
     private double nanoSecondsPerUpdate;
     
+    //the minimum time between each render when interpolating
+    private double nanoSecondsPerRender;
+    
     //reference to our applet
     private JApplet applet;
     
     //reference to our panel
     private JPanel panel;
     
+    //class in root directory used to locate resources when there is no container (headless)
+    private Class<?> source;
+    
     //cache this graphics object so we aren't constantly creating it
     private Graphics graphics;
     
     //count how many updates
     private int updates = 0;
     
-    //time used to track updates per second
-    private long time = System.nanoTime();
+    //object used to wait between each loop
+    private FramePacer pacer;
+    
+    //canvas used for active rendering (if enabled)
+    private CanvasDisplay display;
+    
+    //object used to scale by whole numbers (if enabled)
+    private IntegerScaler scaler;
+    
+    //object used to track the time spent on each part of the loop
+    private final FrameStats stats;
+    
+    //the most updates we will perform in a single loop
+    private int maxCatchUp = Shared.DEFAULT_MAX_CATCH_UP;
+    
+    //the number of updates dropped and renders skipped because we fell behind
+    private long dropped = 0, skipped = 0;
+    
+    //thread that renders the snapshots (if enabled)
+    private RenderThread renderer;
+    
+    //snapshots handed from the game thread to the render thread
+    private TripleBuffer<WorldSnapshot> snapshots;
+    
+    //the snapshot being rendered, null if the engine is rendered
+    private WorldSnapshot snapshot;
+    
+    //font used to draw the snapshot
+    private Font font;
+    
+    //lock for the window dimensions which can be changed by the game and render threads
+    private final Object windowLock = new Object();
     
     public Main(final int ups, final JApplet applet)
     {
@@ -63,6 +105,18 @@ public final class Main extends Thread implements Disposable
         this.panel = panel;
     }
     
+    /**
+     * Create Main without a container, the game can only be updated and nothing will be rendered
+     * @param ups Engine updates per second
+     * @param source Class in root directory of project so we know how to access resources
+     */
+    public Main(final int ups, final Class<?> source)
+    {
+        this(ups);
+        
+        this.source = source;
+    }
+    
     /**
      * Main class that runs the game engine
      * 
@@ -76,6 +130,39 @@ public final class Main extends Thread implements Disposable
 
         //duration of each update in nanoseconds
         this.nanoSecondsPerUpdate = NANO_SECONDS_PER_SECOND / ups;
+        
+        //create our object to wait between updates
+        this.pacer = new FramePacer();
+        
+        //create our object to track the time spent on each part of the loop
+        this.stats = new FrameStats();
+        
+        //don't render more often than the display can show
+        this.nanoSecondsPerRender = NANO_SECONDS_PER_SECOND / getRefreshRate();
+    }
+    
+    /**
+     * Get the refresh rate of the display
+     * @return The refresh rate in hz, if unknown Shared.DEFAULT_FPS is returned
+     */
+    private static int getRefreshRate()
+    {
+        try
+        {
+            if (!GraphicsEnvironment.isHeadless())
+            {
+                final DisplayMode mode = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode();
+                
+                if (mode.getRefreshRate() != DisplayMode.REFRESH_RATE_UNKNOWN)
+                    return mode.getRefreshRate();
+            }
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+        
+        return Shared.DEFAULT_FPS;
     }
     
     /**
@@ -84,6 +171,12 @@ public final class Main extends Thread implements Disposable
     @Override
     public void dispose()
     {
+        if (renderer != null)
+        {
+            renderer.finish();
+            renderer = null;
+        }
+        
         if (bufferedImage != null)
         {
             bufferedImage.flush();
@@ -102,6 +195,18 @@ public final class Main extends Thread implements Disposable
             graphics = null;
         }
         
+        if (display != null)
+        {
+            display.dispose();
+            display = null;
+        }
+        
+        if (scaler != null)
+        {
+            scaler.dispose();
+            scaler = null;
+        }
+        
         if (engine != null)
         {
             engine.dispose();
@@ -123,6 +228,11 @@ public final class Main extends Thread implements Disposable
         originalSizeWindow = null;
         fullSizeWindow = null;
         currentWindow = null;
+        source = null;
+        pacer = null;
+        snapshots = null;
+        snapshot = null;
+        font = null;
     }
     
     /**
@@ -130,7 +240,30 @@ public final class Main extends Thread implements Disposable
      */
     public void create() throws Exception
     {
-        engine = new Engine(this);
+        create(System.nanoTime());
+    }
+    
+    /**
+     * Create our main game engine and apply input listeners
+     * @param seed The seed for the engine's Random object
+     */
+    public void create(final long seed) throws Exception
+    {
+        create(seed, null);
+    }
+    
+    /**
+     * Create our main game engine and apply input listeners
+     * @param seed The seed for the engine's Random object
+     * @param resources Resources already loaded and shared with other engines, null if the engine is to load its own
+     */
+    public void create(final long seed, final Resources resources) throws Exception
+    {
+        engine = new Engine(this, seed, resources);
+        
+        //there is nothing to listen to when headless
+        if (isHeadless())
+            return;
         
         //now that engine is created apply listeners so we can detect key/mouse input
         if (applet != null)
@@ -145,6 +278,17 @@ public final class Main extends Thread implements Disposable
             panel.addMouseMotionListener(engine);
             panel.addMouseListener(engine);
         }
+        
+        if (Shared.ACTIVE_RENDERING)
+        {
+            //the canvas will fill the container
+            display = new CanvasDisplay((applet != null) ? applet.getContentPane() : panel, originalSizeWindow.width, originalSizeWindow.height);
+            
+            //the canvas will receive the input once it has focus
+            display.getCanvas().addKeyListener(engine);
+            display.getCanvas().addMouseMotionListener(engine);
+            display.getCanvas().addMouseListener(engine);
+        }
     }
     
     @Override
@@ -156,12 +300,21 @@ public final class Main extends Thread implements Disposable
         //previous time
         long previous = System.nanoTime();
         
-        //set the current time
-        time = previous;
+        //the time of the previous render when interpolating
+        long rendered = previous;
         
         //variable to keep fps constant
         double delta = 0;
         
+        //render on a separate thread
+        if (Shared.RENDER_THREAD && !isHeadless())
+        {
+            snapshots = new TripleBuffer<>(new WorldSnapshot(), new WorldSnapshot(), new WorldSnapshot());
+            
+            renderer = new RenderThread(this, (long)nanoSecondsPerRender);
+            renderer.start();
+        }
+        
         while (active)
         {
             try
@@ -175,16 +328,43 @@ public final class Main extends Thread implements Disposable
                 //set the current time as the last run
                 previous = now;
                 
+                //if we fell too far behind (stall) drop the updates we won't catch up on
+                if (delta >= maxCatchUp + 1)
+                {
+                    final long drop = (long)delta - maxCatchUp;
+                    
+                    dropped += drop;
+                    delta -= drop;
+                }
+                
                 while(delta >= 1)
                 {
                     //update game
-                    engine.update(this);
+                    update();
 
-                    //render image
-                    renderImage();
-                    
-                    //draw image
-                    drawScreen();
+                    //the render thread will draw the most recent snapshot
+                    if (renderer != null)
+                    {
+                        //only publish the last update when catching up
+                        if (delta < 2)
+                            publish();
+                    }
+                    else if (!Shared.INTERPOLATE)
+                    {
+                        //only render the last update when catching up
+                        if (delta < 2)
+                        {
+                            //draw entities at their current location
+                            engine.setInterpolation(1);
+
+                            //render and draw image
+                            render();
+                        }
+                        else
+                        {
+                            skipped++;
+                        }
+                    }
                     
                     //add to our counter
                     updates++;
@@ -196,7 +376,28 @@ public final class Main extends Thread implements Disposable
                     checkCount();
                 }
                 
-                Thread.sleep(0, 10);
+                //render once per loop, no faster than the display refresh rate
+                if (renderer == null && Shared.INTERPOLATE && now - rendered >= nanoSecondsPerRender)
+                {
+                    //the remaining delta is how far we are towards the next update
+                    engine.setInterpolation(delta);
+                    
+                    //render and draw image
+                    render();
+                    
+                    //track the time of this render
+                    rendered = now;
+                }
+                
+                //the time of the next update
+                long deadline = now + (long)((1 - delta) * nanoSecondsPerUpdate);
+                
+                //if interpolating we may need to render before the next update
+                if (renderer == null && Shared.INTERPOLATE && rendered + (long)nanoSecondsPerRender < deadline)
+                    deadline = rendered + (long)nanoSecondsPerRender;
+                
+                //wait until it is time to update or render
+                pacer.waitUntil(deadline);
             }
             catch(Exception e)
             {
@@ -209,22 +410,219 @@ public final class Main extends Thread implements Disposable
         }
     }
     
+    /**
+     * Update the engine a single time without rendering, also used when headless
+     * @throws Exception 
+     */
+    public void update() throws Exception
+    {
+        final long start = System.nanoTime();
+        
+        //the render thread locks the engine when it has to render it
+        synchronized (engine)
+        {
+            engine.update(this);
+        }
+        
+        //track the time spent updating
+        stats.record(FrameStats.Key.Update, System.nanoTime() - start);
+    }
+    
+    /**
+     * Render the game and draw it to the screen
+     * @throws Exception 
+     */
+    private void render() throws Exception
+    {
+        final long start = System.nanoTime();
+        
+        //render image
+        renderImage();
+        
+        final long rendered = System.nanoTime();
+        
+        //draw image
+        drawScreen();
+        
+        final long now = System.nanoTime();
+        
+        //track the time spent on each
+        stats.record(FrameStats.Key.Render, rendered - start);
+        stats.record(FrameStats.Key.Blit, now - rendered);
+        stats.recordFrame(now);
+    }
+    
+    /**
+     * Add the game to the next snapshot and hand it to the render thread
+     */
+    private void publish()
+    {
+        final WorldSnapshot back = snapshots.getBack();
+        
+        back.reset(System.nanoTime());
+        
+        //if the engine can't be added (menu, loading) the render thread will render the engine
+        synchronized (engine)
+        {
+            back.setValid(engine.write(back));
+        }
+        
+        snapshots.publish();
+    }
+    
+    /**
+     * Render the most recent snapshot and draw it to the screen, called by the render thread
+     * @throws Exception
+     */
+    protected void renderSnapshot() throws Exception
+    {
+        //get the most recent snapshot
+        snapshots.update();
+        
+        snapshot = snapshots.getFront();
+        
+        render();
+    }
+    
+    /**
+     * Set the most updates we will perform in a single loop when catching up
+     * @param maxCatchUp The max number of updates, at least 1
+     */
+    public void setMaxCatchUp(final int maxCatchUp)
+    {
+        this.maxCatchUp = Math.max(1, maxCatchUp);
+    }
+    
+    /**
+     * Get the number of updates dropped because we fell too far behind
+     * @return The total number of dropped updates
+     */
+    public long getDroppedUpdates()
+    {
+        return this.dropped;
+    }
+    
+    /**
+     * Get the number of updates that were not rendered because we were catching up
+     * @return The total number of skipped renders
+     */
+    public long getSkippedFrames()
+    {
+        return this.skipped;
+    }
+    
+    /**
+     * Get the object that tracks the time spent on each part of the loop
+     * @return FrameStats
+     */
+    public FrameStats getStats()
+    {
+        return this.stats;
+    }
+    
+    /**
+     * Write the frame stats to a csv file when the application exits.<br>
+     * The loop may still be recording when the hook runs, FrameStats is synchronized so the histograms are read in one piece.
+     * @param file The file to write
+     */
+    public void setStatsFile(final File file)
+    {
+        final FrameStats stats = this.stats;
+        
+        Runtime.getRuntime().addShutdownHook(new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    stats.write(file);
+                }
+                catch (Exception e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+    
+    /**
+     * Record the input of the next game and write the recording to a file when the application exits
+     * @param file The file to write
+     */
+    public void setRecordFile(final File file)
+    {
+        final InputLog inputLog = new InputLog();
+        
+        engine.setInputLog(inputLog);
+        
+        Runtime.getRuntime().addShutdownHook(new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    inputLog.write(file);
+                }
+                catch (Exception e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+    
     private void checkCount()
     {
-        //if we are debugging and 1 second passed
-        if (Shared.DEBUG)
+        //complete the stats window if 1 second passed
+        if (stats.update(System.nanoTime()))
         {
-            if (System.nanoTime() - time >= NANO_SECONDS_PER_SECOND)
+            //if we are debugging display the results
+            if (Shared.DEBUG)
             {
-                //add 1 second to timer
-                time += NANO_SECONDS_PER_SECOND;
-
                 //display updates per second
                 System.out.println("UPS = " + updates);
-
-                //reset update counter
-                updates = 0;
+                
+                //display the time spent on each part of the loop
+                for (FrameStats.Key key : FrameStats.Key.values())
+                {
+                    System.out.println(stats.toString(key));
+                }
+                
+                //display how many updates were dropped and renders skipped
+                System.out.println("Dropped = " + dropped + ", skipped = " + skipped);
+                
+                //display how many input events didn't fit in the queue
+                System.out.println("Input dropped = " + engine.getInputQueue().getDropped());
+                
+                //display how late we are waking up (microseconds)
+                System.out.println("Jitter avg = " + (pacer.getJitterAverage() / 1000) + ", max = " + (pacer.getJitterMax() / 1000) + ", spin = " + (pacer.getSpin() / 1000));
+                
+                //display how late the render thread is waking up (microseconds)
+                if (renderer != null)
+                {
+                    final FramePacer renderPacer = renderer.getPacer();
+                    System.out.println("Render jitter avg = " + (renderPacer.getJitterAverage() / 1000) + ", max = " + (renderPacer.getJitterMax() / 1000));
+                }
+                
+                //display how long audio requests wait for the mixer (microseconds)
+                final AudioQueue audioQueue = (engine.getResources() != null) ? engine.getResources().getAudioQueue() : null;
+                
+                if (audioQueue != null)
+                {
+                    audioQueue.updateLatency();
+                    
+                    System.out.println("Audio latency p50 = " + (audioQueue.getLatency(50) / 1000) + ", p99 = " + (audioQueue.getLatency(99) / 1000) + ", max = " + (audioQueue.getLatencyMax() / 1000) + 
+                        ", depth = " + audioQueue.getDepth() + ", coalesced = " + audioQueue.getCoalesced() + ", dropped = " + audioQueue.getDropped());
+                }
             }
+            
+            //reset update counter
+            updates = 0;
+            
+            //reset jitter measurements
+            pacer.reset();
         }
     }
     
@@ -238,6 +636,29 @@ public final class Main extends Thread implements Disposable
         return panel;
     }
     
+    public Engine getEngine()
+    {
+        return engine;
+    }
+    
+    /**
+     * Get the object used to wait between each loop, it also tracks the pacing jitter
+     * @return FramePacer
+     */
+    public FramePacer getPacer()
+    {
+        return pacer;
+    }
+    
+    /**
+     * Is there no container to render to
+     * @return true if there is no applet or panel, false otherwise
+     */
+    public boolean isHeadless()
+    {
+        return (applet == null && panel == null);
+    }
+    
     public Class<?> getContainerClass()
     {
         if (applet != null)
@@ -246,7 +667,7 @@ public final class Main extends Thread implements Disposable
         if (panel != null)
             return panel.getClass();
         
-        return null;
+        return source;
     }
     
     /**
@@ -278,20 +699,55 @@ public final class Main extends Thread implements Disposable
      */
     public void setFullScreen()
     {
-        if (applet != null)
-        {
-            fullSizeWindow = new Rectangle(0, 0, applet.getWidth(), applet.getHeight());
-        }
-        else
+        synchronized (windowLock)
         {
-            fullSizeWindow = new Rectangle(0, 0, panel.getWidth(), panel.getHeight());
+            if (applet != null)
+            {
+                fullSizeWindow = new Rectangle(0, 0, applet.getWidth(), applet.getHeight());
+            }
+            else
+            {
+                fullSizeWindow = new Rectangle(0, 0, panel.getWidth(), panel.getHeight());
+            }
+            
+            if (Shared.INTEGER_SCALING)
+            {
+                if (scaler == null)
+                    scaler = new IntegerScaler(originalSizeWindow.width, originalSizeWindow.height);
+                
+                //the current window will be the largest whole number scale that fits
+                currentWindow = new Rectangle(scaler.setWindow(fullSizeWindow, getContainer().getGraphicsConfiguration()));
+            }
+            else
+            {
+                //set the current window size
+                currentWindow = new Rectangle(fullSizeWindow);
+            }
+            
+            //since full screen switched on/off create a new graphics object
+            createGraphicsObject();
         }
+    }
+    
+    /**
+     * Get the container the game is displayed in
+     * @return The applet or panel
+     */
+    private Container getContainer()
+    {
+        if (applet != null)
+            return applet;
         
-        //set the current window size
-        currentWindow = new Rectangle(fullSizeWindow);
-        
-        //since full screen switched on/off create a new graphics object
-        createGraphicsObject();
+        return panel;
+    }
+    
+    /**
+     * Has the size of the container changed since the window was set
+     * @return true if the container is a different size than the window, false otherwise
+     */
+    private boolean hasWindowChanged()
+    {
+        return (getContainer().getWidth() != fullSizeWindow.width || getContainer().getHeight() != fullSizeWindow.height);
     }
     
     /**
@@ -311,16 +767,29 @@ public final class Main extends Thread implements Disposable
      */
     private void renderImage() throws Exception
     {
-        if (bufferedImage != null)
+        if (display != null)
+        {
+            //render to the accelerated back buffer, again if the contents were lost
+            do
+            {
+                final Graphics bufferGraphics = display.getBufferGraphics();
+                
+                //the canvas isn't displayed yet
+                if (bufferGraphics == null)
+                    return;
+                
+                renderImage(bufferGraphics);
+                
+                bufferGraphics.dispose();
+            }
+            while (display.isBufferLost());
+        }
+        else if (bufferedImage != null)
         {
             if (bufferedImageGraphics == null)
                 bufferedImageGraphics = bufferedImage.getGraphics();
             
-            //background by itself will be a black rectangle
-            bufferedImageGraphics.setColor(Color.BLACK);
-            bufferedImageGraphics.fillRect(0, 0, Shared.ORIGINAL_WIDTH, Shared.ORIGINAL_HEIGHT);
-
-            engine.render(bufferedImageGraphics);
+            renderImage(bufferedImageGraphics);
         }
         else
         {
@@ -329,6 +798,36 @@ public final class Main extends Thread implements Disposable
         }
     }
     
+    /**
+     * Write all game/menu elements to the Graphics object
+     * @param graphics Graphics object to write to
+     * @throws Exception 
+     */
+    private void renderImage(final Graphics graphics) throws Exception
+    {
+        //background by itself will be a black rectangle
+        graphics.setColor(Color.BLACK);
+        graphics.fillRect(0, 0, Shared.ORIGINAL_WIDTH, Shared.ORIGINAL_HEIGHT);
+
+        if (snapshot != null && snapshot.isValid())
+        {
+            //get default font
+            if (font == null)
+                font = graphics.getFont().deriveFont(10f);
+            
+            //draw the snapshot between the previous and current update
+            snapshot.render(graphics, font, snapshot.getInterpolation(System.nanoTime(), nanoSecondsPerUpdate));
+        }
+        else
+        {
+            //the game thread can't update while the engine is rendered
+            synchronized (engine)
+            {
+                engine.render(graphics);
+            }
+        }
+    }
+    
     /**
      * Does the applet have focus, if this is a JPanel it will always return true
      * @return boolean
@@ -337,6 +836,10 @@ public final class Main extends Thread implements Disposable
     {
         if (applet != null)
         {
+            //the canvas will have the focus when active rendering
+            if (display != null && display.getCanvas().hasFocus())
+                return true;
+            
             return applet.hasFocus();
         }
         else
@@ -363,38 +866,59 @@ public final class Main extends Thread implements Disposable
      */
     private void drawScreen()
     {
-        //if no image has been rendered yet return
-        if (bufferedImage == null)
-            return;
-        
-        //cache graphics object to save resources
-        if (graphics == null)
-            createGraphicsObject();
-        
-        //make sure current window dimensions are set
-        if (currentWindow == null)
-            setFullScreen();
-        
-        try
+        //the window can be changed by the game thread
+        synchronized (windowLock)
         {
-            //the destination will be the size of the window
-            int dx1 = currentWindow.x;
-            int dy1 = currentWindow.y;
-            int dx2 = currentWindow.x + currentWindow.width;
-            int dy2 = currentWindow.y + currentWindow.height;
-
-            //the source will be the entire image
-            int sx1 = 0;
-            int sy1 = 0;
-            int sx2 = bufferedImage.getWidth(null);
-            int sy2 = bufferedImage.getHeight(null);
+            //make sure current window dimensions are set, and recalculate if the window was resized
+            if (currentWindow == null || hasWindowChanged())
+                setFullScreen();
             
-            //draw our rendered image at the specified location
-            graphics.drawImage(bufferedImage, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, null);
-        }
-        catch(Exception e)
-        {
-            e.printStackTrace();
+            if (display != null)
+            {
+                //flip the rendered image to the canvas
+                display.show(currentWindow, Shared.INTEGER_SCALING ? scaler : null);
+                return;
+            }
+            
+            //if no image has been rendered yet return
+            if (bufferedImage == null)
+                return;
+            
+            //cache graphics object to save resources
+            if (graphics == null)
+                createGraphicsObject();
+            
+            try
+            {
+                if (Shared.INTEGER_SCALING)
+                {
+                    //draw the letterbox
+                    scaler.renderBorders(graphics);
+                    
+                    //draw the scaled image without any further scaling
+                    graphics.drawImage(scaler.scale(bufferedImage), currentWindow.x, currentWindow.y, null);
+                    return;
+                }
+                
+                //the destination will be the size of the window
+                int dx1 = currentWindow.x;
+                int dy1 = currentWindow.y;
+                int dx2 = currentWindow.x + currentWindow.width;
+                int dy2 = currentWindow.y + currentWindow.height;
+
+                //the source will be the entire image
+                int sx1 = 0;
+                int sy1 = 0;
+                int sx2 = bufferedImage.getWidth(null);
+                int sy2 = bufferedImage.getHeight(null);
+                
+                //draw our rendered image at the specified location
+                graphics.drawImage(bufferedImage, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, null);
+            }
+            catch(Exception e)
+            {
+                e.printStackTrace();
+            }
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,99 @@
+package com.gamesbykevin.bubblebobble2.main;
+
+/**
+ * This thread will render the most recent snapshot of the game and draw it to the screen,
+ * so the game thread can keep updating while we draw.
+ * @author GOD
+ */
+public final class RenderThread extends Thread
+{
+    //the main class that draws the snapshots
+    private final Main main;
+    
+    //the minimum time between each render
+    private final long nanoSecondsPerRender;
+    
+    //object used to wait between each render
+    private final FramePacer pacer;
+    
+    //is the thread to keep rendering
+    private volatile boolean active = true;
+    
+    /**
+     * Create the render thread
+     * @param main The main class that draws the snapshots
+     * @param nanoSecondsPerRender The minimum time between each render
+     */
+    protected RenderThread(final Main main, final long nanoSecondsPerRender)
+    {
+        super("Render");
+        
+        this.main = main;
+        this.nanoSecondsPerRender = nanoSecondsPerRender;
+        this.pacer = new FramePacer();
+        
+        //don't keep the application running
+        super.setDaemon(true);
+    }
+    
+    /**
+     * Stop rendering and wait for the thread to finish
+     */
+    public void finish()
+    {
+        active = false;
+        
+        try
+        {
+            super.join();
+        }
+        catch (InterruptedException e)
+        {
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Get the object used to wait between each render, it also tracks the pacing jitter
+     * @return FramePacer
+     */
+    public FramePacer getPacer()
+    {
+        return this.pacer;
+    }
+    
+    @Override
+    public void run()
+    {
+        //the time of the next render
+        long deadline = System.nanoTime();
+        
+        while (active)
+        {
+            try
+            {
+                //render the most recent snapshot and draw it
+                main.renderSnapshot();
+                
+                deadline += nanoSecondsPerRender;
+                
+                //if we fell behind start from now
+                final long now = System.nanoTime();
+                
+                if (deadline < now)
+                    deadline = now;
+                
+                //wait until it is time to render
+                pacer.waitUntil(deadline);
+            }
+            catch (Exception e)
+            {
+                //dislay error
+                e.printStackTrace();
+                
+                //no longer active thread
+                active = false;
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,272 @@
+package com.gamesbykevin.bubblebobble2.main;
+
+import com.gamesbykevin.framework.resources.Disposable;
+
+import com.gamesbykevin.bubblebobble2.manager.Manager;
+import com.gamesbykevin.bubblebobble2.resources.Resources;
+import com.gamesbykevin.bubblebobble2.shared.Shared;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This class will host many independent game sessions in one process.<br>
+ * Each session has its own engine, seed and input, the resources (images, text) are loaded once and shared read-only.
+ * The sessions are updated in parallel on a work-stealing pool, a single session is only ever updated by one thread at a time.
+ * @author GOD
+ */
+public final class SessionHost implements Disposable
+{
+    //how many nanoseconds are there in one second
+    private static final double NANO_SECONDS_PER_SECOND = 1000000000.0;
+    
+    //class in root directory used to locate resources
+    private Class<?> source;
+    
+    //the resources shared by all sessions
+    private Resources resources;
+    
+    //the hosted sessions
+    private List<Session> sessions;
+    
+    //pool that updates the sessions
+    private ForkJoinPool pool;
+    
+    //the total number of updates across all sessions
+    private long ticks = 0;
+    
+    //the total time (nanoseconds) spent updating
+    private long duration = 0;
+    
+    /**
+     * Create the host and load the shared resources
+     * @param source Class in root directory of project so we know how to access resources
+     * @param threads The number of threads used to update the sessions
+     * @throws Exception
+     */
+    public SessionHost(final Class<?> source, final int threads) throws Exception
+    {
+        this.source = source;
+        this.sessions = new ArrayList<>();
+        this.pool = new ForkJoinPool(Math.max(1, threads));
+        
+        //the sessions are headless so no audio is needed
+        this.resources = new Resources(false);
+        
+        //load all resources now
+        resources.load(source).get();
+    }
+    
+    /**
+     * Add a new session
+     * @param seed The seed for the session's engine
+     * @return The main object of the new session
+     * @throws Exception
+     */
+    public Main add(final long seed) throws Exception
+    {
+        //each session has its own main without a container
+        final Main main = new Main(Shared.DEFAULT_UPS, source);
+        
+        //create the engine with the shared resources
+        main.create(seed, resources);
+        
+        sessions.add(new Session(main));
+        
+        return main;
+    }
+    
+    /**
+     * Update every session that isn't over the specified number of times
+     * @param count The number of updates for each session
+     * @return true if at least 1 session is still playing, false if all sessions are over
+     * @throws Exception if any session failed to update
+     */
+    public boolean update(final int count) throws Exception
+    {
+        final List<Session> active = new ArrayList<>();
+        
+        for (Session session : sessions)
+        {
+            if (!session.isComplete())
+            {
+                session.setCount(count);
+                active.add(session);
+            }
+        }
+        
+        //no more sessions to update
+        if (active.isEmpty())
+            return false;
+        
+        final long start = System.nanoTime();
+        
+        //update the sessions in parallel and wait for all to finish
+        for (Future<Long> future : pool.invokeAll(active))
+        {
+            ticks += future.get();
+        }
+        
+        duration += (System.nanoTime() - start);
+        
+        return true;
+    }
+    
+    /**
+     * Get the number of sessions
+     * @return The number of hosted sessions
+     */
+    public int getCount()
+    {
+        return sessions.size();
+    }
+    
+    /**
+     * Get the main object of the specified session
+     * @param index The index of the session
+     * @return Main
+     */
+    public Main getSession(final int index)
+    {
+        return sessions.get(index).getMain();
+    }
+    
+    /**
+     * Get the number of updates for the specified session
+     * @param index The index of the session
+     * @return The total number of updates
+     */
+    public long getTicks(final int index)
+    {
+        return sessions.get(index).getTicks();
+    }
+    
+    /**
+     * Get the total number of updates
+     * @return The number of updates across all sessions
+     */
+    public long getTicks()
+    {
+        return this.ticks;
+    }
+    
+    /**
+     * Get the time spent updating
+     * @return The total time in seconds
+     */
+    public double getSeconds()
+    {
+        return (duration / NANO_SECONDS_PER_SECOND);
+    }
+    
+    /**
+     * Get the aggregate updates per second across all sessions
+     * @return The number of updates per second while updating
+     */
+    public double getTicksPerSecond()
+    {
+        if (duration == 0)
+            return 0;
+        
+        return (ticks / getSeconds());
+    }
+    
+    @Override
+    public void dispose()
+    {
+        if (pool != null)
+        {
+            pool.shutdown();
+            pool = null;
+        }
+        
+        if (sessions != null)
+        {
+            for (Session session : sessions)
+            {
+                session.getMain().dispose();
+            }
+            
+            sessions.clear();
+            sessions = null;
+        }
+        
+        if (resources != null)
+        {
+            resources.dispose();
+            resources = null;
+        }
+        
+        source = null;
+    }
+    
+    /**
+     * A single game session, when called it will update the game the specified number of times
+     */
+    private static final class Session implements Callable<Long>
+    {
+        //the session's main object
+        private final Main main;
+        
+        //the number of updates to perform when called
+        private int count;
+        
+        //the total number of updates
+        private long ticks = 0;
+        
+        //is the game over
+        private boolean complete = false;
+        
+        private Session(final Main main)
+        {
+            this.main = main;
+        }
+        
+        private Main getMain()
+        {
+            return this.main;
+        }
+        
+        private void setCount(final int count)
+        {
+            this.count = count;
+        }
+        
+        private long getTicks()
+        {
+            return this.ticks;
+        }
+        
+        private boolean isComplete()
+        {
+            return this.complete;
+        }
+        
+        @Override
+        public Long call() throws Exception
+        {
+            long updates = 0;
+            
+            while (updates < count && !complete)
+            {
+                //update the game
+                main.update();
+                
+                updates++;
+                
+                final Manager manager = main.getEngine().getManager();
+                
+                //stop once the game is over
+                if (manager != null && manager.hasGameover())
+                    complete = true;
+            }
+            
+            ticks += updates;
+            
+            return updates;
+        }
+    }
+}
\ No newline at end of file
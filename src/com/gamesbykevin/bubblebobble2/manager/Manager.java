@@ -6,18 +6,24 @@ import com.gamesbykevin.framework.util.*;
 import com.gamesbykevin.bubblebobble2.bonus.Bonuses;
 import com.gamesbykevin.bubblebobble2.enemies.Enemies;
 import com.gamesbykevin.bubblebobble2.engine.Engine;
+import com.gamesbykevin.bubblebobble2.entity.Entity;
 import com.gamesbykevin.bubblebobble2.hero.Hero;
 import com.gamesbykevin.bubblebobble2.input.Input;
+import com.gamesbykevin.bubblebobble2.maps.FlowField;
 import com.gamesbykevin.bubblebobble2.maps.Map;
 import com.gamesbykevin.bubblebobble2.maps.Maps;
 import com.gamesbykevin.bubblebobble2.menu.CustomMenu;
 import com.gamesbykevin.bubblebobble2.menu.CustomMenu.*;
 import com.gamesbykevin.bubblebobble2.resources.*;
 import com.gamesbykevin.bubblebobble2.shared.Shared;
+import com.gamesbykevin.bubblebobble2.shared.WorldSnapshot;
 
 import java.awt.Graphics;
 import java.awt.Image;
 import java.awt.Rectangle;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The parent class that contains all of the game elements
@@ -25,14 +31,19 @@ import java.awt.Rectangle;
  */
 public final class Manager implements IManager
 {
+    /**
+     * Buffer size large enough to hold the saved state of a game
+     */
+    public static final int SAVE_CAPACITY = 16 * 1024;
+    
     //where gameplay occurs
     private Rectangle window;
     
     //the levels in our game
     private Maps maps;
     
-    //the hero
-    private Hero hero;
+    //the heroes, one for each player
+    private List<Hero> heroes;
     
     //object containing enemies
     private Enemies enemies;
@@ -49,6 +60,9 @@ public final class Manager implements IManager
     //image to diplay for win/lose
     private Image imageWin, imageLose;
     
+    //how far we are (0 - 1) between the previous and current update when rendering
+    private double interpolation = 1;
+    
     /**
      * Constructor for Manager, this is the point where we load any menu option configurations
      * @param engine Engine for our game that contains all objects needed
@@ -57,7 +71,7 @@ public final class Manager implements IManager
     public Manager(final Engine engine) throws Exception
     {
         //determine if sound is enabled
-        final boolean enabled = (Toggle.values()[engine.getMenu().getOptionSelectionIndex(LayerKey.OptionsInGame, OptionKey.Sound)] == Toggle.Off);
+        final boolean enabled = (Toggle.values()[engine.getOptionSelectionIndex(LayerKey.OptionsInGame, OptionKey.Sound)] == Toggle.Off);
 
         //set the audio depending on menu setting
         engine.getResources().setAudioEnabled(enabled);
@@ -66,11 +80,17 @@ public final class Manager implements IManager
         setWindow(engine.getMain().getScreen());
 
         //create new maps
-        maps = new Maps(engine.getResources().getGameImage(GameImages.Keys.Maps), getWindow());
+        maps = new Maps(engine.getResources(), getWindow());
         
-        //create new hero
-        hero = new Hero(Hero.Type.Hero1);
-        hero.setImage(engine.getResources().getGameImage(GameImages.Keys.Heroes));
+        //create a hero for each player
+        heroes = new ArrayList<>();
+        
+        for (int i = 0; i < engine.getPlayers(); i++)
+        {
+            final Hero hero = new Hero(Hero.Type.values()[i]);
+            hero.setImage(engine.getResources().getGameImage(GameImages.Keys.Heroes));
+            heroes.add(hero);
+        }
         
         //create container object for the enemies
         enemies = new Enemies(engine.getResources().getGameImage(GameImages.Keys.Enemies));
@@ -99,16 +119,100 @@ public final class Manager implements IManager
         this.result = result;
     }
     
-    private boolean hasGameover()
+    public boolean hasGameover()
     {
         return this.gameover;
     }
     
+    /**
+     * Set how far we are between the previous and current update, used when rendering
+     * @param interpolation The fraction of an update (0 - 1) that has passed since the last update
+     */
+    public void setInterpolation(final double interpolation)
+    {
+        if (interpolation < 0)
+        {
+            this.interpolation = 0;
+        }
+        else if (interpolation > 1)
+        {
+            this.interpolation = 1;
+        }
+        else
+        {
+            this.interpolation = interpolation;
+        }
+    }
+    
+    /**
+     * Record the location of every entity before anything moves this update
+     */
+    private void startUpdate()
+    {
+        getMaps().startUpdate();
+        getBonuses().startUpdate();
+        getEnemies().startUpdate();
+        
+        for (int i = 0; i < getHeroCount(); i++)
+        {
+            getHero(i).startUpdate();
+        }
+    }
+    
     private boolean hasResult()
     {
         return this.result;
     }
     
+    /**
+     * Write the state of the game to the buffer.<br>
+     * The maps have to be created before the game can be saved.
+     * @param buffer The buffer the state is written to, see SAVE_CAPACITY
+     * @throws Exception if the maps are still being created
+     */
+    public void save(final ByteBuffer buffer) throws Exception
+    {
+        if (!getMaps().isComplete())
+            throw new Exception("The game can't be saved until the maps are created");
+        
+        buffer.put((byte)(gameover ? 1 : 0));
+        buffer.put((byte)(result ? 1 : 0));
+        
+        getMaps().save(buffer);
+        
+        for (int i = 0; i < getHeroCount(); i++)
+        {
+            getHero(i).save(buffer);
+        }
+        
+        getEnemies().save(buffer);
+        getBonuses().save(buffer);
+    }
+    
+    /**
+     * Restore the state of the game previously written by save()
+     * @param buffer The buffer the state is read from
+     * @throws Exception if the maps are still being created
+     */
+    public void restore(final ByteBuffer buffer) throws Exception
+    {
+        if (!getMaps().isComplete())
+            throw new Exception("The game can't be restored until the maps are created");
+        
+        this.gameover = (buffer.get() == 1);
+        this.result = (buffer.get() == 1);
+        
+        getMaps().restore(buffer);
+        
+        for (int i = 0; i < getHeroCount(); i++)
+        {
+            getHero(i).restore(buffer);
+        }
+        
+        getEnemies().restore(buffer);
+        getBonuses().restore(buffer);
+    }
+    
     public Bonuses getBonuses()
     {
         return this.bonuses;
@@ -123,32 +227,32 @@ public final class Manager implements IManager
     public void reset(final Engine engine) throws Exception
     {
         //determine how many lives to set
-        switch (engine.getMenu().getOptionSelectionIndex(CustomMenu.LayerKey.Options, CustomMenu.OptionKey.Lives))
+        switch (engine.getOptionSelectionIndex(CustomMenu.LayerKey.Options, CustomMenu.OptionKey.Lives))
         {
             case 0:
-                hero.setLives(5);
+                setLives(5);
                 break;
                 
             case 1:
-                hero.setLives(10);
+                setLives(10);
                 break;
                 
             case 2:
-                hero.setLives(25);
+                setLives(25);
                 break;
                 
             case 3:
-                hero.setLives(99);
+                setLives(99);
                 break;
                 
             case 4:
             default:
-                hero.setLives(1);
+                setLives(1);
                 break;
         }
         
         //determine which level to start at
-        switch (engine.getMenu().getOptionSelectionIndex(CustomMenu.LayerKey.Options, CustomMenu.OptionKey.Level))
+        switch (engine.getOptionSelectionIndex(CustomMenu.LayerKey.Options, CustomMenu.OptionKey.Level))
         {
             case 0:
                 maps.setStartingMap(0);
@@ -197,9 +301,122 @@ public final class Manager implements IManager
         }
     }
     
+    /**
+     * Set the lives of every hero
+     * @param lives The number of lives
+     */
+    private void setLives(final int lives)
+    {
+        for (int i = 0; i < getHeroCount(); i++)
+        {
+            getHero(i).setLives(lives);
+        }
+    }
+    
+    /**
+     * Do any of the heroes have lives remaining
+     * @return true if at least 1 hero has lives, false otherwise
+     */
+    public boolean hasLives()
+    {
+        for (int i = 0; i < getHeroCount(); i++)
+        {
+            if (getHero(i).hasLives())
+                return true;
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Get the hero of the first player
+     * @return Hero
+     */
     public Hero getHero()
     {
-        return this.hero;
+        return getHero(0);
+    }
+    
+    /**
+     * Get the hero of the specified player
+     * @param index The player
+     * @return Hero
+     */
+    public Hero getHero(final int index)
+    {
+        return this.heroes.get(index);
+    }
+    
+    /**
+     * Get the number of heroes
+     * @return The number of players
+     */
+    public int getHeroCount()
+    {
+        return this.heroes.size();
+    }
+    
+    /**
+     * Get the hero for the entity to chase, this is the closest hero that still has lives
+     * @param entity The entity looking for a hero
+     * @return The closest hero, or the first hero if none have lives
+     */
+    public Hero getHero(final Entity entity)
+    {
+        Hero closest = getHero();
+        
+        double distance = Double.MAX_VALUE;
+        
+        for (int i = 0; i < getHeroCount(); i++)
+        {
+            final Hero hero = getHero(i);
+            
+            if (!hero.hasLives())
+                continue;
+            
+            if (hero.getDistance(entity) < distance)
+            {
+                closest = hero;
+                distance = hero.getDistance(entity);
+            }
+        }
+        
+        return closest;
+    }
+    
+    /**
+     * Get which heroes are dead
+     * @return A bit for each hero, set if the hero is dead
+     */
+    private int getDeadHeroes()
+    {
+        int dead = 0;
+        
+        for (int i = 0; i < getHeroCount(); i++)
+        {
+            if (getHero(i).isDead())
+                dead |= (1 << i);
+        }
+        
+        return dead;
+    }
+    
+    /**
+     * Place the hero at its start location on the current map
+     * @param hero The hero
+     */
+    private void setStartLocation(final Hero hero)
+    {
+        switch(hero.getType())
+        {
+            case Hero1:
+                hero.setDestination(getMaps().getMap().getStartWest());
+                break;
+                
+            default:
+                hero.setDestination(getMaps().getMap().getStartEast());
+                break;
+        }
     }
     
     public Maps getMaps()
@@ -246,6 +463,18 @@ public final class Manager implements IManager
             enemies = null;
         }
         
+        if (heroes != null)
+        {
+            for (int i = 0; i < heroes.size(); i++)
+            {
+                heroes.get(i).dispose();
+                heroes.set(i, null);
+            }
+            
+            heroes.clear();
+            heroes = null;
+        }
+        
         try
         {
             //recycle objects
@@ -265,6 +494,9 @@ public final class Manager implements IManager
     @Override
     public void update(final Engine engine) throws Exception
     {
+        //the entities record where they are before anything moves
+        startUpdate();
+        
         //don't continue if game is over
         if (hasGameover())
             return;
@@ -283,15 +515,9 @@ public final class Manager implements IManager
                 //spawn the enemies
                 getEnemies().spawn(getMaps().getMap(), engine.getRandom());
                 
-                switch(getHero().getType())
+                for (int i = 0; i < getHeroCount(); i++)
                 {
-                    case Hero1:
-                        getHero().setDestination(getMaps().getMap().getStartWest());
-                        break;
-                        
-                    default:
-                        getHero().setDestination(getMaps().getMap().getStartEast());
-                        break;
+                    setStartLocation(getHero(i));
                 }
             }
         }
@@ -315,14 +541,21 @@ public final class Manager implements IManager
                 //start transition
                 getMaps().setTransition(true);
                 
-                //remove all projectiles
-                getHero().removeProjectiles();
-                
-                //set starting
-                getHero().setStart(true);
-                
-                //update hero
-                getHero().update(engine);
+                for (int i = 0; i < getHeroCount(); i++)
+                {
+                    //a hero without lives is out of the game
+                    if (!getHero(i).hasLives())
+                        continue;
+                    
+                    //remove all projectiles
+                    getHero(i).removeProjectiles();
+
+                    //set starting
+                    getHero(i).setStart(true);
+
+                    //update hero
+                    getHero(i).update(engine);
+                }
             }
             else
             {
@@ -334,14 +567,21 @@ public final class Manager implements IManager
                     //if transition has finished
                     if (!getMaps().hasTransition())
                     {
-                        //update hero
-                        getHero().update(engine);
+                        for (int i = 0; i < getHeroCount(); i++)
+                        {
+                            //a hero without lives is out of the game
+                            if (!getHero(i).hasLives())
+                                continue;
+                            
+                            //update hero
+                            getHero(i).update(engine);
 
-                        //set starting
-                        getHero().setStart(true);
-                        
-                        //set the new destination
-                        getHero().setDestination(getMaps().getMap().getStartWest());
+                            //set starting
+                            getHero(i).setStart(true);
+
+                            //set the new destination
+                            setStartLocation(getHero(i));
+                        }
                         
                         //spawn the enemies
                         getEnemies().spawn(getMaps().getMap(), engine.getRandom());
@@ -349,15 +589,40 @@ public final class Manager implements IManager
                 }
                 else
                 {
-                    //update character
-                    Input.update(getHero(), engine.getKeyboard(), engine.getResources());
-
+                    //record the input, or replace it with the recorded input
+                    if (engine.getInputLog() != null && engine.getSession() == null)
+                        engine.getInputLog().update(engine.getKeys());
+                    
                     //check state before update
-                    final boolean hasLives = getHero().hasLives();
-                    final boolean dead = getHero().isDead();
+                    final boolean hasLives = hasLives();
+                    final int dead = getDeadHeroes();
                     
-                    //update hero
-                    getHero().update(engine);
+                    for (int i = 0; i < getHeroCount(); i++)
+                    {
+                        final Hero hero = getHero(i);
+                        
+                        //a hero without lives is out of the game
+                        if (!hero.hasLives())
+                            continue;
+                        
+                        //update character
+                        Input.update(hero, engine.getKeys(i), engine.getResources());
+                        
+                        //update hero
+                        hero.update(engine);
+                    }
+                    
+                    //the enemies find their path to the heroes still playing
+                    final FlowField flowField = getMaps().getMap().getFlowField();
+                    flowField.reset();
+                    
+                    for (int i = 0; i < getHeroCount(); i++)
+                    {
+                        if (getHero(i).hasLives() && !getHero(i).isDead())
+                            flowField.addTarget(getHero(i).getX(), getHero(i).getY());
+                    }
+                    
+                    flowField.update();
 
                     //update enemies
                     getEnemies().update(engine);
@@ -368,14 +633,15 @@ public final class Manager implements IManager
                     //update the maps
                     getMaps().update(engine);
                     
-                    if (hasLives && !getHero().hasLives())
+                    if (hasLives && !hasLives())
                     {
                         engine.getResources().stopAllSound();
                         engine.getResources().playGameAudio(GameAudio.Keys.MusicGameOver);
                     }
                     else
                     {
-                        if (!dead && getHero().isDead())
+                        //if any hero died during this update
+                        if ((getDeadHeroes() & ~dead) != 0)
                             engine.getResources().playGameAudio(GameAudio.Keys.SoundDie);
                     }
                 }
@@ -398,9 +664,13 @@ public final class Manager implements IManager
 
             if (getMaps().isComplete())
             {
-                getBonuses().render(graphics);
-                getEnemies().render(graphics);
-                getHero().render(graphics);
+                getBonuses().render(graphics, interpolation);
+                getEnemies().render(graphics, interpolation);
+                for (int i = 0; i < getHeroCount(); i++)
+                {
+                    if (getHero(i).hasLives())
+                        getHero(i).render(graphics, interpolation);
+                }
             }
         }
         else
@@ -415,4 +685,33 @@ public final class Manager implements IManager
             }
         }
     }
+    
+    /**
+     * Add everything that is drawn to the snapshot
+     * @param snapshot The snapshot of the current update
+     * @return true if the snapshot contains the game, false if the game has to be drawn (maps are still being created)
+     */
+    public boolean write(final WorldSnapshot snapshot)
+    {
+        if (hasGameover())
+        {
+            snapshot.setOverlay(hasResult() ? imageWin : imageLose, Map.WIDTH, Map.HEIGHT);
+            return true;
+        }
+        
+        //the progress is drawn by the maps
+        if (!getMaps().isComplete())
+            return false;
+        
+        getMaps().write(snapshot);
+        getBonuses().write(snapshot);
+        getEnemies().write(snapshot);
+        for (int i = 0; i < getHeroCount(); i++)
+        {
+            if (getHero(i).hasLives())
+                getHero(i).write(snapshot);
+        }
+        
+        return true;
+    }
 }
\ No newline at end of file
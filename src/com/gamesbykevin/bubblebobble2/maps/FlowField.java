@@ -0,0 +1,196 @@
+package com.gamesbykevin.bubblebobble2.maps;
+
+import java.util.Arrays;
+
+/**
+ * The distance from every open block of a map to the closest target, and the first step towards it.<br>
+ * The targets are the blocks of the heroes, the field is only searched again when a target changes block,
+ * so each enemy can look up its next step without searching.
+ * @author GOD
+ */
+public final class FlowField
+{
+    /**
+     * No step, the block is a target, solid, outside the map or can't reach a target
+     */
+    public static final byte NONE = 0;
+    
+    /**
+     * Step to the block above
+     */
+    public static final byte NORTH = 1;
+    
+    /**
+     * Step to the block below
+     */
+    public static final byte SOUTH = 2;
+    
+    /**
+     * Step to the block on the right
+     */
+    public static final byte EAST = 3;
+    
+    /**
+     * Step to the block on the left
+     */
+    public static final byte WEST = 4;
+    
+    //the distance of a block that can't reach a target
+    private static final short UNREACHABLE = -1;
+    
+    //the map searched
+    private final Map map;
+    
+    //the targets added since the last reset, and the targets of the current field, 1 bit for each column of each row
+    private final int[] pending = new int[Map.ROWS], targets = new int[Map.ROWS];
+    
+    //the number of steps from each block to the closest target
+    private final short[] distances = new short[Map.ROWS * Map.COLUMNS];
+    
+    //the first step from each block towards the closest target
+    private final byte[] steps = new byte[Map.ROWS * Map.COLUMNS];
+    
+    //the blocks waiting to be searched
+    private final int[] queue = new int[Map.ROWS * Map.COLUMNS];
+    
+    /**
+     * Create the field, there are no targets until update() is called
+     * @param map The map to search
+     */
+    FlowField(final Map map)
+    {
+        this.map = map;
+        
+        Arrays.fill(distances, UNREACHABLE);
+    }
+    
+    /**
+     * Remove the targets before adding the targets for this update
+     */
+    public void reset()
+    {
+        Arrays.fill(pending, 0);
+    }
+    
+    /**
+     * Add a target, the field doesn't change until update() is called
+     * @param x x-coordinate
+     * @param y y-coordinate
+     */
+    public void addTarget(final double x, final double y)
+    {
+        final int col = map.getColumn(x);
+        final int row = map.getRow(y);
+        
+        if (col >= 0 && col < Map.COLUMNS && row >= 0 && row < Map.ROWS)
+            pending[row] |= (1 << col);
+    }
+    
+    /**
+     * Search the map again if any target changed block since the last search
+     * @return true if the map was searched, false if the targets are in the same blocks
+     */
+    public boolean update()
+    {
+        if (Arrays.equals(pending, targets))
+            return false;
+        
+        System.arraycopy(pending, 0, targets, 0, Map.ROWS);
+        
+        search();
+        
+        return true;
+    }
+    
+    /**
+     * Search from all targets at once, so each block finds the closest target
+     */
+    private void search()
+    {
+        Arrays.fill(distances, UNREACHABLE);
+        Arrays.fill(steps, NONE);
+        
+        int head = 0, tail = 0;
+        
+        for (int row = 0; row < Map.ROWS; row++)
+        {
+            for (int bits = targets[row]; bits != 0; bits &= (bits - 1))
+            {
+                final int index = (row * Map.COLUMNS) + Integer.numberOfTrailingZeros(bits);
+                
+                distances[index] = 0;
+                queue[tail++] = index;
+            }
+        }
+        
+        while (head < tail)
+        {
+            final int index = queue[head++];
+            final int col = index % Map.COLUMNS;
+            final int row = index / Map.COLUMNS;
+            
+            //the step from each neighbor is back towards this block
+            tail = visit(col, row - 1, SOUTH, index, tail);
+            tail = visit(col, row + 1, NORTH, index, tail);
+            tail = visit(col - 1, row, EAST, index, tail);
+            tail = visit(col + 1, row, WEST, index, tail);
+        }
+    }
+    
+    /**
+     * Add the block to the queue if it is open and hasn't been reached
+     * @param col Column
+     * @param row Row
+     * @param step The step from this block to the block it was reached from
+     * @param from The block it was reached from
+     * @param tail The end of the queue
+     * @return The new end of the queue
+     */
+    private int visit(final int col, final int row, final byte step, final int from, final int tail)
+    {
+        if (col < 0 || col >= Map.COLUMNS || row < 0 || row >= Map.ROWS || map.isSolid(col, row))
+            return tail;
+        
+        final int index = (row * Map.COLUMNS) + col;
+        
+        if (distances[index] != UNREACHABLE)
+            return tail;
+        
+        distances[index] = (short)(distances[from] + 1);
+        steps[index] = step;
+        queue[tail] = index;
+        
+        return tail + 1;
+    }
+    
+    /**
+     * Get the first step towards the closest target
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @return NORTH, SOUTH, EAST, WEST or NONE
+     */
+    public byte getStep(final double x, final double y)
+    {
+        final int col = map.getColumn(x);
+        final int row = map.getRow(y);
+        
+        if (col < 0 || col >= Map.COLUMNS || row < 0 || row >= Map.ROWS)
+            return NONE;
+        
+        return steps[(row * Map.COLUMNS) + col];
+    }
+    
+    /**
+     * Get the number of steps to the closest target
+     * @param col Column
+     * @param row Row
+     * @return The number of steps, -1 if no target can be reached
+     */
+    public int getDistance(final int col, final int row)
+    {
+        if (col < 0 || col >= Map.COLUMNS || row < 0 || row >= Map.ROWS)
+            return UNREACHABLE;
+        
+        return distances[(row * Map.COLUMNS) + col];
+    }
+}
\ No newline at end of file
@@ -5,10 +5,13 @@ import com.gamesbykevin.framework.maze.Room;
 import com.gamesbykevin.framework.resources.Disposable;
 
 import com.gamesbykevin.bubblebobble2.entity.Entity;
+import com.gamesbykevin.bubblebobble2.shared.WorldSnapshot;
 
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Image;
 import java.awt.Point;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -43,12 +46,18 @@ public final class Map extends Entity implements Disposable
     private static final int FLOOR_GAP_START_COL_2 = 19;
     private static final int FLOOR_GAP_END_COL_2   = 22;
     
-    //the array of locations in this map
-    private Room[][] locations;
+    //each row of blocks is 1 int, bit n is set if column n is solid
+    private final int[] solid = new int[ROWS];
+    
+    //every column in a row
+    private static final int ALL_COLUMNS = -1;
     
     //locations where the enemies can be placed
     private List<Room> spawnLocations;
     
+    //all of the spawn locations before any were used
+    private List<Room> spawnStart;
+    
     //where the hero1 will start
     public static final int START_COL_HERO_1 = BOUNDARY_COL_MIN;
     public static final int START_ROW_HERO_1 = BOUNDARY_ROW_MAX;
@@ -57,29 +66,24 @@ public final class Map extends Entity implements Disposable
     public static final int START_COL_HERO_2 = BOUNDARY_COL_MAX;
     public static final int START_ROW_HERO_2 = BOUNDARY_ROW_MAX;
     
-    //coordinate where map starts
-    private final int startX, startY;
-    
     //the location of the starting place for the heroes on both sides
     private Point startWest = null, startEast = null; 
     
+    //the path from each block to the closest hero, created when first needed
+    private FlowField flowField;
+    
+    //the platforms and the input needed to reach each from the others
+    private PlatformGraph platforms;
+    
     /**
-     * Create a new map with the specified background coordinates
-     * @param startX x-coordinate of background
-     * @param startY y-coordinate of background
-     * @param pixels The array containing all of the pixels in the level
+     * Create a new map from the pixels of its background
+     * @param pixels The array containing all of the pixels in the level, WIDTH x HEIGHT
      * @throws Exception Exception will be thrown if the map doesn't have the required number of solid blocks
      */
-    protected Map(final int startX, final int startY, final int[] pixels) throws Exception
+    protected Map(final int[] pixels) throws Exception
     {
         super.setDimensions(WIDTH, HEIGHT);
-        
-        this.startX = startX;
-        this.startY = startY;
 
-        //create new array of locations
-        this.locations = new Room[ROWS][COLUMNS];
-        
         //create new list for spawn locations
         this.spawnLocations = new ArrayList<>();
         
@@ -88,42 +92,19 @@ public final class Map extends Entity implements Disposable
         {
             for (int row = 0; row < ROWS; row++)
             {
-                //create new location
-                Room tmp = new Room(col, row);
-                
-                //remove all walls by default
-                tmp.getWalls().clear();
-                
                 //calculate the current pixel location
-                final int x = startX + getBlockX(col);
-                final int y = startY + getBlockY(row);
+                final int x = getBlockX(col);
+                final int y = getBlockY(row);
                 
                 //check if this location is a boundary
                 if (isBoundary(x, y, pixels))
-                {
-                    //add all walls
-                    tmp.addWall(Room.Wall.East);
-                    tmp.addWall(Room.Wall.West);
-                    tmp.addWall(Room.Wall.North);
-                    tmp.addWall(Room.Wall.South);
-                }
-                else
-                {
-                    //else remove all walls
-                    tmp.removeWall(Room.Wall.East);
-                    tmp.removeWall(Room.Wall.West);
-                    tmp.removeWall(Room.Wall.North);
-                    tmp.removeWall(Room.Wall.South);
-                }
-                
-                //assign new location
-                locations[row][col] = tmp;
+                    solid[row] |= (1 << col);
             }
         }
         
         //make sure this map has the required number of solid blocks
         if (getBlockCount() < MINIMUM_BLOCK_REQUIREMENT)
-            throw new Exception("Map did not meet the required # of solid blocks (" + startX + "," + startY + ")");
+            throw new Exception("Map did not meet the required # of solid blocks");
         
         //start at bottom row
         for (int row = BOUNDARY_ROW_MAX - 1; row >= BOUNDARY_ROW_MIN; row--)
@@ -175,10 +156,109 @@ public final class Map extends Entity implements Disposable
             }
         }
         
+        //keep the original spawn locations so they can be restored
+        this.spawnStart = new ArrayList<>(spawnLocations);
+        
+        //find the platforms now so they are parsed with the rest of the map
+        this.platforms = new PlatformGraph(this);
+        
         //setup animation
         setupAnimations();
     }
     
+    /**
+     * Create a map that was parsed before, see saveParsed()
+     * @param buffer The buffer containing the parsed map
+     * @throws Exception
+     */
+    protected Map(final ByteBuffer buffer) throws Exception
+    {
+        super.setDimensions(WIDTH, HEIGHT);
+        
+        for (int row = 0; row < ROWS; row++)
+        {
+            solid[row] = buffer.getInt();
+        }
+        
+        this.startWest = getPoint(buffer);
+        this.startEast = getPoint(buffer);
+        
+        this.spawnLocations = new ArrayList<>();
+        
+        final int count = buffer.get() & 0xFF;
+        
+        for (int i = 0; i < count; i++)
+        {
+            final int col = buffer.get();
+            final int row = buffer.get();
+            
+            this.spawnLocations.add(new Room(col, row));
+        }
+        
+        //keep the original spawn locations so they can be restored
+        this.spawnStart = new ArrayList<>(spawnLocations);
+        
+        this.platforms = new PlatformGraph(buffer);
+        
+        //setup animation
+        setupAnimations();
+    }
+    
+    /**
+     * Save everything parsed from the pixels, so the map can be created without them
+     * @param buffer The buffer to write to
+     */
+    protected void saveParsed(final ByteBuffer buffer)
+    {
+        for (int row = 0; row < ROWS; row++)
+        {
+            buffer.putInt(solid[row]);
+        }
+        
+        putPoint(buffer, startWest);
+        putPoint(buffer, startEast);
+        
+        buffer.put((byte)spawnStart.size());
+        
+        for (int i = 0; i < spawnStart.size(); i++)
+        {
+            buffer.put((byte)spawnStart.get(i).getCol());
+            buffer.put((byte)spawnStart.get(i).getRow());
+        }
+        
+        platforms.save(buffer);
+    }
+    
+    /**
+     * Get the number of bytes of a parsed map, see saveParsed()
+     * @param buffer The buffer positioned at the parsed map, the position isn't changed
+     * @return The number of bytes
+     */
+    protected static int getParsedSize(final ByteBuffer buffer)
+    {
+        //the solid blocks and the hero start points are followed by the spawn locations
+        final int spawns = (ROWS * 4) + (2 * 4);
+        
+        //then the platforms
+        final int size = spawns + 1 + (2 * (buffer.get(buffer.position() + spawns) & 0xFF));
+        
+        return size + PlatformGraph.getSize(buffer, buffer.position() + size);
+    }
+    
+    private static void putPoint(final ByteBuffer buffer, final Point point)
+    {
+        buffer.putShort((short)((point != null) ? point.x : -1));
+        buffer.putShort((short)((point != null) ? point.y : -1));
+    }
+    
+    private static Point getPoint(final ByteBuffer buffer)
+    {
+        final int x = buffer.getShort();
+        final int y = buffer.getShort();
+        
+        return (x < 0) ? null : new Point(x, y);
+    }
+    
     /**
      * Is this space open for a character to be placed
      * @param col Starting north-west column
@@ -188,17 +268,8 @@ public final class Map extends Entity implements Disposable
      */
     public boolean hasFreeSpace(final int col, final int row, final int columnRange)
     {
-        for (int x = -columnRange; x <= columnRange; x++)
-        {
-            for (int y = 0; y <= 1; y++)
-            {
-                //if any space is solid it is not a free space
-                if (isSolid(col + x, row + y))
-                    return false;
-            }
-        }
-        
-        return true;
+        //if any space is solid it is not a free space
+        return !hasSolid(col - columnRange, col + columnRange, row, row + 1);
     }
     
     /**
@@ -215,6 +286,46 @@ public final class Map extends Entity implements Disposable
         return this.spawnLocations;
     }
     
+    /**
+     * Make all of the original spawn locations available again
+     */
+    protected void resetSpawnLocations()
+    {
+        spawnLocations.clear();
+        spawnLocations.addAll(spawnStart);
+    }
+    
+    /**
+     * Save the spawn locations that are still available
+     * @param buffer The buffer to write to
+     */
+    protected void saveSpawnLocations(final ByteBuffer buffer)
+    {
+        buffer.put((byte)spawnLocations.size());
+        
+        //each location is saved as its index in the original list
+        for (int i = 0; i < spawnLocations.size(); i++)
+        {
+            buffer.put((byte)spawnStart.indexOf(spawnLocations.get(i)));
+        }
+    }
+    
+    /**
+     * Restore the spawn locations that are available
+     * @param buffer The buffer to read from
+     */
+    protected void restoreSpawnLocations(final ByteBuffer buffer)
+    {
+        spawnLocations.clear();
+        
+        final int count = buffer.get() & 0xFF;
+        
+        for (int i = 0; i < count; i++)
+        {
+            spawnLocations.add(spawnStart.get(buffer.get() & 0xFF));
+        }
+    }
+    
     /**
      * Get the hero starting point
      * @return The (x,y) location where the hero is to start on the east side
@@ -224,11 +335,32 @@ public final class Map extends Entity implements Disposable
         return this.startEast;
     }
     
+    /**
+     * Get the platforms of this map
+     * @return The platforms and the input needed to reach each from the others
+     */
+    public PlatformGraph getPlatforms()
+    {
+        return this.platforms;
+    }
+    
+    /**
+     * Get the path from each block of this map to the closest hero
+     * @return The flow field of this map
+     */
+    public FlowField getFlowField()
+    {
+        if (flowField == null)
+            flowField = new FlowField(this);
+        
+        return this.flowField;
+    }
+    
     @Override
     protected void setupAnimations() throws Exception
     {
-        //the background map is static and won't change, so it is 1 frame and 1 animation
-        super.addAnimation(Entity.DEFAULT_ANIMATION_KEY, 1, startX, startY, WIDTH, HEIGHT, 0, false);
+        //the background map is static and won't change, so it is 1 frame and 1 animation, the image is only this map
+        super.addAnimation(Entity.DEFAULT_ANIMATION_KEY, 1, 0, 0, WIDTH, HEIGHT, 0, false);
     }
     
     /**
@@ -239,14 +371,9 @@ public final class Map extends Entity implements Disposable
     {
         int count = 0;
         
-        for (int col = 0; col < COLUMNS; col++)
+        for (int row = 0; row < ROWS; row++)
         {
-            for (int row = 0; row < ROWS; row++)
-            {
-                //if this location has walls it is a solid block
-                if (isSolid(col, row))
-                    count++;
-            }
+            count += Integer.bitCount(solid[row]);
         }
         
         //return the count
@@ -281,17 +408,68 @@ public final class Map extends Entity implements Disposable
      * Is the location solid?
      * @param col Column
      * @param row Row
-     * @return true if the location has walls, false otherwise
+     * @return true if the location is a solid block, false otherwise or if outside the map
      */
-    private boolean isSolid(final int col, final int row)
+    public boolean isSolid(final int col, final int row)
     {
-        if (row < 0 || row >= locations.length)
-            return false;
+        //a column outside the map has no bit in the mask
+        return ((getSolidRow(row) & getColumns(col, col)) != 0);
+    }
+    
+    /**
+     * Is any location in the row solid?
+     * @param colStart The first column
+     * @param colEnd The last column
+     * @param row Row
+     * @return true if any location in the columns is a solid block, false otherwise
+     */
+    public boolean hasSolid(final int colStart, final int colEnd, final int row)
+    {
+        return ((getSolidRow(row) & getColumns(colStart, colEnd)) != 0);
+    }
+    
+    /**
+     * Is any location in the area solid?
+     * @param colStart The first column
+     * @param colEnd The last column
+     * @param rowStart The first row
+     * @param rowEnd The last row
+     * @return true if any location in the area is a solid block, false otherwise
+     */
+    public boolean hasSolid(final int colStart, final int colEnd, final int rowStart, final int rowEnd)
+    {
+        int rows = 0;
         
-        if (col < 0 || col >= locations[0].length)
-            return false;
+        for (int row = Math.max(rowStart, 0); row <= rowEnd && row < ROWS; row++)
+        {
+            rows |= solid[row];
+        }
         
-        return (!locations[row][col].getWalls().isEmpty());
+        return ((rows & getColumns(colStart, colEnd)) != 0);
+    }
+    
+    /**
+     * Get the solid blocks of a row
+     * @param row Row
+     * @return Bit n is set if column n is solid, 0 if the row is outside the map
+     */
+    public int getSolidRow(final int row)
+    {
+        return (row >= 0 && row < ROWS) ? solid[row] : 0;
+    }
+    
+    /**
+     * Get the mask of a range of columns, the columns outside the map are ignored
+     * @param colStart The first column
+     * @param colEnd The last column
+     * @return Bit n is set for each column n in the range
+     */
+    private static int getColumns(final int colStart, final int colEnd)
+    {
+        if (colStart > colEnd || colEnd < 0 || colStart >= COLUMNS)
+            return 0;
+        
+        return (ALL_COLUMNS << Math.max(colStart, 0)) & (ALL_COLUMNS >>> (COLUMNS - 1 - Math.min(colEnd, COLUMNS - 1)));
     }
     
     public boolean hasNorthCollision(final double x, final double y)
@@ -416,20 +594,22 @@ public final class Map extends Entity implements Disposable
     
     /**
      * Get the pixel from the array at the specified location
-     * @param currentX The x-coordinate on the image
-     * @param currentY The y-coordinate on the image
-     * @param pixels The int[] array that contains all pixel data of the image
+     * @param currentX The x-coordinate on the map
+     * @param currentY The y-coordinate on the map
+     * @param pixels The int[] array that contains all pixel data of the map
      * @return rgb value of pixel at specified location
      */
     private int getPixel(final int currentX, final int currentY, final int[] pixels)
     {
-        return pixels[(currentY * Maps.IMAGE_PIXELS_PER_COLUMN) + currentX];
+        return pixels[(currentY * WIDTH) + currentX];
     }
     
     @Override
     public void dispose()
     {
         super.dispose();
+        
+        flowField = null;
     }
     
     /**
@@ -452,6 +632,17 @@ public final class Map extends Entity implements Disposable
         return (int)(BLOCK_SIZE * row);
     }
     
+    /**
+     * Add the map to the snapshot, the location is the north-west corner of the map
+     * @param snapshot The snapshot of the current update
+     * @param image The image of this map
+     */
+    @Override
+    public void write(final WorldSnapshot snapshot, final Image image)
+    {
+        super.write(snapshot, image, 0, 0);
+    }
+    
     /**
      * This is to display a visual of the boundaries for testing
      * @param graphics 
@@ -462,14 +653,11 @@ public final class Map extends Entity implements Disposable
         {
             for (int row = 0; row < ROWS; row++)
             {
-                //get temporary location
-                Room tmp = locations[row][col];
-                
                 if (!isSolid(col, row))
                     continue;
 
-                final int x = (int)(getBlockX(tmp.getCol()) + getX());
-                final int y = (int)(getBlockY(tmp.getRow()) + getY());
+                final int x = (int)(getBlockX(col) + getX());
+                final int y = (int)(getBlockY(row) + getY());
             
                 graphics.setColor(Color.WHITE);
                 graphics.fillRect(x, y, BLOCK_SIZE, BLOCK_SIZE);
@@ -0,0 +1,149 @@
+package com.gamesbykevin.bubblebobble2.maps;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+
+/**
+ * The maps parsed from the pixels of the image, kept in a file so later launches don't need the pixels.<br>
+ * The file has the checksum of the image it was parsed from, if the image changes the file is ignored and written again.
+ * @author GOD
+ */
+final class MapCache
+{
+    /**
+     * The name of the file, it is next to the jar
+     */
+    static final String FILE_NAME = "maps.cache";
+    
+    //the first int of the file
+    private static final int HEADER = 0x42424D43;
+    
+    //the version of the file, change when the format of a map changes
+    private static final int VERSION = 2;
+    
+    //the header is followed by the version, the checksum of the image and the number of maps
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+    
+    //the most bytes for each map, the solid blocks, the hero start points, the spawn locations and the platforms
+    static final int MAP_SIZE = 1 + (Map.ROWS * 4) + (2 * 4) + 1 + (2 * 255) + PlatformGraph.MAX_SIZE;
+    
+    //the file
+    private final File file;
+    
+    /**
+     * Create the cache
+     * @param file The file
+     */
+    MapCache(final File file)
+    {
+        this.file = file;
+    }
+    
+    /**
+     * Create a buffer large enough for all maps
+     * @param count The number of maps
+     * @return The buffer with room for the header and a checksum at the end
+     */
+    static ByteBuffer allocate(final int count)
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + (count * MAP_SIZE) + 8);
+        buffer.position(HEADER_SIZE);
+        
+        return buffer;
+    }
+    
+    /**
+     * Read the maps in a single read
+     * @param checksum The checksum of the image the maps are parsed from
+     * @param count The number of maps
+     * @return The buffer positioned at the first map, null if there is no file or it isn't for this image
+     */
+    ByteBuffer read(final long checksum, final int count)
+    {
+        if (!file.isFile())
+            return null;
+        
+        try
+        {
+            final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            
+            if (buffer.remaining() < HEADER_SIZE + 8)
+                return null;
+            
+            //make sure the file wasn't damaged
+            final CRC32 crc = new CRC32();
+            crc.update(buffer.array(), 0, buffer.limit() - 8);
+            
+            if (buffer.getLong(buffer.limit() - 8) != crc.getValue())
+                return null;
+            
+            if (buffer.getInt() != HEADER || buffer.getInt() != VERSION || buffer.getLong() != checksum || buffer.getInt() != count)
+                return null;
+            
+            buffer.limit(buffer.limit() - 8);
+            
+            return buffer;
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+            
+            return null;
+        }
+    }
+    
+    /**
+     * Write the maps, the file is replaced only once it is written completely
+     * @param checksum The checksum of the image the maps are parsed from
+     * @param count The number of maps
+     * @param buffer The maps, from allocate()
+     */
+    void write(final long checksum, final int count, final ByteBuffer buffer)
+    {
+        buffer.putInt(0, HEADER);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, checksum);
+        buffer.putInt(16, count);
+        
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+        
+        File tmp = null;
+        
+        try
+        {
+            //each game running at the same time writes its own file
+            tmp = File.createTempFile(FILE_NAME, null, file.getAbsoluteFile().getParentFile());
+            
+            final FileOutputStream output = new FileOutputStream(tmp);
+            
+            try
+            {
+                output.write(buffer.array(), 0, buffer.position());
+            }
+            finally
+            {
+                output.close();
+            }
+            
+            //replace the previous cache
+            if (file.exists() && !file.delete())
+                throw new Exception("Unable to replace " + file);
+            
+            if (!tmp.renameTo(file))
+                throw new Exception("Unable to write " + file);
+        }
+        catch (Exception e)
+        {
+            //the maps will be parsed again next time
+            e.printStackTrace();
+            
+            if (tmp != null)
+                tmp.delete();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,155 @@
+package com.gamesbykevin.bubblebobble2.maps;
+
+import com.gamesbykevin.framework.resources.Disposable;
+
+import com.gamesbykevin.bubblebobble2.resources.Resources;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Decodes areas of the image of all maps when they are needed, instead of keeping the entire image.<br>
+ * The backgrounds of the most recent maps are kept, the rest are decoded again if needed.
+ * @author GOD
+ */
+final class MapSource implements Disposable
+{
+    //the most backgrounds kept, the current map, the next map and 1 more
+    private static final int CAPACITY = 3;
+    
+    //used to open the image
+    private Resources resources;
+    
+    //the backgrounds decoded, the least recently used is first
+    private LinkedHashMap<Integer, BufferedImage> backgrounds;
+    
+    /**
+     * Create the source
+     * @param resources Used to open the image of all maps
+     */
+    MapSource(final Resources resources)
+    {
+        this.resources = resources;
+        this.backgrounds = new LinkedHashMap<Integer, BufferedImage>(CAPACITY + 1, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(final Entry<Integer, BufferedImage> eldest)
+            {
+                return (size() > CAPACITY);
+            }
+        };
+    }
+    
+    /**
+     * Get the background of a map, decoding it if not kept.<br>
+     * The lock isn't held while decoding, so decoding the next map doesn't block the current map.
+     * @param index The number of the map
+     * @return The background, WIDTH x HEIGHT
+     * @throws Exception if the image can't be decoded
+     */
+    BufferedImage getBackground(final int index) throws Exception
+    {
+        synchronized (this)
+        {
+            final BufferedImage background = (backgrounds != null) ? backgrounds.get(index) : null;
+            
+            if (background != null)
+                return background;
+        }
+        
+        final BufferedImage background = decode(new Rectangle(Maps.getStartX(index), Maps.getStartY(index), Map.WIDTH, Map.HEIGHT));
+        
+        synchronized (this)
+        {
+            if (backgrounds == null)
+                return background;
+            
+            //if another thread decoded the same map first, keep that one
+            final BufferedImage existing = backgrounds.get(index);
+            
+            if (existing != null)
+                return existing;
+            
+            backgrounds.put(index, background);
+        }
+        
+        return background;
+    }
+    
+    /**
+     * Stop keeping the background of a map, it is decoded again if needed
+     * @param index The number of the map
+     */
+    synchronized void release(final int index)
+    {
+        if (backgrounds != null)
+            backgrounds.remove(index);
+    }
+
+    /**
+     * Decode an area of the image, the rest of the image is not kept.<br>
+     * This can be called by many threads at the same time.
+     * @param region The area of the image
+     * @return The area decoded
+     * @throws Exception if the image can't be decoded
+     */
+    BufferedImage decode(final Rectangle region) throws Exception
+    {
+        final InputStream input = resources.openResource(Resources.MAP_IMAGE);
+        
+        if (input == null)
+            throw new Exception("Image not found: " + Resources.MAP_IMAGE);
+        
+        final ImageInputStream stream = ImageIO.createImageInputStream(input);
+        
+        try
+        {
+            final Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            
+            if (!readers.hasNext())
+                throw new Exception("Image can't be decoded: " + Resources.MAP_IMAGE);
+            
+            final ImageReader reader = readers.next();
+            
+            try
+            {
+                reader.setInput(stream, true, true);
+                
+                //only the pixels in the area are kept
+                final ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(region);
+                
+                return reader.read(0, param);
+            }
+            finally
+            {
+                reader.dispose();
+            }
+        }
+        finally
+        {
+            stream.close();
+            input.close();
+        }
+    }
+    
+    @Override
+    public synchronized void dispose()
+    {
+        if (backgrounds != null)
+        {
+            backgrounds.clear();
+            backgrounds = null;
+        }
+        
+        resources = null;
+    }
+}
\ No newline at end of file
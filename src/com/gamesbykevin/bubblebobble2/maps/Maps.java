@@ -4,22 +4,48 @@ import com.gamesbykevin.framework.resources.Progress;
 import com.gamesbykevin.framework.resources.Disposable;
 
 import com.gamesbykevin.bubblebobble2.engine.Engine;
+import com.gamesbykevin.bubblebobble2.resources.Resources;
 import com.gamesbykevin.bubblebobble2.shared.IElement;
+import com.gamesbykevin.bubblebobble2.shared.WorldSnapshot;
 
 import java.awt.Graphics;
-import java.awt.image.PixelGrabber;
-import java.awt.Image;
 import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public final class Maps implements Disposable, IElement
 {
-    //image for all maps will be in this image
-    private Image image;
+    //decodes the background of each map from the image of all maps when needed
+    private MapSource source;
     
-    //list of maps
-    private List<Map> maps;
+    //the parsed data of each level, a map is only created from it when the level is needed
+    private List<ByteBuffer> levels;
+    
+    //the number of the map on the image for each level
+    private List<Integer> images;
+    
+    //the maps created, the least recently used is first
+    private LinkedHashMap<Integer, Map> maps;
+    
+    //the most maps kept, the current map, the next map and 1 more
+    private static final int MAP_CAPACITY = 3;
+    
+    //the next map being created in the background, null if none
+    private ForkJoinTask<Map> prefetch;
+    
+    //the level being created in the background
+    private int prefetched = -1;
     
     //the current map
     private int index = 0;
@@ -27,6 +53,12 @@ public final class Maps implements Disposable, IElement
     //do we transition to the next level
     private boolean transition = false;
     
+    //the y-coordinate of the first level, every level is below the previous
+    private double offset = 0;
+    
+    //the speed all maps are moving
+    private double velocityY = 0;
+    
     //the coordinates where the first map is located
     private static final int START_X = 3;
     private static final int START_Y = 3;
@@ -47,46 +79,141 @@ public final class Maps implements Disposable, IElement
     //the total number of maps
     private static final int MAP_COUNT = 200;
     
-    //used to analyze pixels in image
-    private PixelGrabber pixelGrabber;
+    //the maps parsed by a previous launch, null if there is nowhere to keep them
+    private MapCache cache;
+    
+    //the checksum of the image, the cache is only used for the same image
+    private long checksum;
     
-    //the pixels representing the image
-    private int[] pixels;
+    //the maps parsed so far to be written to the cache, null if not writing the cache
+    private ByteBuffer parsed;
     
-    //the total dimension size of our entire image that contains all maps
-    protected static final int IMAGE_PIXELS_PER_COLUMN = 2593;
-    protected static final int IMAGE_PIXELS_PER_ROW = 4488;
+    //have we checked the cache
+    private boolean checked = false;
+    
+    //the threads that create the maps, shared by all games
+    private static final ForkJoinPool POOL = new ForkJoinPool();
+    
+    //the number of rows of maps on the image
+    private static final int MAP_ROWS = (MAP_COUNT + MAPS_PER_COLUMN - 1) / MAPS_PER_COLUMN;
     
     /**
-     * 
-     * @param image Image of all maps
-     * @param window Area where map will be displayed
-     * @param level 
+     * Parses a range of rows of maps, splitting the range in half until it is a single row
      */
-    public Maps(final Image image, final Rectangle window)
+    private static final class Builder extends RecursiveAction
     {
-        //our image that contains all maps
-        this.image = image;
+        //decodes the image
+        private final MapSource source;
         
-        //create new list to contain our maps
-        this.maps = new ArrayList<>();
+        //the maps parsed, a map is null if it failed
+        private final ByteBuffer[] maps;
         
-        try
+        //the number of maps parsed by all tasks
+        private final AtomicInteger created;
+        
+        //the first row, and the row after the last
+        private final int start, end;
+        
+        private Builder(final MapSource source, final ByteBuffer[] maps, final AtomicInteger created, final int start, final int end)
         {
-            //create pixelGrabber object
-            this.pixelGrabber = new PixelGrabber(image, 0, 0, IMAGE_PIXELS_PER_COLUMN, IMAGE_PIXELS_PER_ROW, true);
-            final boolean result = this.pixelGrabber.grabPixels();
-
-            if (!result)
+            this.source = source;
+            this.maps = maps;
+            this.created = created;
+            this.start = start;
+            this.end = end;
+        }
+        
+        @Override
+        protected void compute()
+        {
+            if (end - start > 1)
             {
-                throw new Exception("Failed to grab all pixels");
+                final int middle = (start + end) >>> 1;
+                
+                invokeAll(new Builder(source, maps, created, start, middle), new Builder(source, maps, created, middle, end));
+                return;
             }
-            else
+            
+            final int first = start * MAPS_PER_COLUMN;
+            final int last = Math.min(first + MAPS_PER_COLUMN, MAP_COUNT) - 1;
+            
+            try
             {
-                //get pixels from object
-                pixels = (int[])pixelGrabber.getPixels();
+                //the image is decoded from the start for each area, so the whole row is decoded at once
+                final int x = getStartX(first);
+                final BufferedImage image = source.decode(new Rectangle(x, getStartY(first), getStartX(last) + Map.WIDTH - x, Map.HEIGHT));
+                
+                final int[] pixels = new int[Map.WIDTH * Map.HEIGHT];
+                
+                for (int next = first; next <= last; next++)
+                {
+                    try
+                    {
+                        //map the boundaries from its own pixels, only the parsed data is kept
+                        image.getRGB(getStartX(next) - x, 0, Map.WIDTH, Map.HEIGHT, pixels, 0, Map.WIDTH);
+                        
+                        final Map map = new Map(pixels);
+                        final ByteBuffer data = ByteBuffer.allocate(MapCache.MAP_SIZE);
+                        map.saveParsed(data);
+                        map.dispose();
+                        
+                        //only keep the bytes used
+                        maps[next] = ByteBuffer.wrap(Arrays.copyOf(data.array(), data.position()));
+                    }
+                    catch (Exception e)
+                    {
+                        e.printStackTrace();
+                    }
+                }
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
             }
             
+            created.addAndGet(last - first + 1);
+        }
+    }
+    
+    //parses the maps when they aren't cached, null until started
+    private Builder builder;
+    
+    //the maps parsed by the builder, in order
+    private ByteBuffer[] created;
+    
+    //the number of maps the builder has parsed
+    private final AtomicInteger count = new AtomicInteger();
+    
+    /**
+     * 
+     * @param resources Used to open the image of all maps
+     * @param window Area where map will be displayed
+     */
+    public Maps(final Resources resources, final Rectangle window)
+    {
+        //the image of all maps is never decoded at once
+        this.source = new MapSource(resources);
+        
+        //create new lists to contain our levels
+        this.levels = new ArrayList<>();
+        this.images = new ArrayList<>();
+        
+        this.maps = new LinkedHashMap<Integer, Map>(MAP_CAPACITY + 1, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(final Entry<Integer, Map> eldest)
+            {
+                if (size() <= MAP_CAPACITY)
+                    return false;
+                
+                release(eldest.getKey(), eldest.getValue());
+                
+                return true;
+            }
+        };
+        
+        try
+        {
             //this will track progress of creating maps
             this.progress = new Progress(MAP_COUNT);
             this.progress.setDescription("Creating levels");
@@ -108,12 +235,7 @@ public final class Maps implements Disposable, IElement
         
         //if transition start moving all maps
         if (hasTransition())
-        {
-            for (int i = 0; i < maps.size(); i++)
-            {
-                getMap(i).setVelocityY(MAP_TRANSITION_SPEED);
-            }
-        }
+            this.velocityY = MAP_TRANSITION_SPEED;
     }
     
     public boolean hasTransition()
@@ -128,79 +250,353 @@ public final class Maps implements Disposable, IElement
     public void setStartingMap(final int index)
     {
         this.index = index;
+        
+        //start creating the next level before it is needed
+        if (isComplete())
+            prefetch(index + 1);
     }
     
     /**
-     * Create all the maps by analyzing the pixel data to determine where boundaries are
+     * Parse all the maps from the cache, if the cache is for the same image
+     * @param engine Object containing our resources
+     * @return true if the maps were parsed, false if the maps have to be parsed from the pixels
+     * @throws Exception
      */
-    private void create()
+    private boolean load(final Engine engine) throws Exception
     {
-        //determine the next map to create
-        final int next = progress.getCount();
+        final File file = engine.getResources().getCacheFile(MapCache.FILE_NAME);
         
-        //calculate column, row
-        final int column = next - ((next / MAPS_PER_COLUMN) * MAPS_PER_COLUMN);
-        final int row    = (next / MAPS_PER_ROW);
+        //there is nowhere to keep the cache
+        if (file == null)
+            return false;
+        
+        this.cache = new MapCache(file);
+        this.checksum = engine.getResources().getChecksum(Resources.MAP_IMAGE);
+        
+        final ByteBuffer buffer = cache.read(checksum, MAP_COUNT);
+        
+        if (buffer == null)
+        {
+            //parse the pixels and keep the maps for next time
+            this.parsed = MapCache.allocate(MAP_COUNT);
+            return false;
+        }
+        
+        for (int next = 0; next < MAP_COUNT; next++)
+        {
+            //maps that didn't have enough solid blocks aren't in the cache
+            if (buffer.get() != 0)
+            {
+                final int size = Map.getParsedSize(buffer);
+                
+                final ByteBuffer data = buffer.duplicate();
+                data.limit(buffer.position() + size);
                 
-        //calculate start x,y cooridate of background map
-        final int x = START_X + (column * (PIXEL_SPACE + Map.WIDTH));
-        final int y = START_Y + (row *    (PIXEL_SPACE + Map.HEIGHT));
+                add(data.slice(), next);
+                
+                buffer.position(buffer.position() + size);
+            }
+            
+            progress.increase();
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Parse all the maps by analyzing the pixel data to determine where boundaries are.<br>
+     * The maps are parsed on the pool, each call updates the progress and once all are parsed they are added in order.
+     * @param engine Object containing our resources
+     * @throws Exception if the pixels can't be grabbed
+     */
+    private void create(final Engine engine) throws Exception
+    {
+        if (builder == null)
+        {
+            created = new ByteBuffer[MAP_COUNT];
+            builder = new Builder(source, created, count, 0, MAP_ROWS);
+            
+            POOL.execute(builder);
+        }
+        
+        if (!builder.isDone())
+        {
+            //the progress isn't complete until the maps are added
+            progress.setCount(Math.min(count.get(), MAP_COUNT - 1));
+            return;
+        }
+        
+        for (int next = 0; next < MAP_COUNT; next++)
+        {
+            //a map that failed isn't added
+            if (created[next] != null)
+                add(created[next], next);
+            
+            if (parsed != null)
+            {
+                parsed.put((byte)((created[next] != null) ? 1 : 0));
+                
+                if (created[next] != null)
+                    parsed.put(created[next].duplicate());
+            }
+        }
+        
+        created = null;
+        builder = null;
+        
+        progress.setCount(MAP_COUNT);
+    }
+    
+    /**
+     * Add the level
+     * @param data The parsed map, see Map.saveParsed()
+     * @param next The number of the map on the image
+     */
+    private void add(final ByteBuffer data, final int next)
+    {
+        levels.add(data);
+        images.add(next);
+    }
+    
+    /**
+     * Create the map of a level from its parsed data
+     * @param level The level
+     * @return The map, null if it couldn't be created
+     */
+    private Map createMap(final int level)
+    {
+        Map map = null;
         
         try
         {
-            //create new map with background at (x,y) and map the boundaries
-            final Map map = new Map(x, y, pixels);
-
+            //the map may have been created in the background
+            if (prefetch != null && prefetched == level)
+                map = prefetch.get();
+        }
+        catch (Exception e)
+        {
+            //create it now instead
+            e.printStackTrace();
+        }
+        
+        if (prefetched == level)
+        {
+            prefetch = null;
+            prefetched = -1;
+        }
+        
+        try
+        {
+            if (map == null)
+                map = new Map(levels.get(level).duplicate());
+            
             //each map will be placed one after the other
-            map.setLocation(0, next * Map.HEIGHT);
-
-            //add map to list
-            maps.add(map);
+            map.setLocation(0, getY(level));
         }
         catch (Exception e)
         {
             e.printStackTrace();
         }
         
-        //increase progress regardless of error
-        progress.increase();
+        return map;
     }
     
     /**
-     * Make sure all maps have the correct y-coordinate with the current map having y-coordinate = 0
+     * Create the map of a level and decode its background in the background, so it is ready when needed
+     * @param level The level
      */
-    private void setMap()
+    private void prefetch(final int level)
     {
-        while (maps.get(getIndex()).getY() != 0)
+        if (level >= levels.size() || maps.containsKey(level) || prefetched == level)
+            return;
+        
+        //only the most recent level is created
+        if (prefetch != null)
+            prefetch.cancel(false);
+        
+        final ByteBuffer data = levels.get(level).duplicate();
+        final int image = images.get(level);
+        final MapSource source = this.source;
+        
+        this.prefetched = level;
+        this.prefetch = POOL.submit(new Callable<Map>()
         {
-            for (int i = 0; i < maps.size(); i++)
+            @Override
+            public Map call() throws Exception
             {
-                if (maps.get(getIndex()).getY() > 0)
-                {
-                    maps.get(i).setY(maps.get(i).getY() - 1);
-                }
-                else
-                {
-                    maps.get(i).setY(maps.get(i).getY() + 1);
-                }
+                source.getBackground(image);
+                
+                return new Map(data);
             }
+        });
+    }
+    
+    /**
+     * Release a map no longer kept and the image of its background
+     * @param level The level
+     * @param map The map
+     */
+    private void release(final int level, final Map map)
+    {
+        if (map != null)
+            map.dispose();
+        
+        if (source != null)
+            source.release(images.get(level));
+    }
+    
+    /**
+     * Get the y-coordinate of a level
+     * @param level The level
+     * @return The y-coordinate, the current level is at 0 unless moving to the next level
+     */
+    private double getY(final int level)
+    {
+        return offset + (level * Map.HEIGHT);
+    }
+    
+    /**
+     * Record the location of every map created at the start of an update
+     */
+    public void startUpdate()
+    {
+        for (Map map : maps.values())
+        {
+            map.startUpdate();
         }
     }
     
+    /**
+     * Move every map created to the y-coordinate of its level
+     */
+    private void setLocations()
+    {
+        for (Entry<Integer, Map> entry : maps.entrySet())
+        {
+            if (entry.getValue() != null)
+                entry.getValue().setY(getY(entry.getKey()));
+        }
+    }
+    
+    /**
+     * Get the x-coordinate of the map on the image
+     * @param next The number of the map
+     * @return The x-coordinate
+     */
+    static int getStartX(final int next)
+    {
+        //calculate column
+        final int column = next - ((next / MAPS_PER_COLUMN) * MAPS_PER_COLUMN);
+        
+        return START_X + (column * (PIXEL_SPACE + Map.WIDTH));
+    }
+    
+    /**
+     * Get the y-coordinate of the map on the image
+     * @param next The number of the map
+     * @return The y-coordinate
+     */
+    static int getStartY(final int next)
+    {
+        //calculate row
+        final int row = (next / MAPS_PER_ROW);
+        
+        return START_Y + (row * (PIXEL_SPACE + Map.HEIGHT));
+    }
+    
+    /**
+     * Make sure all maps have the correct y-coordinate with the current map having y-coordinate = 0
+     */
+    private void setMap()
+    {
+        this.offset = -(getIndex() * Map.HEIGHT);
+        
+        setLocations();
+        
+        //start creating the next level before it is needed
+        prefetch(getIndex() + 1);
+    }
+    
     @Override
     public void dispose()
     {
+        //stop creating the maps if we haven't finished
+        if (builder != null)
+        {
+            builder.cancel(false);
+            builder = null;
+        }
+        
+        if (prefetch != null)
+        {
+            prefetch.cancel(false);
+            prefetch = null;
+        }
+        
+        created = null;
+        
         if (maps != null)
         {
-            for (int i = 0; i < maps.size(); i++)
+            for (Map map : maps.values())
             {
-                maps.get(i).dispose();
-                maps.set(i, null);
+                if (map != null)
+                    map.dispose();
             }
-
+            
             maps.clear();
             maps = null;
         }
+        
+        if (source != null)
+        {
+            source.dispose();
+            source = null;
+        }
+        
+        levels = null;
+        images = null;
+    }
+    
+    /**
+     * Save the current map and the transition, the maps must be created
+     * @param buffer The buffer to write to
+     */
+    public void save(final ByteBuffer buffer)
+    {
+        buffer.putInt(index);
+        buffer.put((byte)(transition ? 1 : 0));
+        
+        //all maps move together so the first level is enough
+        buffer.putDouble(offset);
+        buffer.putDouble(velocityY);
+        
+        //only the current map has used its spawn locations
+        getMap().saveSpawnLocations(buffer);
+    }
+    
+    /**
+     * Restore the current map and the transition, the maps must be created
+     * @param buffer The buffer to read from
+     */
+    public void restore(final ByteBuffer buffer)
+    {
+        this.index = buffer.getInt();
+        this.transition = (buffer.get() != 0);
+        this.offset = buffer.getDouble();
+        this.velocityY = buffer.getDouble();
+        
+        setLocations();
+        
+        for (Entry<Integer, Map> entry : maps.entrySet())
+        {
+            //the maps after the current map haven't used any spawn locations yet, maps not created have all of them
+            if (entry.getKey() > index && entry.getValue() != null)
+                entry.getValue().resetSpawnLocations();
+        }
+        
+        getMap().restoreSpawnLocations(buffer);
+        
+        prefetch(index + 1);
     }
     
     /**
@@ -213,13 +609,24 @@ public final class Maps implements Disposable, IElement
     }
     
     /**
-     * Get the specified map
+     * Get the specified map, it is created if it isn't kept
      * @param index The location of the map we want
-     * @return Map
+     * @return Map, null if it couldn't be created
      */
     public Map getMap(final int index)
     {
-        return maps.get(index);
+        Map map = maps.get(index);
+        
+        if (map == null)
+        {
+            map = createMap(index);
+            
+            //a map that couldn't be created isn't kept, so it is tried again next time
+            if (map != null)
+                maps.put(index, map);
+        }
+        
+        return map;
     }
     
     private int getIndex()
@@ -233,7 +640,7 @@ public final class Maps implements Disposable, IElement
      */
     public boolean isLastMap()
     {
-        return (getIndex() >= maps.size() - 1);
+        return (getIndex() >= levels.size() - 1);
     }
     
     /**
@@ -253,10 +660,31 @@ public final class Maps implements Disposable, IElement
             //if not complete continue with level creation
             if (!progress.isComplete())
             {
-                create();
+                //the first time, check if the maps have already been parsed
+                if (!checked)
+                {
+                    checked = true;
+                    
+                    if (load(engine))
+                    {
+                        setMap();
+                        return;
+                    }
+                }
+                
+                create(engine);
                 
                 if (progress.isComplete())
+                {
                     setMap();
+                    
+                    //keep the parsed maps for the next launch
+                    if (parsed != null)
+                    {
+                        cache.write(checksum, MAP_COUNT, parsed);
+                        parsed = null;
+                    }
+                }
             }
             else
             {
@@ -264,13 +692,12 @@ public final class Maps implements Disposable, IElement
                 if (hasTransition())
                 {
                     //update location of all maps
-                    for (int i = 0; i < maps.size(); i++)
-                    {
-                        getMap(i).update();
-                    }
+                    offset += velocityY;
+                    
+                    setLocations();
                     
                     //is the next map at the finish line?
-                    if (getMap(getIndex() + 1).getY() <= 0)
+                    if (getY(getIndex() + 1) <= 0)
                     {
                         //stop the transition
                         setTransition(false);
@@ -307,18 +734,39 @@ public final class Maps implements Disposable, IElement
             if (Shared.DEBUG)
             {
                 getMap().renderTest(graphics);
-
+                
                 if (hasTransition())
                     getMap(index + 1).renderTest(graphics);
             }
             */
             
             //draw current map
-            getMap().draw(graphics, image);
-
+            getMap().draw(graphics, source.getBackground(images.get(getIndex())));
+            
             //if moving to new map draw new map also
             if (hasTransition())
-                getMap(getIndex() + 1).draw(graphics, image);
+                getMap(getIndex() + 1).draw(graphics, source.getBackground(images.get(getIndex() + 1)));
+        }
+    }
+    
+    /**
+     * Add the map to the snapshot, the maps must be created
+     * @param snapshot The snapshot of the current update
+     */
+    public void write(final WorldSnapshot snapshot)
+    {
+        try
+        {
+            //add current map
+            getMap().write(snapshot, source.getBackground(images.get(getIndex())));
+            
+            //if moving to new map add new map also
+            if (hasTransition())
+                getMap(getIndex() + 1).write(snapshot, source.getBackground(images.get(getIndex() + 1)));
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,526 @@
+package com.gamesbykevin.bubblebobble2.maps;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The platforms of a map a character can stand on, and which platforms can be reached from each.<br>
+ * A platform is a row of open blocks with a solid block below each one. Each edge is the input held from a column of a platform,
+ * found by following the Trajectory tables through the map, so a route can be planned without simulating the physics.
+ * The graph is parsed with the map and kept in the map cache.
+ * @author GOD
+ */
+public final class PlatformGraph
+{
+    /**
+     * Walk east off the end of the platform
+     */
+    public static final byte WALK_EAST = 0;
+    
+    /**
+     * Walk west off the start of the platform
+     */
+    public static final byte WALK_WEST = 1;
+    
+    /**
+     * Jump without moving
+     */
+    public static final byte JUMP = 2;
+    
+    /**
+     * Jump while walking east
+     */
+    public static final byte JUMP_EAST = 3;
+    
+    /**
+     * Jump while walking west
+     */
+    public static final byte JUMP_WEST = 4;
+    
+    //the most platforms and edges kept, each platform is saved in a byte
+    private static final int MAX_PLATFORMS = 255;
+    private static final int MAX_EDGES = 1024;
+    
+    /**
+     * The most bytes of a saved graph
+     */
+    static final int MAX_SIZE = 1 + (MAX_PLATFORMS * 3) + 2 + (MAX_EDGES * 4);
+    
+    //no platform at the block
+    private static final short NONE = -1;
+    
+    //the row and first and last column of each platform
+    private final byte[] rows, starts, ends;
+    
+    //the platform each block is on, NONE if the block isn't on a platform
+    private final short[] blocks = new short[Map.ROWS * Map.COLUMNS];
+    
+    //each edge, ordered by the platform it starts from
+    private final byte[] froms, tos, inputs, columns;
+    
+    //the first edge of each platform, the edges of the last platform end at the edge count
+    private final int[] firsts;
+    
+    /**
+     * Find the platforms of the map and follow every input from each
+     * @param map The map, the solid blocks must be set
+     */
+    PlatformGraph(final Map map)
+    {
+        final byte[] rows = new byte[MAX_PLATFORMS], starts = new byte[MAX_PLATFORMS], ends = new byte[MAX_PLATFORMS];
+        
+        int count = 0;
+        
+        for (int row = Map.BOUNDARY_ROW_MIN; row <= Map.BOUNDARY_ROW_MAX; row++)
+        {
+            for (int col = Map.BOUNDARY_COL_MIN; col <= Map.BOUNDARY_COL_MAX && count < MAX_PLATFORMS; col++)
+            {
+                if (!isStandable(map, col, row))
+                    continue;
+                
+                rows[count] = (byte)row;
+                starts[count] = (byte)col;
+                
+                //the platform continues until a block can't be stood on
+                while (col < Map.BOUNDARY_COL_MAX && isStandable(map, col + 1, row))
+                {
+                    col++;
+                }
+                
+                ends[count] = (byte)col;
+                count++;
+            }
+        }
+        
+        this.rows = Arrays.copyOf(rows, count);
+        this.starts = Arrays.copyOf(starts, count);
+        this.ends = Arrays.copyOf(ends, count);
+        
+        setBlocks();
+        
+        final byte[] froms = new byte[MAX_EDGES], tos = new byte[MAX_EDGES], inputs = new byte[MAX_EDGES], columns = new byte[MAX_EDGES];
+        
+        int edges = 0;
+        
+        for (int platform = 0; platform < count; platform++)
+        {
+            final int first = edges;
+            
+            final int row = getRow(platform);
+            final int start = getStart(platform);
+            final int end = getEnd(platform);
+            
+            //walk off either end, the character falls once past the edge
+            edges = add(platform, fall(map, end + 1, row, 1), WALK_EAST, end, froms, tos, inputs, columns, first, edges);
+            edges = add(platform, fall(map, start - 1, row, -1), WALK_WEST, start, froms, tos, inputs, columns, first, edges);
+            
+            for (int col = start; col <= end; col++)
+            {
+                edges = add(platform, jump(map, col, row, 0), JUMP, col, froms, tos, inputs, columns, first, edges);
+                edges = add(platform, jump(map, col, row, 1), JUMP_EAST, col, froms, tos, inputs, columns, first, edges);
+                edges = add(platform, jump(map, col, row, -1), JUMP_WEST, col, froms, tos, inputs, columns, first, edges);
+            }
+        }
+        
+        this.froms = Arrays.copyOf(froms, edges);
+        this.tos = Arrays.copyOf(tos, edges);
+        this.inputs = Arrays.copyOf(inputs, edges);
+        this.columns = Arrays.copyOf(columns, edges);
+        this.firsts = new int[count];
+        
+        setFirsts();
+    }
+    
+    /**
+     * Create a graph that was saved before, see save()
+     * @param buffer The buffer containing the graph
+     */
+    PlatformGraph(final ByteBuffer buffer)
+    {
+        final int count = buffer.get() & 0xFF;
+        
+        this.rows = new byte[count];
+        this.starts = new byte[count];
+        this.ends = new byte[count];
+        
+        for (int platform = 0; platform < count; platform++)
+        {
+            rows[platform] = buffer.get();
+            starts[platform] = buffer.get();
+            ends[platform] = buffer.get();
+        }
+        
+        setBlocks();
+        
+        final int edges = buffer.getShort() & 0xFFFF;
+        
+        this.froms = new byte[edges];
+        this.tos = new byte[edges];
+        this.inputs = new byte[edges];
+        this.columns = new byte[edges];
+        
+        for (int edge = 0; edge < edges; edge++)
+        {
+            froms[edge] = buffer.get();
+            tos[edge] = buffer.get();
+            inputs[edge] = buffer.get();
+            columns[edge] = buffer.get();
+        }
+        
+        this.firsts = new int[count];
+        
+        setFirsts();
+    }
+    
+    /**
+     * Save the graph so it doesn't have to be found again
+     * @param buffer The buffer to write to
+     */
+    void save(final ByteBuffer buffer)
+    {
+        buffer.put((byte)getPlatformCount());
+        
+        for (int platform = 0; platform < getPlatformCount(); platform++)
+        {
+            buffer.put(rows[platform]);
+            buffer.put(starts[platform]);
+            buffer.put(ends[platform]);
+        }
+        
+        buffer.putShort((short)getEdgeCount());
+        
+        for (int edge = 0; edge < getEdgeCount(); edge++)
+        {
+            buffer.put(froms[edge]);
+            buffer.put(tos[edge]);
+            buffer.put(inputs[edge]);
+            buffer.put(columns[edge]);
+        }
+    }
+    
+    /**
+     * Get the number of bytes of a saved graph
+     * @param buffer The buffer containing the graph
+     * @param position Where the graph starts in the buffer
+     * @return The number of bytes
+     */
+    static int getSize(final ByteBuffer buffer, final int position)
+    {
+        final int platforms = 1 + (3 * (buffer.get(position) & 0xFF));
+        
+        return platforms + 2 + (4 * (buffer.getShort(position + platforms) & 0xFFFF));
+    }
+    
+    /**
+     * Set the platform of each block
+     */
+    private void setBlocks()
+    {
+        Arrays.fill(blocks, NONE);
+        
+        for (int platform = 0; platform < getPlatformCount(); platform++)
+        {
+            for (int col = getStart(platform); col <= getEnd(platform); col++)
+            {
+                blocks[(getRow(platform) * Map.COLUMNS) + col] = (short)platform;
+            }
+        }
+    }
+    
+    /**
+     * Set the first edge of each platform, the edges are already ordered by platform
+     */
+    private void setFirsts()
+    {
+        int edge = 0;
+        
+        for (int platform = 0; platform < getPlatformCount(); platform++)
+        {
+            while (edge < getEdgeCount() && getFrom(edge) < platform)
+            {
+                edge++;
+            }
+            
+            firsts[platform] = edge;
+        }
+    }
+    
+    /**
+     * Add the edge, unless it leads back to the platform or the platform already has an edge with the same input to the same platform
+     * @return The new number of edges
+     */
+    private static int add(final int from, final int to, final byte input, final int col, final byte[] froms, final byte[] tos, final byte[] inputs, final byte[] columns, final int first, final int edges)
+    {
+        if (to == NONE || to == from || edges >= MAX_EDGES)
+            return edges;
+        
+        for (int edge = first; edge < edges; edge++)
+        {
+            if ((tos[edge] & 0xFF) == to && inputs[edge] == input)
+                return edges;
+        }
+        
+        froms[edges] = (byte)from;
+        tos[edges] = (byte)to;
+        inputs[edges] = input;
+        columns[edges] = (byte)col;
+        
+        return edges + 1;
+    }
+    
+    /**
+     * Can a character stand in the block
+     * @param map The map
+     * @param col Column
+     * @param row Row
+     * @return true if the block is open and the block below is solid, including the floor
+     */
+    private static boolean isStandable(final Map map, final int col, final int row)
+    {
+        if (map.isSolid(col, row))
+            return false;
+        
+        return map.hasSouthCollision(getCenterX(col), Map.getBlockY(row + 1));
+    }
+    
+    private static double getCenterX(final int col)
+    {
+        return Map.getBlockX(col) + (Map.BLOCK_SIZE / 2);
+    }
+    
+    /**
+     * Follow a fall after walking off a platform
+     * @param map The map
+     * @param col The first column past the edge
+     * @param row The row of the platform
+     * @param direction 1 walking east, -1 walking west
+     * @return The platform landed on, NONE if none
+     */
+    private int fall(final Map map, final int col, final int row, final int direction)
+    {
+        //a wall at the edge can't be walked past
+        if (col < Map.BOUNDARY_COL_MIN || col > Map.BOUNDARY_COL_MAX || map.isSolid(col, row))
+            return NONE;
+        
+        return follow(map, getCenterX(col), Map.getBlockY(row + 1), direction, false);
+    }
+    
+    /**
+     * Follow a jump from a platform
+     * @param map The map
+     * @param col The column jumped from
+     * @param row The row of the platform
+     * @param direction 1 walking east, -1 walking west, 0 not moving
+     * @return The platform landed on, NONE if none
+     */
+    private int jump(final Map map, final int col, final int row, final int direction)
+    {
+        return follow(map, getCenterX(col), Map.getBlockY(row + 1), direction, true);
+    }
+    
+    /**
+     * Follow the trajectory until the character lands, the same collision the character checks.<br>
+     * A fall through a gap in the floor continues from the top of the map, so the route may pass through it.
+     * @param map The map
+     * @param x The x-coordinate of the center of the character
+     * @param y The y-coordinate of the feet of the character
+     * @param direction 1 walking east, -1 walking west, 0 not moving
+     * @param jump true to follow a jump, false to follow a fall
+     * @return The platform landed on, NONE if none
+     */
+    private int follow(final Map map, double x, double y, int direction, final boolean jump)
+    {
+        for (int update = 0; update < Trajectory.UPDATES; update++)
+        {
+            final double feet = y + (jump ? Trajectory.getJumpY(update) : Trajectory.getFallY(update));
+            final double velocity = jump ? Trajectory.getJumpVelocity(update) : Trajectory.getFallVelocity(update);
+            
+            //stop moving once a wall is hit, the character is treated as 2 blocks wide
+            if (direction != 0)
+            {
+                if (map.hasHorizontalCollision(x + (direction * Map.BLOCK_SIZE), feet - (Map.BLOCK_SIZE / 2)))
+                {
+                    direction = 0;
+                }
+                else
+                {
+                    x += direction * Trajectory.getWalkSpeed();
+                }
+            }
+            
+            //only land when falling, a character jumps through the platforms above
+            if (velocity <= 0)
+                continue;
+            
+            //falling through the floor stops walking, see Character.checkLocation()
+            if (!map.hasBounds(x, feet))
+                direction = 0;
+            
+            //falling out of the map places the character back at the top
+            if (feet >= Map.ROWS * Map.BLOCK_SIZE)
+            {
+                y -= feet + Map.BLOCK_SIZE;
+                continue;
+            }
+            
+            if (map.getRow(feet) <= Map.BOUNDARY_ROW_MIN)
+                continue;
+            
+            //land on the solid block unless the character is stuck in it
+            if (map.hasSouthCollision(x, feet) && !map.hasSouthCollision(x, feet - Map.BLOCK_SIZE))
+                return getPlatform(map.getColumn(x), map.getRow(feet) - 1);
+        }
+        
+        return NONE;
+    }
+    
+    /**
+     * Find the shortest route between platforms
+     * @param from The platform to start on
+     * @param to The platform to reach
+     * @return The edges to follow in order, empty if already there, null if the platform can't be reached
+     */
+    public int[] getRoute(final int from, final int to)
+    {
+        if (from == to)
+            return new int[0];
+        
+        //the edge used to reach each platform
+        final int[] previous = new int[getPlatformCount()];
+        Arrays.fill(previous, NONE);
+        
+        final int[] queue = new int[getPlatformCount()];
+        
+        int head = 0, tail = 0;
+        
+        queue[tail++] = from;
+        
+        while (head < tail)
+        {
+            final int platform = queue[head++];
+            
+            for (int edge = getFirstEdge(platform); edge < getLastEdge(platform); edge++)
+            {
+                final int next = getTo(edge);
+                
+                if (next == from || previous[next] != NONE)
+                    continue;
+                
+                previous[next] = edge;
+                
+                if (next == to)
+                {
+                    //count the edges, then fill them in from the end
+                    int length = 0;
+                    
+                    for (int platformNext = to; platformNext != from; platformNext = getFrom(previous[platformNext]))
+                    {
+                        length++;
+                    }
+                    
+                    final int[] route = new int[length];
+                    
+                    for (int platformNext = to; platformNext != from; platformNext = getFrom(previous[platformNext]))
+                    {
+                        route[--length] = previous[platformNext];
+                    }
+                    
+                    return route;
+                }
+                
+                queue[tail++] = next;
+            }
+        }
+        
+        return null;
+    }
+    
+    public int getPlatformCount()
+    {
+        return this.rows.length;
+    }
+    
+    /**
+     * Get the platform a character standing in the block is on
+     * @param col Column
+     * @param row Row
+     * @return The platform, -1 if the block isn't on a platform
+     */
+    public int getPlatform(final int col, final int row)
+    {
+        if (col < 0 || col >= Map.COLUMNS || row < 0 || row >= Map.ROWS)
+            return NONE;
+        
+        return blocks[(row * Map.COLUMNS) + col];
+    }
+    
+    public int getRow(final int platform)
+    {
+        return this.rows[platform];
+    }
+    
+    public int getStart(final int platform)
+    {
+        return this.starts[platform];
+    }
+    
+    public int getEnd(final int platform)
+    {
+        return this.ends[platform];
+    }
+    
+    public int getEdgeCount()
+    {
+        return this.froms.length;
+    }
+    
+    /**
+     * Get the first edge from the platform
+     * @param platform The platform
+     * @return The index of the first edge
+     */
+    public int getFirstEdge(final int platform)
+    {
+        return this.firsts[platform];
+    }
+    
+    /**
+     * Get the end of the edges from the platform
+     * @param platform The platform
+     * @return The index after the last edge
+     */
+    public int getLastEdge(final int platform)
+    {
+        return (platform + 1 < getPlatformCount()) ? firsts[platform + 1] : getEdgeCount();
+    }
+    
+    public int getFrom(final int edge)
+    {
+        return this.froms[edge] & 0xFF;
+    }
+    
+    public int getTo(final int edge)
+    {
+        return this.tos[edge] & 0xFF;
+    }
+    
+    /**
+     * Get the input held to follow the edge
+     * @param edge The edge
+     * @return WALK_EAST, WALK_WEST, JUMP, JUMP_EAST or JUMP_WEST
+     */
+    public byte getInput(final int edge)
+    {
+        return this.inputs[edge];
+    }
+    
+    /**
+     * Get the column to start the input from
+     * @param edge The edge
+     * @return The column on the platform the edge starts from
+     */
+    public int getColumn(final int edge)
+    {
+        return this.columns[edge];
+    }
+}
\ No newline at end of file
@@ -0,0 +1,123 @@
+package com.gamesbykevin.bubblebobble2.maps;
+
+import com.gamesbykevin.bubblebobble2.character.Character;
+import com.gamesbykevin.bubblebobble2.hero.Hero;
+
+/**
+ * The path of a character through the air for each update, the same gravity as Character so nothing has to be simulated.<br>
+ * A jump starts at MAX_SPEED_JUMP, a fall starts at rest, both speed up by VELOCITY_Y_CHANGE until MAX_SPEED_FALL.
+ * @author GOD
+ */
+public final class Trajectory
+{
+    /**
+     * The number of updates in each table, long enough to fall the height of a map after the highest point of a jump
+     */
+    public static final int UPDATES;
+    
+    //the y-distance from the start after each update, negative is up
+    private static final double[] JUMP, FALL;
+    
+    //the y-velocity during each update
+    private static final double[] JUMP_VELOCITY, FALL_VELOCITY;
+    
+    static
+    {
+        //the updates to reach the highest point, then to fall the height of the map at the fastest speed
+        final int rise = (int)Math.ceil(Character.MAX_SPEED_JUMP / Character.VELOCITY_Y_CHANGE);
+        final int fall = (int)Math.ceil((Map.ROWS * Map.BLOCK_SIZE) / Character.MAX_SPEED_FALL);
+        
+        UPDATES = rise + fall + rise;
+        
+        JUMP = new double[UPDATES];
+        FALL = new double[UPDATES];
+        JUMP_VELOCITY = new double[UPDATES];
+        FALL_VELOCITY = new double[UPDATES];
+        
+        create(-Character.MAX_SPEED_JUMP, JUMP, JUMP_VELOCITY);
+        create(Character.SPEED_NONE, FALL, FALL_VELOCITY);
+    }
+    
+    private Trajectory()
+    {
+        //can't create
+    }
+    
+    /**
+     * Fill the table the same way gravity is applied to a character
+     * @param velocity The starting y-velocity
+     * @param distances The y-distance from the start after each update
+     * @param velocities The y-velocity during each update
+     */
+    private static void create(double velocity, final double[] distances, final double[] velocities)
+    {
+        double y = 0;
+        
+        for (int update = 0; update < UPDATES; update++)
+        {
+            //a character with no y-velocity starts falling
+            if (velocity == Character.SPEED_NONE)
+            {
+                velocity = Character.VELOCITY_Y_CHANGE;
+            }
+            else
+            {
+                velocity = Math.min(velocity + Character.VELOCITY_Y_CHANGE, Character.MAX_SPEED_FALL);
+            }
+            
+            y += velocity;
+            
+            distances[update] = y;
+            velocities[update] = velocity;
+        }
+    }
+    
+    /**
+     * Get the y-distance travelled since the jump started
+     * @param update The number of updates since the jump, starting at 0
+     * @return The distance, negative is up
+     */
+    public static double getJumpY(final int update)
+    {
+        return JUMP[update];
+    }
+    
+    /**
+     * Get the y-velocity of a jump
+     * @param update The number of updates since the jump, starting at 0
+     * @return The velocity, negative is up
+     */
+    public static double getJumpVelocity(final int update)
+    {
+        return JUMP_VELOCITY[update];
+    }
+    
+    /**
+     * Get the y-distance travelled since walking off a platform
+     * @param update The number of updates since the fall, starting at 0
+     * @return The distance
+     */
+    public static double getFallY(final int update)
+    {
+        return FALL[update];
+    }
+    
+    /**
+     * Get the y-velocity of a fall
+     * @param update The number of updates since the fall, starting at 0
+     * @return The velocity
+     */
+    public static double getFallVelocity(final int update)
+    {
+        return FALL_VELOCITY[update];
+    }
+    
+    /**
+     * Get the x-distance the hero walks through the air each update
+     * @return The distance
+     */
+    public static double getWalkSpeed()
+    {
+        return Hero.SPEED_WALK;
+    }
+}
\ No newline at end of file
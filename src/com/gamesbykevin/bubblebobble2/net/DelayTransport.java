@@ -0,0 +1,101 @@
+package com.gamesbykevin.bubblebobble2.net;
+
+import com.gamesbykevin.framework.util.Timers;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Random;
+
+/**
+ * Wraps a transport to hold back and drop sent packets, used to test play over a slow network
+ * @author GOD
+ */
+public final class DelayTransport implements Transport
+{
+    //the transport the packets are sent with
+    private Transport transport;
+    
+    //how long (nanoseconds) each packet is held back
+    private final long latency;
+    
+    //the chance (0 - 1) that a packet is lost
+    private final double loss;
+    
+    //decides which packets are lost, this is separate from the game's random object
+    private final Random random;
+    
+    //the packets held back, and the time each is sent
+    private Queue<byte[]> packets = new ArrayDeque<>();
+    private Queue<Long> times = new ArrayDeque<>();
+    
+    /**
+     * Create the transport
+     * @param transport The transport the packets are sent with
+     * @param latency How long (milliseconds) each packet is held back
+     * @param loss The chance (0 - 1) that a packet is lost
+     * @param seed The seed for deciding which packets are lost
+     */
+    public DelayTransport(final Transport transport, final long latency, final double loss, final long seed)
+    {
+        this.transport = transport;
+        this.latency = Timers.toNanoSeconds(latency);
+        this.loss = loss;
+        this.random = new Random(seed);
+    }
+    
+    @Override
+    public void send(final ByteBuffer packet) throws Exception
+    {
+        //the packet is lost
+        if (random.nextDouble() < loss)
+        {
+            packet.position(packet.limit());
+            return;
+        }
+        
+        final byte[] bytes = new byte[packet.remaining()];
+        packet.get(bytes);
+        
+        packets.add(bytes);
+        times.add(System.nanoTime() + latency);
+        
+        flush();
+    }
+    
+    @Override
+    public boolean receive(final ByteBuffer packet) throws Exception
+    {
+        flush();
+        
+        return transport.receive(packet);
+    }
+    
+    /**
+     * Send the packets that have been held back long enough
+     * @throws Exception
+     */
+    private void flush() throws Exception
+    {
+        final long now = System.nanoTime();
+        
+        while (!times.isEmpty() && times.peek() <= now)
+        {
+            times.poll();
+            transport.send(ByteBuffer.wrap(packets.poll()));
+        }
+    }
+    
+    @Override
+    public void dispose()
+    {
+        if (transport != null)
+        {
+            transport.dispose();
+            transport = null;
+        }
+        
+        packets = null;
+        times = null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.gamesbykevin.bubblebobble2.net;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Transport between two players in the same process, used for testing.<br>
+ * Packets are never lost and arrive in order, wrap with DelayTransport to add latency and loss.
+ * @author GOD
+ */
+public final class LocalTransport implements Transport
+{
+    //the packets sent to this end that haven't been received
+    private Queue<byte[]> packets = new ConcurrentLinkedQueue<>();
+    
+    //the other end
+    private LocalTransport peer;
+    
+    private LocalTransport()
+    {
+        //use createPair()
+    }
+    
+    /**
+     * Create both ends of the transport
+     * @return The two ends, what is sent by one is received by the other
+     */
+    public static LocalTransport[] createPair()
+    {
+        final LocalTransport first = new LocalTransport();
+        final LocalTransport second = new LocalTransport();
+        
+        first.peer = second;
+        second.peer = first;
+        
+        return new LocalTransport[]{first, second};
+    }
+    
+    @Override
+    public void send(final ByteBuffer packet)
+    {
+        final byte[] bytes = new byte[packet.remaining()];
+        packet.get(bytes);
+        
+        if (peer != null && peer.packets != null)
+            peer.packets.add(bytes);
+    }
+    
+    @Override
+    public boolean receive(final ByteBuffer packet)
+    {
+        final byte[] bytes = packets.poll();
+        
+        if (bytes == null)
+            return false;
+        
+        packet.clear();
+        packet.put(bytes);
+        packet.flip();
+        
+        return true;
+    }
+    
+    @Override
+    public void dispose()
+    {
+        if (packets != null)
+        {
+            packets.clear();
+            packets = null;
+        }
+        
+        peer = null;
+    }
+}
\ No newline at end of file
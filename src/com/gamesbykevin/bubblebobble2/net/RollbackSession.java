@@ -0,0 +1,414 @@
+package com.gamesbykevin.bubblebobble2.net;
+
+import com.gamesbykevin.framework.resources.Disposable;
+
+import com.gamesbykevin.bubblebobble2.engine.Engine;
+import com.gamesbykevin.bubblebobble2.input.Input;
+import com.gamesbykevin.bubblebobble2.input.KeyState;
+import com.gamesbykevin.bubblebobble2.manager.Manager;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * A two player game where each player runs the game and only the input is sent over the network.<br>
+ * Each update the local input is sent and the game continues with a predicted input for the remote player (the same keys held as last time).
+ * When the actual remote input arrives and is different, the game is restored to the update with the first wrong prediction and
+ * the missed updates are repeated within the same update, so neither player has to wait for the network.<br>
+ * Both players have to use the same seed and game options.
+ * @author GOD
+ */
+public final class RollbackSession implements Disposable
+{
+    /**
+     * The number of players in a session
+     */
+    public static final int PLAYERS = 2;
+    
+    /**
+     * The most updates that can be repeated, if the remote input is further behind we wait for it
+     */
+    public static final int MAX_ROLLBACK = 8;
+    
+    //the number of updates we keep the input and state for, must be a power of 2
+    private static final int HISTORY = 32;
+    
+    //used to get the index for an update
+    private static final int MASK = HISTORY - 1;
+    
+    //the most inputs sent in one packet
+    private static final int PACKET_INPUTS = HISTORY - MAX_ROLLBACK;
+    
+    //the packet starts with the updates received, the checked update, its checksum, the first update sent and the number of inputs
+    private static final int PACKET_HEADER = 4 + 4 + 8 + 4 + 1;
+    
+    //the largest packet we expect
+    private static final int PACKET_SIZE = PACKET_HEADER + (PACKET_INPUTS * 2);
+    
+    //how often (updates) a checksum of the state is compared with the remote player
+    private static final int CHECK_INTERVAL = 60;
+    
+    //the number of recent checksums we keep, must be a power of 2
+    private static final int CHECKSUMS = 4;
+    
+    //the local player
+    private final int player;
+    
+    //the transport to the remote player
+    private Transport transport;
+    
+    //the input of each player for the recent updates
+    private final short[] local = new short[HISTORY], remote = new short[HISTORY];
+    
+    //the state of the game before each of the recent updates
+    private final ByteBuffer[] states = new ByteBuffer[HISTORY];
+    
+    //the keys of each player for the current update
+    private final KeyState[] keys = new KeyState[PLAYERS];
+    
+    //the packets sent and received
+    private final ByteBuffer outgoing = ByteBuffer.allocate(PACKET_SIZE), incoming = ByteBuffer.allocate(PACKET_SIZE * 2);
+    
+    //used to check that both players have the same state
+    private final CRC32 crc = new CRC32();
+    
+    //the next update
+    private int tick = 0;
+    
+    //the number of updates we have the remote input for
+    private int remoteTick = 0;
+    
+    //the number of updates the remote player has our input for
+    private int acknowledged = 0;
+    
+    //the latest update we have a checksum for, and the recent checksums
+    private int checked = 0;
+    private final long[] checksums = new long[CHECKSUMS];
+    
+    //has the state of the players been different
+    private boolean desync = false;
+    
+    //the number of times the game was restored, the number of updates repeated, and the number of updates we had to wait
+    private long rollbacks = 0, repeated = 0, stalls = 0;
+    
+    /**
+     * Create the session
+     * @param player The local player (0 or 1), the other player is remote
+     * @param transport The transport to the remote player
+     */
+    public RollbackSession(final int player, final Transport transport)
+    {
+        if (player < 0 || player >= PLAYERS)
+            throw new IllegalArgumentException("Player has to be 0 or 1: " + player);
+        
+        this.player = player;
+        this.transport = transport;
+        
+        for (int i = 0; i < HISTORY; i++)
+        {
+            states[i] = ByteBuffer.allocate(Manager.SAVE_CAPACITY);
+        }
+        
+        for (int i = 0; i < PLAYERS; i++)
+        {
+            keys[i] = new KeyState();
+        }
+    }
+    
+    /**
+     * Start over for a new game
+     */
+    public void reset()
+    {
+        tick = 0;
+        remoteTick = 0;
+        acknowledged = 0;
+        checked = 0;
+        desync = false;
+        
+        for (int i = 0; i < PLAYERS; i++)
+        {
+            keys[i].reset();
+        }
+    }
+    
+    /**
+     * Get the keys of the player for the current update
+     * @param player The player
+     * @return KeyState
+     */
+    public KeyState getKeys(final int player)
+    {
+        return keys[player];
+    }
+    
+    public int getPlayer()
+    {
+        return this.player;
+    }
+    
+    /**
+     * Get the number of updates
+     * @return The number of updates since the session started
+     */
+    public int getTick()
+    {
+        return this.tick;
+    }
+    
+    /**
+     * Get the number of updates we have the remote input for
+     * @return The number of updates confirmed by the remote player
+     */
+    public int getRemoteTick()
+    {
+        return this.remoteTick;
+    }
+    
+    /**
+     * Has the game been different for the two players
+     * @return true if a checksum of the state didn't match the remote player's, false otherwise
+     */
+    public boolean hasDesync()
+    {
+        return this.desync;
+    }
+    
+    public long getRollbacks()
+    {
+        return this.rollbacks;
+    }
+    
+    public long getRepeated()
+    {
+        return this.repeated;
+    }
+    
+    public long getStalls()
+    {
+        return this.stalls;
+    }
+    
+    /**
+     * Update the game a single time, this replaces Manager.update() while the session is active
+     * @param engine Our game engine
+     * @throws Exception
+     */
+    public void update(final Engine engine) throws Exception
+    {
+        //the maps are created the same for both players before the session starts
+        if (!engine.getManager().getMaps().isComplete())
+        {
+            engine.getManager().update(engine);
+            return;
+        }
+        
+        //receive the remote input, and repeat the updates that had a wrong prediction
+        final int rollback = receive();
+        
+        if (rollback >= 0)
+            repeat(engine, rollback);
+        
+        //the state is the same for both players once all input before it is known
+        final int next = checked + CHECK_INTERVAL;
+        
+        if (next <= remoteTick && next < tick)
+        {
+            final ByteBuffer state = states[next & MASK];
+            
+            crc.reset();
+            crc.update(state.array(), 0, state.position());
+            
+            checked = next;
+            checksums[(checked / CHECK_INTERVAL) & (CHECKSUMS - 1)] = crc.getValue();
+        }
+        
+        //the remote input is too far behind to repeat, wait for it
+        if (tick - remoteTick >= MAX_ROLLBACK)
+        {
+            stalls++;
+            send();
+            return;
+        }
+        
+        //the released keys are now part of the input, so they are only handled once
+        local[tick & MASK] = Input.getState(engine.getKeys());
+        Input.removeKeysReleased(engine.getKeys());
+        
+        simulate(engine, tick);
+        tick++;
+        
+        send();
+    }
+    
+    /**
+     * Update the game using the input of both players
+     * @param engine Our game engine
+     * @param update The update
+     * @throws Exception
+     */
+    private void simulate(final Engine engine, final int update) throws Exception
+    {
+        //save the state so we can go back to it
+        final ByteBuffer state = states[update & MASK];
+        state.clear();
+        engine.saveGame(state);
+        
+        //predict the remote input until it arrives
+        if (update >= remoteTick)
+            remote[update & MASK] = predict();
+        
+        Input.setState(keys[player], local[update & MASK]);
+        Input.setState(keys[PLAYERS - 1 - player], remote[update & MASK]);
+        
+        engine.getManager().update(engine);
+    }
+    
+    /**
+     * Predict the remote input, the remote player continues to hold the same keys
+     * @return The predicted input
+     */
+    private short predict()
+    {
+        if (remoteTick == 0)
+            return 0;
+        
+        return (short)(remote[(remoteTick - 1) & MASK] & Input.STATE_PRESSED);
+    }
+    
+    /**
+     * Restore the state before the update and repeat the updates since, the audio is muted while repeating
+     * @param engine Our game engine
+     * @param update The update with the first wrong prediction
+     * @throws Exception
+     */
+    private void repeat(final Engine engine, final int update) throws Exception
+    {
+        final ByteBuffer state = states[update & MASK];
+        state.flip();
+        engine.restoreGame(state);
+        
+        rollbacks++;
+        
+        engine.getResources().setMuted(true);
+        
+        try
+        {
+            for (int i = update; i < tick; i++)
+            {
+                simulate(engine, i);
+                repeated++;
+            }
+        }
+        finally
+        {
+            engine.getResources().setMuted(false);
+        }
+    }
+    
+    /**
+     * Receive all of the packets waiting
+     * @return The first update that had a wrong prediction, -1 if none
+     * @throws Exception
+     */
+    private int receive() throws Exception
+    {
+        int rollback = -1;
+        
+        while (transport.receive(incoming))
+        {
+            //ignore anything that isn't a packet we sent
+            if (incoming.remaining() < PACKET_HEADER)
+                continue;
+            
+            acknowledged = Math.min(tick, Math.max(acknowledged, incoming.getInt()));
+            
+            final int remoteChecked = incoming.getInt();
+            final long remoteChecksum = incoming.getLong();
+            
+            //compare with our checksum of the same update, if we still have it
+            if (hasChecksum(remoteChecked) && getChecksum(remoteChecked) != remoteChecksum)
+                desync = true;
+            
+            final int first = incoming.getInt();
+            final int count = incoming.get() & 0xFF;
+            
+            for (int i = 0; i < count && incoming.remaining() >= 2; i++)
+            {
+                final int update = first + i;
+                final short state = incoming.getShort();
+                
+                //we only need the next input, anything before was already received
+                if (update != remoteTick)
+                    continue;
+                
+                //we can't keep input this far ahead, it is sent again
+                if (update - tick >= HISTORY - MAX_ROLLBACK)
+                    break;
+                
+                //the update already happened with a wrong prediction
+                if (update < tick && remote[update & MASK] != state && rollback < 0)
+                    rollback = update;
+                
+                remote[update & MASK] = state;
+                remoteTick++;
+            }
+        }
+        
+        return rollback;
+    }
+    
+    /**
+     * Do we have a checksum of the state before the update
+     * @param update The update
+     * @return true if the checksum is one of the recent checksums, false otherwise
+     */
+    private boolean hasChecksum(final int update)
+    {
+        return (update > 0 && update <= checked && update > checked - (CHECKSUMS * CHECK_INTERVAL) && update % CHECK_INTERVAL == 0);
+    }
+    
+    /**
+     * Get the checksum of the state before the update
+     * @param update The update, see hasChecksum()
+     * @return The checksum
+     */
+    private long getChecksum(final int update)
+    {
+        return checksums[(update / CHECK_INTERVAL) & (CHECKSUMS - 1)];
+    }
+    
+    /**
+     * Send the local input the remote player hasn't received yet
+     * @throws Exception
+     */
+    private void send() throws Exception
+    {
+        final int first = Math.max(acknowledged, tick - PACKET_INPUTS);
+        
+        outgoing.clear();
+        outgoing.putInt(remoteTick);
+        outgoing.putInt(checked);
+        outgoing.putLong(getChecksum(checked));
+        outgoing.putInt(first);
+        outgoing.put((byte)(tick - first));
+        
+        for (int i = first; i < tick; i++)
+        {
+            outgoing.putShort(local[i & MASK]);
+        }
+        
+        outgoing.flip();
+        transport.send(outgoing);
+    }
+    
+    @Override
+    public void dispose()
+    {
+        if (transport != null)
+        {
+            transport.dispose();
+            transport = null;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.gamesbykevin.bubblebobble2.net;
+
+import com.gamesbykevin.framework.resources.Disposable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Sends and receives small packets between two players.<br>
+ * Packets may be lost, delayed or arrive out of order, the session is expected to handle this.
+ * @author GOD
+ */
+public interface Transport extends Disposable
+{
+    /**
+     * Send a packet, this should never wait for the other player
+     * @param packet The bytes between the position and limit are sent
+     * @throws Exception
+     */
+    public void send(final ByteBuffer packet) throws Exception;
+    
+    /**
+     * Receive the next packet waiting, this should never wait for the other player
+     * @param packet The buffer is cleared and the packet written to it, then the buffer is flipped for reading
+     * @return true if a packet was received, false if there are none waiting
+     * @throws Exception
+     */
+    public boolean receive(final ByteBuffer packet) throws Exception;
+}
\ No newline at end of file
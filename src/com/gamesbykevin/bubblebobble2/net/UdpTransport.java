@@ -0,0 +1,83 @@
+package com.gamesbykevin.bubblebobble2.net;
+
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Transport between two players over UDP, also works over the loopback address for testing
+ * @author GOD
+ */
+public final class UdpTransport implements Transport
+{
+    //the channel connected to the other player
+    private DatagramChannel channel;
+    
+    /**
+     * Create the transport
+     * @param port The local port to receive packets on
+     * @param remote The address of the other player
+     * @throws Exception if the port can't be opened
+     */
+    public UdpTransport(final int port, final InetSocketAddress remote) throws Exception
+    {
+        this.channel = DatagramChannel.open();
+        this.channel.configureBlocking(false);
+        this.channel.bind(new InetSocketAddress(port));
+        this.channel.connect(remote);
+    }
+    
+    @Override
+    public void send(final ByteBuffer packet) throws Exception
+    {
+        try
+        {
+            channel.write(packet);
+        }
+        catch (PortUnreachableException e)
+        {
+            //the other player isn't listening yet, the packet is lost
+            packet.position(packet.limit());
+        }
+    }
+    
+    @Override
+    public boolean receive(final ByteBuffer packet) throws Exception
+    {
+        packet.clear();
+        
+        try
+        {
+            if (channel.receive(packet) == null)
+                return false;
+        }
+        catch (PortUnreachableException e)
+        {
+            //the other player isn't listening yet
+            return false;
+        }
+        
+        packet.flip();
+        
+        return true;
+    }
+    
+    @Override
+    public void dispose()
+    {
+        if (channel != null)
+        {
+            try
+            {
+                channel.close();
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+            
+            channel = null;
+        }
+    }
+}
\ No newline at end of file
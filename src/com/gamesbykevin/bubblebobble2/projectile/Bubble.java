@@ -53,6 +53,12 @@ public final class Bubble extends Projectile
         super.setAnimation(Key.Begin);
     }
     
+    @Override
+    public Type getType()
+    {
+        return Type.Bubble;
+    }
+    
     @Override
     public boolean canStand()
     {
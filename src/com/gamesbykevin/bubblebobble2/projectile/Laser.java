@@ -3,7 +3,6 @@ package com.gamesbykevin.bubblebobble2.projectile;
 import com.gamesbykevin.bubblebobble2.enemies.Enemies;
 import com.gamesbykevin.bubblebobble2.enemies.Enemy;
 import com.gamesbykevin.bubblebobble2.engine.Engine;
-import com.gamesbykevin.bubblebobble2.hero.Hero;
 import com.gamesbykevin.bubblebobble2.maps.Map;
 import com.gamesbykevin.framework.util.Timers;
 
@@ -45,6 +44,12 @@ public class Laser extends Projectile
         super.addAnimation(Key.Angry,  1, 198, 18, WIDTH, HEIGHT, DELAY,  false);
     }
     
+    @Override
+    public Type getType()
+    {
+        return Type.Laser;
+    }
+    
     @Override
     public boolean canStand()
     {
@@ -91,20 +96,8 @@ public class Laser extends Projectile
         //update location and animation
         super.update(engine.getMain().getTime());
         
-        //check collision with hero
+        //check collision with the heroes
         if (canAttack())
-        {
-            Hero hero = engine.getManager().getHero();
-            
-            //can't hurt if invincible
-            if (hero.isInvincible())
-                return;
-            
-            if (getDistance(hero) <= getWidth() / 2)
-            {
-                hero.setDead(true);
-                markDiscard();
-            }
-        }
+            checkHeroCollision(engine.getManager());
     }
 }
\ No newline at end of file
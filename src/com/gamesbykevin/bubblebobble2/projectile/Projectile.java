@@ -5,10 +5,20 @@ import com.gamesbykevin.framework.resources.Disposable;
 import com.gamesbykevin.bubblebobble2.character.Character;
 import com.gamesbykevin.bubblebobble2.engine.Engine;
 import com.gamesbykevin.bubblebobble2.entity.Entity;
+import com.gamesbykevin.bubblebobble2.hero.Hero;
+import com.gamesbykevin.bubblebobble2.manager.Manager;
 import com.gamesbykevin.bubblebobble2.maps.Map;
 
 public abstract class Projectile extends Entity implements Disposable
 {
+    /**
+     * The different projectiles
+     */
+    public enum Type
+    {
+        Bubble, Fire, Laser, SpikeBall
+    }
+    
     public Projectile() throws Exception
     {
         //setup animations
@@ -18,6 +28,63 @@ public abstract class Projectile extends Entity implements Disposable
         setDimensions();
     }
     
+    /**
+     * Create a projectile of the specified type, used when restoring a saved game
+     * @param type The type of projectile
+     * @return A new projectile, the direction and animation are expected to be restored
+     * @throws Exception 
+     */
+    public static Projectile create(final Type type) throws Exception
+    {
+        switch (type)
+        {
+            case Bubble:
+                return new Bubble(true);
+                
+            case Fire:
+                return new Fire(true);
+                
+            case Laser:
+                return new Laser(false);
+                
+            case SpikeBall:
+                return new SpikeBall(true, false);
+                
+            default:
+                throw new Exception("Type not setup here: " + type.toString());
+        }
+    }
+    
+    /**
+     * Get the type of projectile
+     * @return The type
+     */
+    public abstract Type getType();
+    
+    /**
+     * Check if the projectile hit a hero, the first hero hit dies and the projectile is discarded
+     * @param manager The manager containing the heroes
+     * @throws Exception 
+     */
+    protected void checkHeroCollision(final Manager manager) throws Exception
+    {
+        for (int i = 0; i < manager.getHeroCount(); i++)
+        {
+            final Hero hero = manager.getHero(i);
+            
+            //can't hurt if invincible or out of the game
+            if (hero.isInvincible() || !hero.hasLives())
+                continue;
+            
+            if (getDistance(hero) <= getWidth() / 2)
+            {
+                hero.setDead(true);
+                markDiscard();
+                return;
+            }
+        }
+    }
+    
     @Override
     public void dispose()
     {
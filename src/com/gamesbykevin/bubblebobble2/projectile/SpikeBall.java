@@ -4,7 +4,6 @@ import com.gamesbykevin.bubblebobble2.character.Character;
 import com.gamesbykevin.bubblebobble2.enemies.Enemies;
 import com.gamesbykevin.bubblebobble2.enemies.Enemy;
 import com.gamesbykevin.bubblebobble2.engine.Engine;
-import com.gamesbykevin.bubblebobble2.hero.Hero;
 import com.gamesbykevin.bubblebobble2.maps.Map;
 import com.gamesbykevin.framework.util.Timers;
 
@@ -46,6 +45,12 @@ public final class SpikeBall extends Projectile
         super.addAnimation(Key.Angry,  1, 198, 36, WIDTH, HEIGHT, DELAY,  false);
     }
     
+    @Override
+    public Type getType()
+    {
+        return Type.SpikeBall;
+    }
+    
     @Override
     public boolean canStand()
     {
@@ -95,20 +100,8 @@ public final class SpikeBall extends Projectile
         if (hasVelocityX())
             setHorizontalFlip((getVelocityX() > 0) ? false : true);
         
-        //check collision with hero
+        //check collision with the heroes
         if (canAttack())
-        {
-            Hero hero = engine.getManager().getHero();
-            
-            //can't hurt if invincible
-            if (hero.isInvincible())
-                return;
-            
-            if (getDistance(hero) <= getWidth() / 2)
-            {
-                hero.setDead(true);
-                markDiscard();
-            }
-        }
+            checkHeroCollision(engine.getManager());
     }
 }
\ No newline at end of file
@@ -0,0 +1,332 @@
+package com.gamesbykevin.bubblebobble2.resources;
+
+import com.gamesbykevin.framework.resources.Disposable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+
+/**
+ * All resources packed into a single file by BundleBuilder.<br>
+ * The file is memory mapped and read once from start to end, each resource is a slice of the mapped file so nothing is copied.
+ * The table at the start of the file has the location, checksum and decoded dimensions of each resource,
+ * and the location of each key in the game xml files, so the xml files aren't read.
+ * @author GOD
+ */
+public final class Bundle implements Disposable
+{
+    /**
+     * The name of the bundle, it is next to the jar
+     */
+    public static final String FILE_NAME = "resources.bundle";
+    
+    /**
+     * The first int of the bundle
+     */
+    public static final int HEADER = 0x42424E44;
+    
+    /**
+     * The version of the table, the bundle isn't used if this doesn't match
+     */
+    public static final int VERSION = 1;
+    
+    //the text in the table
+    static final Charset CHARSET = Charset.forName("UTF-8");
+    
+    /**
+     * A resource in the bundle
+     */
+    private static final class Entry
+    {
+        //where the resource starts in the bundle, and the number of bytes
+        private final int offset, length;
+        
+        //the CRC32 of the bytes
+        private final long checksum;
+        
+        //the size of the image, 0 if not an image
+        private final int width, height;
+        
+        private Entry(final ByteBuffer table)
+        {
+            this.offset   = table.getInt();
+            this.length   = table.getInt();
+            this.checksum = table.getLong();
+            this.width    = table.getInt();
+            this.height   = table.getInt();
+        }
+    }
+    
+    /**
+     * Reads a slice of the bundle as a stream for the decoders that only accept a stream
+     */
+    private static final class BufferInputStream extends InputStream
+    {
+        private final ByteBuffer buffer;
+        
+        private BufferInputStream(final ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+        
+        @Override
+        public int read()
+        {
+            return (buffer.hasRemaining()) ? (buffer.get() & 0xFF) : -1;
+        }
+        
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length)
+        {
+            if (length == 0)
+                return 0;
+            
+            if (!buffer.hasRemaining())
+                return -1;
+            
+            final int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            
+            return count;
+        }
+        
+        @Override
+        public long skip(final long count)
+        {
+            final int skipped = (int)Math.max(0, Math.min(count, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            
+            return skipped;
+        }
+        
+        @Override
+        public int available()
+        {
+            return buffer.remaining();
+        }
+    }
+    
+    //the mapped bundle
+    private MappedByteBuffer buffer;
+    
+    //each resource by location
+    private HashMap<String, Entry> entries = new HashMap<>();
+    
+    //the location for each key in the game xml files, the key is the xml file and the id
+    private HashMap<String, String> locations = new HashMap<>();
+    
+    /**
+     * Map the bundle and read the table
+     * @param file The bundle
+     * @throws IOException if the bundle can't be read or is not the current version
+     */
+    public Bundle(final File file) throws IOException
+    {
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+        
+        try
+        {
+            //the mapping stays valid after the file is closed
+            this.buffer = input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, input.length());
+        }
+        finally
+        {
+            input.close();
+        }
+        
+        //read the whole bundle now in one pass, instead of a page at a time as each resource is decoded
+        buffer.load();
+        
+        final ByteBuffer table = buffer.duplicate();
+        
+        if (table.getInt() != HEADER || table.getInt() != VERSION)
+            throw new IOException("Bundle is not version " + VERSION + ": " + file);
+        
+        final int count = table.getInt();
+        
+        for (int i = 0; i < count; i++)
+        {
+            final String location = getString(table);
+            entries.put(location, new Entry(table));
+        }
+        
+        final int keys = table.getInt();
+        
+        for (int i = 0; i < keys; i++)
+        {
+            final String key = getString(table);
+            locations.put(key, getString(table));
+        }
+    }
+    
+    /**
+     * Find the bundle next to the jar or class directory
+     * @param source Class in root directory of project
+     * @return The bundle, or null if there is no bundle or it can't be read
+     */
+    public static Bundle find(final Class<?> source)
+    {
+        try
+        {
+            final File directory = getDirectory(source);
+            
+            if (directory == null)
+                return null;
+            
+            final File file = new File(directory, FILE_NAME);
+            
+            if (!file.isFile())
+                return null;
+            
+            return new Bundle(file);
+        }
+        catch (Exception e)
+        {
+            //the resources are read from the class path instead
+            e.printStackTrace();
+            
+            return null;
+        }
+    }
+    
+    /**
+     * Get the directory containing the jar or class directory
+     * @param source Class in root directory of project
+     * @return The directory, null if it can't be determined (applet)
+     */
+    public static File getDirectory(final Class<?> source)
+    {
+        try
+        {
+            return new File(source.getProtectionDomain().getCodeSource().getLocation().toURI()).getParentFile();
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+    }
+    
+    /**
+     * Get the key used for the location of an id in an xml file
+     * @param manifest The xml file
+     * @param id The id in the xml file
+     * @return The key
+     */
+    static String getKey(final String manifest, final Object id)
+    {
+        return manifest + "#" + id;
+    }
+    
+    /**
+     * Read text from the table
+     * @param table The table
+     * @return The text
+     */
+    private static String getString(final ByteBuffer table)
+    {
+        final byte[] bytes = new byte[table.getShort() & 0xFFFF];
+        table.get(bytes);
+        
+        return new String(bytes, CHARSET);
+    }
+    
+    /**
+     * Get the location of a key from a game xml file
+     * @param manifest The xml file
+     * @param key The key
+     * @return The location, null if the key isn't in the xml file
+     */
+    public String getLocation(final String manifest, final Object key)
+    {
+        return locations.get(getKey(manifest, key));
+    }
+    
+    /**
+     * Is the resource in the bundle
+     * @param location The location of the resource
+     * @return true if the resource is in the bundle, false otherwise
+     */
+    public boolean has(final String location)
+    {
+        return entries.containsKey(location);
+    }
+    
+    /**
+     * Get the bytes of the resource without copying
+     * @param location The location of the resource
+     * @return A read only slice of the bundle, null if the resource isn't in the bundle
+     */
+    public ByteBuffer get(final String location)
+    {
+        final Entry entry = entries.get(location);
+        
+        if (entry == null)
+            return null;
+        
+        final ByteBuffer slice = buffer.duplicate();
+        slice.position(entry.offset);
+        slice.limit(entry.offset + entry.length);
+        
+        return slice.slice();
+    }
+    
+    /**
+     * Get the CRC32 of the resource, computed when the bundle was built
+     * @param location The location of the resource
+     * @return The checksum
+     */
+    public long getChecksum(final String location)
+    {
+        return entries.get(location).checksum;
+    }
+    
+    public int getWidth(final String location)
+    {
+        return entries.get(location).width;
+    }
+    
+    public int getHeight(final String location)
+    {
+        return entries.get(location).height;
+    }
+    
+    /**
+     * Open the resource from the bundle, or from the class path if there is no bundle or the resource isn't in it
+     * @param bundle The bundle, may be null
+     * @param source Class in root directory of project so we know how to access resources
+     * @param location The location of the resource
+     * @return The stream, null if the resource isn't found
+     */
+    public static InputStream open(final Bundle bundle, final Class<?> source, final String location)
+    {
+        if (bundle != null && bundle.has(location))
+            return new BufferInputStream(bundle.get(location));
+        
+        return source.getResourceAsStream(location);
+    }
+    
+    @Override
+    public void dispose()
+    {
+        //the mapping is released once no longer referenced
+        buffer = null;
+        
+        if (entries != null)
+        {
+            entries.clear();
+            entries = null;
+        }
+        
+        if (locations != null)
+        {
+            locations.clear();
+            locations = null;
+        }
+    }
+}
\ No newline at end of file
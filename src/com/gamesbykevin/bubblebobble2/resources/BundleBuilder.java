@@ -0,0 +1,242 @@
+package com.gamesbykevin.bubblebobble2.resources;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import javax.imageio.ImageIO;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Packs every resource into a single bundle, run as part of the build after the jar is created.<br>
+ * Arguments: [source directory containing the resources directory] [bundle to write]
+ * @author GOD
+ */
+public final class BundleBuilder
+{
+    //the directory with the resources, relative to the source directory
+    private static final String RESOURCE_DIR = "resources";
+    
+    //the xml files with the keys of the game resources
+    private static final String[] MANIFESTS =
+    {
+        Resources.XML_CONFIG_GAME_AUDIO, Resources.XML_CONFIG_GAME_FONT, Resources.XML_CONFIG_GAME_IMAGE, Resources.XML_CONFIG_GAME_TEXT
+    };
+    
+    //each resource starts on a multiple of this
+    private static final int ALIGNMENT = 8;
+    
+    private BundleBuilder()
+    {
+        //can't create
+    }
+    
+    public static void main(String[] args)
+    {
+        try
+        {
+            final File root = new File(args[0]);
+            final File bundle = new File(args[1]);
+            
+            //every file in the resources directory, in the same order each build
+            final List<String> locations = new ArrayList<>();
+            add(root, new File(root, RESOURCE_DIR), locations);
+            Collections.sort(locations);
+            
+            //the location of each key in the game xml files
+            final Map<String, String> keys = new LinkedHashMap<>();
+            
+            for (String manifest : MANIFESTS)
+            {
+                readManifest(root, manifest, keys);
+            }
+            
+            write(root, locations, keys, bundle);
+            
+            System.out.println("Bundled " + locations.size() + " resources to " + bundle + " (" + bundle.length() + " bytes)");
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+            
+            //fail the build
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Add the location of every file in the directory
+     * @param root The source directory, the locations are relative to this
+     * @param directory The directory to search
+     * @param locations The list to add to
+     */
+    private static void add(final File root, final File directory, final List<String> locations)
+    {
+        final File[] files = directory.listFiles();
+        
+        if (files == null)
+            return;
+        
+        for (File file : files)
+        {
+            if (file.isDirectory())
+            {
+                add(root, file, locations);
+            }
+            else
+            {
+                //resources are located with / on every platform
+                locations.add(root.toURI().relativize(file.toURI()).getPath());
+            }
+        }
+    }
+    
+    /**
+     * Read the location of each id in the xml file
+     * @param root The source directory
+     * @param manifest The xml file
+     * @param keys Where the locations are added
+     * @throws Exception if the xml file can't be read
+     */
+    private static void readManifest(final File root, final String manifest, final Map<String, String> keys) throws Exception
+    {
+        final FileInputStream input = new FileInputStream(new File(root, manifest));
+        
+        try
+        {
+            final NodeList elements = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(input).getDocumentElement().getChildNodes();
+            
+            for (int i = 0; i < elements.getLength(); i++)
+            {
+                if (!(elements.item(i) instanceof Element))
+                    continue;
+                
+                final Element element = (Element)elements.item(i);
+                
+                if (element.hasAttribute("id"))
+                    keys.put(Bundle.getKey(manifest, element.getAttribute("id")), element.getTextContent().trim());
+            }
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+    
+    /**
+     * Write the bundle, the table is followed by each resource
+     * @param root The source directory
+     * @param locations The location of each resource
+     * @param keys The location of each key in the game xml files
+     * @param bundle The bundle to write
+     * @throws Exception if a resource can't be read or the bundle can't be written
+     */
+    private static void write(final File root, final List<String> locations, final Map<String, String> keys, final File bundle) throws Exception
+    {
+        final List<byte[]> contents = new ArrayList<>();
+        
+        for (String location : locations)
+        {
+            contents.add(Files.readAllBytes(new File(root, location).toPath()));
+        }
+        
+        //the table size is needed before the offsets are known
+        int size = 4 + 4 + 4 + 4;
+        
+        for (String location : locations)
+        {
+            size += 2 + location.getBytes(Bundle.CHARSET).length + 4 + 4 + 8 + 4 + 4;
+        }
+        
+        for (Map.Entry<String, String> key : keys.entrySet())
+        {
+            size += 2 + key.getKey().getBytes(Bundle.CHARSET).length + 2 + key.getValue().getBytes(Bundle.CHARSET).length;
+        }
+        
+        final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(bundle)));
+        
+        try
+        {
+            output.writeInt(Bundle.HEADER);
+            output.writeInt(Bundle.VERSION);
+            output.writeInt(locations.size());
+            
+            int offset = align(size);
+            
+            for (int i = 0; i < locations.size(); i++)
+            {
+                final byte[] content = contents.get(i);
+                
+                final CRC32 crc = new CRC32();
+                crc.update(content, 0, content.length);
+                
+                //the size of the image, so it can be checked without decoding
+                final BufferedImage image = isImage(locations.get(i)) ? ImageIO.read(new ByteArrayInputStream(content)) : null;
+                
+                output.writeUTF(locations.get(i));
+                output.writeInt(offset);
+                output.writeInt(content.length);
+                output.writeLong(crc.getValue());
+                output.writeInt((image != null) ? image.getWidth() : 0);
+                output.writeInt((image != null) ? image.getHeight() : 0);
+                
+                offset = align(offset + content.length);
+            }
+            
+            output.writeInt(keys.size());
+            
+            for (Map.Entry<String, String> key : keys.entrySet())
+            {
+                output.writeUTF(key.getKey());
+                output.writeUTF(key.getValue());
+            }
+            
+            for (byte[] content : contents)
+            {
+                pad(output);
+                output.write(content);
+            }
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+    
+    private static boolean isImage(final String location)
+    {
+        final String name = location.toLowerCase();
+        
+        return (name.endsWith(".png") || name.endsWith(".gif") || name.endsWith(".jpg"));
+    }
+    
+    private static int align(final int offset)
+    {
+        return (offset + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+    
+    /**
+     * Write zeros until the next resource is aligned
+     * @param output The bundle
+     * @throws Exception
+     */
+    private static void pad(final DataOutputStream output) throws Exception
+    {
+        while (output.size() % ALIGNMENT != 0)
+        {
+            output.writeByte(0);
+        }
+    }
+}
\ No newline at end of file
@@ -1,35 +1,529 @@
 package com.gamesbykevin.bubblebobble2.resources;
 
-import com.gamesbykevin.framework.resources.*;
+import com.gamesbykevin.framework.resources.Disposable;
+
+import com.gamesbykevin.bubblebobble2.audio.AudioDecoder;
+import com.gamesbykevin.bubblebobble2.audio.AudioQueue;
+import com.gamesbykevin.bubblebobble2.audio.Mixer;
+import com.gamesbykevin.bubblebobble2.audio.MusicStream;
+import com.gamesbykevin.bubblebobble2.audio.Pcm;
+import com.gamesbykevin.bubblebobble2.audio.SoundCache;
+import com.gamesbykevin.bubblebobble2.shared.Shared;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
 
 /**
- * All audio for game
+ * All audio for game.<br>
+ * The sound effects are decoded once when loading (or read from the cache file) and shared by every play,
+ * the music isn't loaded at all, it is decoded while it plays. Everything is mixed onto a single line.<br>
+ * Requests to play and stop audio are queued and handled on the mixer thread, so the game thread never waits on the audio.
  * @author GOD
  */
-public final class GameAudio extends AudioManager
+public final class GameAudio implements ILoadable, Disposable
 {
-    //description for progress bar
-    private static final String DESCRIPTION = "Loading Audio Resources";
+    //the element and attribute in the xml file for each resource
+    private static final String TAG_SOUND = "sound";
+    private static final String ATTRIBUTE_ID = "id";
     
     /**
      * These are the keys used to access the resources and need to match the id in the xml file
      */
     public enum Keys
     {
-        MusicTheme, MusicGameOver, MusicEnding,
+        MusicTheme(true, 0), MusicGameOver(true, 0), MusicEnding(true, 0),
+        
+        SoundDie(false, 3), SoundEnemyFire(false, 0), SoundExtraLife(false, 3),
+        SoundFruit(false, 2), SoundJump(false, 1), SoundPopBubble(false, 1);
+        
+        //is this music that is decoded while playing
+        private final boolean music;
+        
+        //when all voices are playing, a sound only replaces a sound with the same or lower priority
+        private final int priority;
+        
+        private Keys(final boolean music, final int priority)
+        {
+            this.music = music;
+            this.priority = priority;
+        }
+        
+        public boolean isMusic()
+        {
+            return this.music;
+        }
+        
+        public int getPriority()
+        {
+            return this.priority;
+        }
+    }
+    
+    //the location of each resource from the xml file
+    private Map<Keys, String> locations = new EnumMap<>(Keys.class);
+    
+    //the samples of the decoded sound effects
+    private Map<Keys, short[]> sounds = new EnumMap<>(Keys.class);
+    
+    //mixes everything onto a single line, null if there is no line available
+    private Mixer mixer;
+    
+    //class in root directory used to locate the resources
+    private Class<?> source;
+    
+    //the bundle the audio is read from, null to read from the class path
+    private Bundle bundle;
+    
+    //the decoded sound effects from previous launches, null if not used or once loading is complete
+    private SoundCache cache;
+    
+    //the next resource to load
+    private int index = 0;
+    
+    //is the audio enabled
+    private boolean enabled = true;
+    
+    //the requests to play and stop audio waiting for the mixer
+    private final AudioQueue queue = new AudioQueue();
+    
+    //the keys requested to play during the current update, one bit for each key
+    private long requested = 0;
+    
+    //the music playing, null if none, only used on the mixer thread
+    private MusicStream music;
+    private Keys musicKey;
+    
+    //handles the requests on the mixer thread
+    private final Runnable commands = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            while (queue.poll())
+            {
+                switch (queue.getType())
+                {
+                    case AudioQueue.PLAY:
+                        start((Keys)queue.getKey(), queue.isLoop());
+                        break;
+                        
+                    case AudioQueue.STOP:
+                        end(queue.getKey());
+                        break;
+                        
+                    case AudioQueue.STOP_ALL:
+                        stopMusic();
+                        mixer.stopAll();
+                        break;
+                }
+            }
+        }
+    };
+    
+    public GameAudio()
+    {
+        //the locations are read when loading starts
+    }
+    
+    /**
+     * Read the audio from the bundle instead of the class path, this has to be set before loading
+     * @param bundle The bundle containing the audio, null to read from the class path
+     */
+    public void setBundle(final Bundle bundle)
+    {
+        this.bundle = bundle;
+    }
+    
+    @Override
+    public boolean loadNext(final Class source) throws Exception
+    {
+        if (isComplete())
+            return false;
+        
+        //read the locations before the first resource
+        if (index == 0)
+            start(source);
+        
+        final Keys key = Keys.values()[index];
+        final String location = locations.get(key);
+        
+        if (location == null)
+            throw new Exception("Audio location not found for key: " + key);
+        
+        if (key.isMusic())
+        {
+            //the music is only decoded when played, make sure it exists
+            if ((bundle == null || !bundle.has(location)) && source.getResource(location) == null)
+                throw new Exception("Music not found: " + location);
+        }
+        else
+        {
+            sounds.put(key, Pcm.toSamples(loadSound(location)));
+        }
+        
+        index++;
+        
+        if (isComplete())
+        {
+            //save anything new in the cache
+            if (cache != null)
+            {
+                cache.write();
+                
+                //the samples are kept instead, don't hold every effect twice
+                cache = null;
+            }
+            
+            mixer = createMixer();
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Read the location of each resource from the xml file
+     * @param source Class in root directory of project so we know how to access resources
+     * @throws Exception if the xml file can't be read
+     */
+    private void start(final Class<?> source) throws Exception
+    {
+        this.source = source;
+        
+        if (Shared.AUDIO_CACHE)
+            this.cache = new SoundCache();
+        
+        //the bundle already has the location of each key
+        if (bundle != null)
+        {
+            for (Keys key : Keys.values())
+            {
+                if (bundle.getLocation(Resources.XML_CONFIG_GAME_AUDIO, key) != null)
+                    locations.put(key, bundle.getLocation(Resources.XML_CONFIG_GAME_AUDIO, key));
+            }
+            
+            return;
+        }
+        
+        final InputStream input = source.getResourceAsStream(Resources.XML_CONFIG_GAME_AUDIO);
+        
+        if (input == null)
+            throw new Exception("Audio configuration not found: " + Resources.XML_CONFIG_GAME_AUDIO);
+        
+        try
+        {
+            final Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(input);
+            final NodeList elements = document.getElementsByTagName(TAG_SOUND);
+            
+            for (int i = 0; i < elements.getLength(); i++)
+            {
+                final Element element = (Element)elements.item(i);
+                
+                for (Keys key : Keys.values())
+                {
+                    if (key.toString().equals(element.getAttribute(ATTRIBUTE_ID)))
+                        locations.put(key, element.getTextContent().trim());
+                }
+            }
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+    
+    /**
+     * Decode the sound effect, or get it from the cache
+     * @param location The location of the sound
+     * @return The sound in the common format
+     * @throws Exception if the sound can't be read or decoded
+     */
+    private byte[] loadSound(final String location) throws Exception
+    {
+        //the checksum tells us if the resource has changed since it was cached
+        final long checksum;
+        
+        byte[] data = null;
+        
+        if (bundle != null && bundle.has(location))
+        {
+            //the checksum was computed when the bundle was built, so a cached sound isn't read at all
+            checksum = bundle.getChecksum(location);
+        }
+        else
+        {
+            data = read(location);
+            
+            final CRC32 crc = new CRC32();
+            crc.update(data, 0, data.length);
+            checksum = crc.getValue();
+        }
+        
+        if (cache != null)
+        {
+            final byte[] cached = cache.get(location, checksum);
+            
+            if (cached != null)
+                return cached;
+        }
+        
+        //decode straight from the bundle
+        final byte[] sound = (data != null) ? AudioDecoder.decode(data, location) : AudioDecoder.decode(Bundle.open(bundle, source, location), location);
+        
+        if (cache != null)
+            cache.put(location, checksum, sound);
+        
+        return sound;
+    }
+    
+    /**
+     * Read the entire resource
+     * @param location The location of the resource
+     * @return The bytes of the resource
+     * @throws Exception if the resource can't be read
+     */
+    private byte[] read(final String location) throws Exception
+    {
+        final InputStream input = source.getResourceAsStream(location);
+        
+        if (input == null)
+            throw new Exception("Sound not found: " + location);
+        
+        try
+        {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            
+            int count;
+            
+            while ((count = input.read(buffer)) >= 0)
+            {
+                output.write(buffer, 0, count);
+            }
+            
+            return output.toByteArray();
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+    
+    /**
+     * Create the mixer and start it
+     * @return The mixer, or null if there is no line available
+     */
+    private Mixer createMixer()
+    {
+        final Mixer tmp = new Mixer();
+        
+        try
+        {
+            tmp.setCommands(commands);
+            tmp.start();
+            
+            return tmp;
+        }
+        catch (Exception e)
+        {
+            //nothing will be heard, the game continues
+            e.printStackTrace();
+            
+            tmp.dispose();
+            
+            return null;
+        }
+    }
+    
+    /**
+     * Have all resources been loaded
+     * @return true if all sound effects have been decoded and all music has been found, false otherwise
+     */
+    public boolean isComplete()
+    {
+        return (index >= Keys.values().length);
+    }
+    
+    /**
+     * Verify every key has a location in the xml file
+     * @param keys The keys to check
+     * @throws Exception if a key doesn't have a location
+     */
+    public void verifyLocations(final Keys[] keys) throws Exception
+    {
+        for (Keys key : keys)
+        {
+            if (locations.get(key) == null)
+                throw new Exception("Audio location not found for key: " + key);
+        }
+    }
+    
+    public boolean isEnabled()
+    {
+        return this.enabled;
+    }
+    
+    /**
+     * Enable or disable the audio, everything playing is stopped when disabled
+     * @param enabled Is the audio enabled
+     */
+    public void setEnabled(final boolean enabled)
+    {
+        if (!enabled)
+            stopAll();
+        
+        this.enabled = enabled;
+    }
+    
+    /**
+     * Get the requests waiting for the mixer
+     * @return The queue of audio commands
+     */
+    public AudioQueue getQueue()
+    {
+        return this.queue;
+    }
+    
+    /**
+     * Play the audio, music that is playing is replaced.<br>
+     * The same audio requested again during the same update is ignored.
+     * @param key The key of the audio
+     * @param loop Do we start over once the end is reached
+     */
+    public void play(final Object key, final boolean loop)
+    {
+        if (!enabled || mixer == null)
+            return;
         
-        SoundDie, SoundEnemyFire, SoundExtraLife,
-        SoundFruit, SoundJump, SoundPopBubble
+        final long bit = 1L << ((Keys)key).ordinal();
+        
+        if ((requested & bit) != 0)
+        {
+            queue.coalesce();
+            return;
+        }
+        
+        requested |= bit;
+        queue.offer(AudioQueue.PLAY, key, loop);
+    }
+    
+    /**
+     * Stop the audio
+     * @param key The key of the audio
+     */
+    public void stop(final Object key)
+    {
+        if (mixer == null)
+            return;
+        
+        requested &= ~(1L << ((Keys)key).ordinal());
+        queue.offer(AudioQueue.STOP, key, false);
+    }
+    
+    /**
+     * Stop all audio
+     */
+    public void stopAll()
+    {
+        if (mixer == null)
+            return;
+        
+        requested = 0;
+        queue.offer(AudioQueue.STOP_ALL, null, false);
+    }
+    
+    /**
+     * The update has ended, the audio can be requested again
+     */
+    public void endUpdate()
+    {
+        requested = 0;
     }
     
-    public GameAudio() throws Exception
+    /**
+     * Play the audio, called on the mixer thread only
+     * @param key The key of the audio
+     * @param loop Do we start over once the end is reached
+     */
+    private void start(final Keys key, final boolean loop)
+    {
+        if (key.isMusic())
+        {
+            //there is only 1 music playing at a time
+            stopMusic();
+            
+            musicKey = key;
+            music = new MusicStream(bundle, source, locations.get(key), loop);
+            music.start();
+            mixer.setMusic(music);
+        }
+        else
+        {
+            mixer.play(sounds.get(key), key, key.getPriority(), loop);
+        }
+    }
+    
+    /**
+     * Stop the audio, called on the mixer thread only
+     * @param key The key of the audio
+     */
+    private void end(final Object key)
     {
-        super(Resources.XML_CONFIG_GAME_AUDIO);
+        if (key == musicKey)
+        {
+            stopMusic();
+        }
+        else
+        {
+            mixer.stop(key);
+        }
+    }
+    
+    private void stopMusic()
+    {
+        if (music != null)
+        {
+            if (mixer != null)
+                mixer.setMusic(null);
+            
+            music.stop();
+            music = null;
+            musicKey = null;
+        }
+    }
+    
+    @Override
+    public void dispose()
+    {
+        //the mixer thread has to finish before the music is stopped here
+        if (mixer != null)
+        {
+            mixer.dispose();
+            mixer = null;
+        }
+        
+        stopMusic();
+        
+        if (sounds != null)
+        {
+            sounds.clear();
+            sounds = null;
+        }
         
-        //the description that will be displayed for the progress bar
-        super.setProgressDescription(DESCRIPTION);
+        if (locations != null)
+        {
+            locations.clear();
+            locations = null;
+        }
         
-        if (Keys.values().length < 1)
-            super.increase();
+        cache = null;
+        source = null;
+        bundle = null;
     }
 }
\ No newline at end of file
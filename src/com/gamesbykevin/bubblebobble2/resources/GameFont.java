@@ -2,7 +2,10 @@ package com.gamesbykevin.bubblebobble2.resources;
 
 import com.gamesbykevin.framework.resources.FontManager;
 
-public final class GameFont extends FontManager
+import java.awt.Font;
+import java.io.InputStream;
+
+public final class GameFont extends FontManager implements ILoadable
 {
     //description for progress bar
     private static final String DESCRIPTION = "Loading Font Resources";
@@ -15,6 +18,12 @@ public final class GameFont extends FontManager
         Default
     }
     
+    //the bundle the fonts are read from, null to read from the class path
+    private Bundle bundle;
+    
+    //the next font to read from the bundle
+    private int index = 0;
+    
     public GameFont() throws Exception
     {
         super(Resources.XML_CONFIG_GAME_FONT);
@@ -25,4 +34,52 @@ public final class GameFont extends FontManager
         if (Keys.values().length < 1)
             super.increase();
     }
+    
+    /**
+     * Read the fonts from the bundle instead of the class path, this has to be set before loading
+     * @param bundle The bundle containing the fonts, null to read from the class path
+     */
+    public void setBundle(final Bundle bundle)
+    {
+        this.bundle = bundle;
+    }
+    
+    @Override
+    public boolean loadNext(final Class source) throws Exception
+    {
+        if (bundle != null)
+        {
+            if (index >= Keys.values().length)
+                return false;
+            
+            final Keys key = Keys.values()[index];
+            final String location = bundle.getLocation(Resources.XML_CONFIG_GAME_FONT, key);
+            
+            if (location == null || !bundle.has(location))
+                throw new Exception("Font not found in bundle for key: " + key);
+            
+            final InputStream input = Bundle.open(bundle, source, location);
+            
+            try
+            {
+                set(key, Font.createFont(Font.TRUETYPE_FONT, input));
+            }
+            finally
+            {
+                input.close();
+            }
+            
+            index++;
+            
+            return true;
+        }
+        
+        if (isComplete())
+            return false;
+        
+        //load 1 resource
+        update(source);
+        
+        return true;
+    }
 }
\ No newline at end of file
@@ -2,11 +2,17 @@ package com.gamesbykevin.bubblebobble2.resources;
 
 import com.gamesbykevin.framework.resources.*;
 
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.util.EnumMap;
+import java.util.Map;
+import javax.imageio.ImageIO;
+
 /**
  * All game images
  * @author GOD
  */
-public final class GameImages extends ImageManager
+public final class GameImages extends ImageManager implements ILoadable
 {
     //description for progress bar
     private static final String DESCRIPTION = "Loading Image Resources";
@@ -16,9 +22,18 @@ public final class GameImages extends ImageManager
      */
     public enum Keys
     {
-        Maps, Heroes, Enemies, Bonus, GameOver, Victory
+        Heroes, Enemies, Bonus, GameOver, Victory
     }
     
+    //the bundle the images are read from, null to read from the class path
+    private Bundle bundle;
+    
+    //the images read from the bundle
+    private final Map<Keys, Image> bundled = new EnumMap<>(Keys.class);
+    
+    //the next image to read from the bundle
+    private int index = 0;
+    
     public GameImages() throws Exception
     {
         super(Resources.XML_CONFIG_GAME_IMAGE);
@@ -29,4 +44,77 @@ public final class GameImages extends ImageManager
         if (Keys.values().length < 1)
             super.increase();
     }
+    
+    /**
+     * Read the images from the bundle instead of the class path, this has to be set before loading
+     * @param bundle The bundle containing the images, null to read from the class path
+     */
+    public void setBundle(final Bundle bundle)
+    {
+        this.bundle = bundle;
+    }
+    
+    @Override
+    public boolean loadNext(final Class source) throws Exception
+    {
+        if (bundle != null)
+            return loadNext(source, bundle);
+        
+        if (isComplete())
+            return false;
+        
+        //load 1 resource
+        update(source);
+        
+        return true;
+    }
+    
+    /**
+     * Decode the next image from the bundle
+     * @param source Class in root directory of project
+     * @param bundle The bundle containing the images
+     * @return true if an image was decoded, false if all images have been decoded
+     * @throws Exception if the image isn't in the bundle or can't be decoded
+     */
+    private boolean loadNext(final Class source, final Bundle bundle) throws Exception
+    {
+        if (index >= Keys.values().length)
+            return false;
+        
+        final Keys key = Keys.values()[index];
+        final String location = bundle.getLocation(Resources.XML_CONFIG_GAME_IMAGE, key);
+        
+        if (location == null || !bundle.has(location))
+            throw new Exception("Image not found in bundle for key: " + key);
+        
+        final BufferedImage image = ImageIO.read(Bundle.open(bundle, source, location));
+        
+        //the size was recorded when the bundle was built
+        if (image == null || image.getWidth() != bundle.getWidth(location) || image.getHeight() != bundle.getHeight(location))
+            throw new Exception("Image in bundle could not be decoded: " + location);
+        
+        bundled.put(key, image);
+        index++;
+        
+        return true;
+    }
+    
+    /**
+     * Get the image, from the bundle if there is one
+     * @param key The key of the image
+     * @return The image
+     */
+    public Image getImage(final Object key)
+    {
+        return (bundled.get(key) != null) ? bundled.get(key) : get(key);
+    }
+    
+    @Override
+    public void dispose()
+    {
+        bundled.clear();
+        bundle = null;
+        
+        super.dispose();
+    }
 }
\ No newline at end of file
@@ -6,7 +6,7 @@ import com.gamesbykevin.framework.resources.TextManager;
  * All audio for game
  * @author GOD
  */
-public final class GameText extends TextManager
+public final class GameText extends TextManager implements ILoadable
 {
     //description for progress bar
     private static final String DESCRIPTION = "Loading Game Text Resources";
@@ -29,4 +29,16 @@ public final class GameText extends TextManager
         if (Keys.values().length < 1)
             super.increase();
     }
+    
+    @Override
+    public boolean loadNext(final Class source) throws Exception
+    {
+        if (isComplete())
+            return false;
+        
+        //load 1 resource
+        update(source);
+        
+        return true;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.gamesbykevin.bubblebobble2.resources;
+
+/**
+ * A collection of resources that are loaded one at a time, each collection can be loaded on its own thread
+ * @author GOD
+ */
+interface ILoadable
+{
+    /**
+     * Load the next resource
+     * @param source Class in root directory of project so we have a relative location so we know how to access resources
+     * @return true if a resource was loaded, false if all resources are already loaded
+     * @throws Exception
+     */
+    public boolean loadNext(final Class source) throws Exception;
+}
\ No newline at end of file
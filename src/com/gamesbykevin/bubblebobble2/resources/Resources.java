@@ -2,13 +2,28 @@ package com.gamesbykevin.bubblebobble2.resources;
 
 import com.gamesbykevin.framework.resources.*;
 
+import com.gamesbykevin.bubblebobble2.audio.AudioQueue;
+
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Image;
 import java.awt.Rectangle;
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
 
 /**
- * This class will load all resources in the collection and provide a way to access them
+ * This class will load all resources in the collection and provide a way to access them.<br>
+ * The audio, images, fonts and text are loaded at the same time on a small pool of threads, 
+ * the game thread only checks if loading has finished so the loading screen is drawn the entire time.
  * @author GOD
  */
 public final class Resources implements IResources
@@ -23,8 +38,38 @@ public final class Resources implements IResources
     public static final String XML_CONFIG_GAME_TEXT  = RESOURCE_DIR + "gameText.xml"; 
     public static final String XML_CONFIG_MENU       = RESOURCE_DIR + "menu.xml"; 
     
-    //are we loading resources
-    private boolean loading = true;
+    /**
+     * The image of all maps, it isn't loaded with the game images since only a small area is needed at once
+     */
+    public static final String MAP_IMAGE = RESOURCE_DIR + "images/game/Maps.png";
+    
+    //the most threads used to load the resources
+    private static final int MAX_THREADS = 4;
+    
+    //description for the progress bar
+    private static final String DESCRIPTION = "Loading Resources";
+    
+    //are we loading resources, set by the loading thread
+    private volatile boolean loading = true;
+    
+    //finishes once all resources are loaded, null until loading starts
+    private Future<Void> loader;
+    
+    //the number of resources loaded so far by all loading threads
+    private final AtomicInteger loaded = new AtomicInteger();
+    
+    //the progress of all resources for the loading screen, and the number of resources
+    private Progress progress;
+    private int goal;
+    
+    //all resources packed in a single file, null if there is no bundle and the resources are read from the class path
+    private Bundle bundle;
+    
+    //the directory next to the jar, null if unknown
+    private File directory;
+    
+    //class in root directory used to locate the resources
+    private Class<?> source;
     
     //objects that contain resources
     private GameAudio audio;
@@ -32,10 +77,24 @@ public final class Resources implements IResources
     private GameFont fonts;
     private GameText textFiles;
     
+    //are requests to play or stop audio ignored, used while an update is repeated
+    private boolean muted = false;
+    
     public Resources() throws Exception
+    {
+        this(true);
+    }
+    
+    /**
+     * Create the resources
+     * @param audio Do we load audio, when false all audio calls are ignored
+     * @throws Exception 
+     */
+    public Resources(final boolean audio) throws Exception
     {
         //object to contain audio resources
-        this.audio = new GameAudio();
+        if (audio)
+            this.audio = new GameAudio();
         
         //object to contain images resources
         this.images = new GameImages();
@@ -62,67 +121,159 @@ public final class Resources implements IResources
      */
     public void stopAllSound()
     {
-        audio.stopAll();
+        if (audio != null && !muted)
+            audio.stopAll();
     }
     
     /**
-     * Here we will load the resources one by one and then marking the process finished once done
+     * Start loading the resources if we haven't already and check if loading has finished.<br>
+     * This won't wait for the resources to load, see load() to wait.
      * @param source Class in root directory of project so we have a relative location so we know how to access resources
-     * @throws Exception 
+     * @throws Exception if any resource failed to load
      */
     @Override
     public void update(final Class source) throws Exception
     {
-        if (!audio.isComplete())
-        {
-            //load 1 resource at a time
-            audio.update(source);
-
-            //exit method so progress can be drawn
-            return;
-        }
+        final Future<Void> future = load(source);
         
-        if (!images.isComplete())
-        {
-            //load 1 resource at a time
-            images.update(source);
-
-            //exit method so progress can be drawn
-            return;
-        }
+        //get the result to find out if loading failed
+        if (future.isDone())
+            future.get();
+    }
+    
+    /**
+     * Start loading the resources if we haven't already
+     * @param source Class in root directory of project so we have a relative location so we know how to access resources
+     * @return Finishes once all resources are loaded, get() will throw an exception if loading failed
+     */
+    public synchronized Future<Void> load(final Class source)
+    {
+        if (loader != null)
+            return loader;
+        
+        //read from the bundle next to the jar if there is one
+        this.bundle = Bundle.find(source);
+        this.directory = Bundle.getDirectory(source);
+        this.source = source;
         
-        if (!fonts.isComplete())
+        if (audio != null)
+            audio.setBundle(bundle);
+        
+        images.setBundle(bundle);
+        fonts.setBundle(bundle);
+        
+        //each manager loads its resources on its own thread, 1 thread waits for them to finish
+        final List<Callable<Void>> tasks = new ArrayList<>();
+        
+        if (audio != null)
+            tasks.add(createTask(audio, source));
+        
+        tasks.add(createTask(images, source));
+        tasks.add(createTask(fonts, source));
+        tasks.add(createTask(textFiles, source));
+        
+        //the number of resources is the number of keys since every key has to be in the xml file
+        this.goal = 0;
+        
+        for (Object[] keys : getKeys())
         {
-            //load 1 resource at a time
-            fonts.update(source);
-
-            //exit method so progress can be drawn
-            return;
+            this.goal += keys.length;
         }
         
-        if (!textFiles.isComplete())
+        this.progress = new Progress(Math.max(1, goal));
+        this.progress.setDescription(DESCRIPTION);
+        
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(tasks.size() + 1, MAX_THREADS), new ThreadFactory()
         {
-            //load 1 resource at a time
-            textFiles.update(source);
-
-            //exit method so progress can be drawn
-            return;
-        }
+            @Override
+            public Thread newThread(final Runnable runnable)
+            {
+                final Thread thread = new Thread(runnable, "Resources");
+                
+                //don't keep the application running
+                thread.setDaemon(true);
+                
+                return thread;
+            }
+        });
         
-        //verify all existing keys are contained in the xml file
-        audio.verifyLocations(GameAudio.Keys.values());
+        this.loader = executor.submit(new Callable<Void>()
+        {
+            @Override
+            public Void call() throws Exception
+            {
+                try
+                {
+                    //wait for every manager, an exception is thrown if any failed
+                    for (Future<Void> future : executor.invokeAll(tasks))
+                    {
+                        future.get();
+                    }
+                    
+                    //verify all existing keys are contained in the xml file
+                    if (audio != null)
+                        audio.verifyLocations(GameAudio.Keys.values());
+                    
+                    images.verifyLocations(GameImages.Keys.values());
+                    textFiles.verifyLocations(GameText.Keys.values());
+                    fonts.verifyLocations(GameFont.Keys.values());
+                    
+                    //we are done loading the resources
+                    loading = false;
+                    
+                    return null;
+                }
+                finally
+                {
+                    //the threads aren't needed anymore
+                    executor.shutdown();
+                }
+            }
+        });
         
-        //verify all existing keys are contained in the xml file
-        images.verifyLocations(GameImages.Keys.values());
+        return loader;
+    }
+    
+    /**
+     * Create a task that loads every resource of the manager
+     * @param manager The manager
+     * @param source Class in root directory of project so we have a relative location so we know how to access resources
+     * @return The task
+     */
+    private Callable<Void> createTask(final ILoadable manager, final Class source)
+    {
+        return new Callable<Void>()
+        {
+            @Override
+            public Void call() throws Exception
+            {
+                //load 1 resource at a time so the progress can be tracked
+                while (manager.loadNext(source))
+                {
+                    loaded.incrementAndGet();
+                }
+                
+                return null;
+            }
+        };
+    }
+    
+    /**
+     * Get the keys of every resource we load
+     * @return The keys of each manager
+     */
+    private List<Object[]> getKeys()
+    {
+        final List<Object[]> keys = new ArrayList<>();
         
-        //verify all existing keys are contained in the xml file
-        textFiles.verifyLocations(GameText.Keys.values());
+        if (audio != null)
+            keys.add(GameAudio.Keys.values());
         
-        //verify all existing keys are contained in the xml file
-        fonts.verifyLocations(GameFont.Keys.values());
+        keys.add(GameImages.Keys.values());
+        keys.add(GameFont.Keys.values());
+        keys.add(GameText.Keys.values());
         
-        //we are done loading the resources
-        this.loading = false;
+        return keys;
     }
     
     /**
@@ -131,7 +282,7 @@ public final class Resources implements IResources
      */
     public boolean isAudioEnabled()
     {
-        return audio.isEnabled();
+        return (audio != null && audio.isEnabled());
     }
     
     /**
@@ -140,7 +291,18 @@ public final class Resources implements IResources
      */
     public void setAudioEnabled(final boolean enabled)
     {
-        audio.setEnabled(enabled);
+        if (audio != null)
+            audio.setEnabled(enabled);
+    }
+    
+    /**
+     * Ignore all requests to play or stop audio.<br>
+     * Unlike disabling the audio, anything already playing continues.
+     * @param muted true to ignore requests, false to handle them again
+     */
+    public void setMuted(final boolean muted)
+    {
+        this.muted = muted;
     }
     
     /**
@@ -150,7 +312,64 @@ public final class Resources implements IResources
      */
     public Image getGameImage(final Object key)
     {
-        return images.get(key);
+        return images.getImage(key);
+    }
+    
+    /**
+     * Open a resource that isn't loaded with the others, from the bundle if there is one
+     * @param location The location of the resource
+     * @return The stream, null if the resource isn't found
+     */
+    public InputStream openResource(final String location)
+    {
+        return Bundle.open(bundle, source, location);
+    }
+    
+    /**
+     * Get the checksum of a resource, so anything parsed from the resource can be cached
+     * @param location The location of the resource
+     * @return The CRC32 of the resource
+     * @throws Exception if the resource can't be read
+     */
+    public long getChecksum(final String location) throws Exception
+    {
+        //the bundle has the checksum of every resource
+        if (bundle != null && bundle.has(location))
+            return bundle.getChecksum(location);
+        
+        final InputStream input = openResource(location);
+        
+        if (input == null)
+            throw new Exception("Resource not found: " + location);
+        
+        try
+        {
+            final CRC32 crc = new CRC32();
+            final byte[] buffer = new byte[8192];
+            
+            int count;
+            
+            while ((count = input.read(buffer)) >= 0)
+            {
+                crc.update(buffer, 0, count);
+            }
+            
+            return crc.getValue();
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+    
+    /**
+     * Get a file next to the jar to keep data between launches
+     * @param name The name of the file
+     * @return The file, null if there is nowhere to keep files (applet)
+     */
+    public File getCacheFile(final String name)
+    {
+        return (directory != null) ? new File(directory, name) : null;
     }
     
     public Text getGameText(final Object key)
@@ -169,12 +388,32 @@ public final class Resources implements IResources
     
     public void playGameAudio(final Object key, final boolean loop)
     {
-        audio.play(key, loop);
+        if (audio != null && !muted)
+            audio.play(key, loop);
     }
     
     public void stopGameAudio(final Object key)
     {
-        audio.stop(key);
+        if (audio != null && !muted)
+            audio.stop(key);
+    }
+    
+    /**
+     * The update has ended, requests to play the same audio more than once during an update are ignored
+     */
+    public void endAudioUpdate()
+    {
+        if (audio != null)
+            audio.endUpdate();
+    }
+    
+    /**
+     * Get the requests to play and stop audio waiting for the mixer
+     * @return The queue of audio commands, null if there is no audio
+     */
+    public AudioQueue getAudioQueue()
+    {
+        return (audio != null) ? audio.getQueue() : null;
     }
     
     public Font getFont(final Object key)
@@ -190,12 +429,25 @@ public final class Resources implements IResources
     @Override
     public void dispose()
     {
+        //stop loading if we haven't finished
+        if (loader != null)
+        {
+            loader.cancel(true);
+            loader = null;
+        }
+        
         if (audio != null)
         {
             audio.dispose();
             audio = null;
         }
         
+        if (bundle != null)
+        {
+            bundle.dispose();
+            bundle = null;
+        }
+        
         if (images != null)
         {
             images.dispose();
@@ -218,43 +470,13 @@ public final class Resources implements IResources
     @Override
     public void render(final Graphics graphics, final Rectangle screen)
     {
-        if (!isLoading())
+        //the progress is created when loading starts
+        if (!isLoading() || progress == null)
             return;
         
-        if (audio != null)
-        {
-            if (!audio.isComplete())
-            {
-                audio.render(graphics, screen);
-                return;
-            }
-        }
-        
-        if (images != null)
-        {
-            if (!images.isComplete())
-            {
-                images.render(graphics, screen);
-                return;
-            }
-        }
-        
-        if (textFiles != null)
-        {
-            if (!textFiles.isComplete())
-            {
-                textFiles.render(graphics, screen);
-                return;
-            }
-        }
-        
-        if (fonts != null)
-        {
-            if (!fonts.isComplete())
-            {
-                fonts.render(graphics, screen);
-                return;
-            }
-        }
+        //the resources loaded by all threads
+        progress.setScreen(screen);
+        progress.setCount(Math.min(loaded.get(), goal));
+        progress.render(graphics);
     }
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+package com.gamesbykevin.bubblebobble2.shared;
+
+import java.util.Random;
+
+/**
+ * Random object that produces the same numbers as java.util.Random, but its state can be saved and restored.
+ * @author GOD
+ */
+public final class GameRandom extends Random
+{
+    //the same values used by java.util.Random
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+    
+    //the current state, this is set by the super constructor through setSeed()
+    private long state;
+    
+    /**
+     * Create a new random object
+     * @param seed The initial seed
+     */
+    public GameRandom(final long seed)
+    {
+        super(seed);
+    }
+    
+    @Override
+    public synchronized void setSeed(final long seed)
+    {
+        super.setSeed(seed);
+        
+        this.state = (seed ^ MULTIPLIER) & MASK;
+    }
+    
+    @Override
+    protected int next(final int bits)
+    {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        
+        return (int)(state >>> (48 - bits));
+    }
+    
+    /**
+     * Get the current state so it can be restored later
+     * @return The state
+     */
+    public long getState()
+    {
+        return this.state;
+    }
+    
+    /**
+     * Restore a state previously returned by getState()
+     * @param state The state
+     */
+    public void setState(final long state)
+    {
+        this.state = state;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,130 @@
+package com.gamesbykevin.bubblebobble2.shared;
+
+/**
+ * A histogram of durations with fixed size buckets.<br>
+ * Recording a duration never allocates memory.
+ * @author GOD
+ */
+public final class Histogram
+{
+    //the duration (nanoseconds) each bucket covers
+    private final long resolution;
+    
+    //the number of durations in each bucket, the last bucket contains everything larger
+    private final int[] buckets;
+    
+    //the total number of durations recorded
+    private int count = 0;
+    
+    //the largest duration recorded
+    private long max = 0;
+    
+    /**
+     * Create a new histogram
+     * @param resolution The duration (nanoseconds) each bucket covers
+     * @param size The number of buckets
+     */
+    public Histogram(final long resolution, final int size)
+    {
+        this.resolution = resolution;
+        this.buckets = new int[size];
+    }
+    
+    /**
+     * Record a duration
+     * @param duration The duration (nanoseconds)
+     */
+    public void record(final long duration)
+    {
+        final long index = (duration < 0) ? 0 : duration / resolution;
+        
+        buckets[(index >= buckets.length) ? buckets.length - 1 : (int)index]++;
+        
+        count++;
+        
+        if (duration > max)
+            max = duration;
+    }
+    
+    /**
+     * Add all durations in the other histogram to this one
+     * @param histogram The histogram to add, it must have the same resolution and size
+     */
+    public void add(final Histogram histogram)
+    {
+        for (int i = 0; i < buckets.length; i++)
+        {
+            buckets[i] += histogram.buckets[i];
+        }
+        
+        count += histogram.count;
+        
+        if (histogram.max > max)
+            max = histogram.max;
+    }
+    
+    /**
+     * Copy all durations in the other histogram, replacing the ones in this one
+     * @param histogram The histogram to copy, it must have the same resolution and size
+     */
+    public void set(final Histogram histogram)
+    {
+        System.arraycopy(histogram.buckets, 0, buckets, 0, buckets.length);
+        
+        count = histogram.count;
+        max = histogram.max;
+    }
+    
+    /**
+     * Get the duration at the specified percentile
+     * @param percentile The percentile (0 - 100)
+     * @return The upper bound (nanoseconds) of the bucket where the percentile is, 0 if nothing recorded
+     */
+    public long getPercentile(final double percentile)
+    {
+        if (count == 0)
+            return 0;
+        
+        //the number of durations at or below the percentile
+        final long target = (long)Math.ceil(count * (percentile / 100.0));
+        
+        long total = 0;
+        
+        for (int i = 0; i < buckets.length; i++)
+        {
+            total += buckets[i];
+            
+            if (total >= target)
+            {
+                //the max is more accurate for the last bucket
+                return (i == buckets.length - 1) ? max : Math.min(max, (i + 1) * resolution);
+            }
+        }
+        
+        return max;
+    }
+    
+    public long getMax()
+    {
+        return this.max;
+    }
+    
+    public int getCount()
+    {
+        return this.count;
+    }
+    
+    /**
+     * Remove all recorded durations
+     */
+    public void reset()
+    {
+        for (int i = 0; i < buckets.length; i++)
+        {
+            buckets[i] = 0;
+        }
+        
+        count = 0;
+        max = 0;
+    }
+}
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.gamesbykevin.bubblebobble2.shared;
 
 import java.awt.Cursor;
+import java.awt.GraphicsEnvironment;
 import java.awt.Point;
 import java.awt.Toolkit;
 import java.awt.image.BufferedImage;
@@ -32,9 +33,42 @@ public final class Shared
     //how many updates per second, controls speed of game
     public static final int DEFAULT_UPS = 60;
     
+    //the most updates we will perform to catch up in a single loop, anything more will be dropped
+    public static final int DEFAULT_MAX_CATCH_UP = 5;
+    
+    //do we render once per loop and interpolate between updates, or render after every update
+    public static boolean INTERPOLATE = true;
+    
+    //do we render to a canvas with page flipping, or to the container's graphics object
+    public static boolean ACTIVE_RENDERING = true;
+    
+    //do we scale the game by whole numbers only and letterbox the rest of the window
+    public static boolean INTEGER_SCALING = true;
+    
+    //do we render snapshots of the game on a separate thread while the game thread updates
+    public static boolean RENDER_THREAD = true;
+    
+    //do we keep the decoded sound effects in a file so later launches skip decoding
+    public static boolean AUDIO_CACHE = true;
+    
+    //the render rate to use when the refresh rate of the display is unknown
+    public static final int DEFAULT_FPS = 60;
+    
     //what is the name of our game
     public static final String GAME_NAME = "Bubble Bobble 2";
     
     //blank cursor created here to hide the mouse cursor
-    public static final Cursor CURSOR = Toolkit.getDefaultToolkit().createCustomCursor(new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB), new Point(0, 0), "blank cursor");
+    public static final Cursor CURSOR = createCursor();
+    
+    /**
+     * Create the blank cursor
+     * @return The blank cursor, or null if there is no display (headless)
+     */
+    private static Cursor createCursor()
+    {
+        if (GraphicsEnvironment.isHeadless())
+            return null;
+        
+        return Toolkit.getDefaultToolkit().createCustomCursor(new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB), new Point(0, 0), "blank cursor");
+    }
 }
\ No newline at end of file
@@ -0,0 +1,84 @@
+package com.gamesbykevin.bubblebobble2.shared;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock free triple buffer to hand items from a single writer thread to a single reader thread.<br>
+ * The writer fills the back item and publishes it, the reader always gets the most recently published item.
+ * Neither thread will ever wait on the other.
+ * @author GOD
+ */
+public final class TripleBuffer<T>
+{
+    //flag set on the middle index when it contains an item the reader hasn't seen
+    private static final int DIRTY = 4;
+    
+    //mask to get the index
+    private static final int INDEX = 3;
+    
+    //the 3 items
+    private final Object[] items;
+    
+    //the index of the middle item, shared by both threads
+    private final AtomicInteger middle = new AtomicInteger(1);
+    
+    //the index of the item being written (writer thread only)
+    private int back = 0;
+    
+    //the index of the item being read (reader thread only)
+    private int front = 2;
+    
+    /**
+     * Create a new triple buffer, each item must be a separate object
+     * @param item1 First item
+     * @param item2 Second item
+     * @param item3 Third item
+     */
+    public TripleBuffer(final T item1, final T item2, final T item3)
+    {
+        this.items = new Object[]{item1, item2, item3};
+    }
+    
+    /**
+     * Get the item the writer is to fill
+     * @return The back item
+     */
+    @SuppressWarnings("unchecked")
+    public T getBack()
+    {
+        return (T)items[back];
+    }
+    
+    /**
+     * Publish the back item so the reader can get it, the writer will be given a new back item
+     */
+    public void publish()
+    {
+        back = middle.getAndSet(back | DIRTY) & INDEX;
+    }
+    
+    /**
+     * If a new item has been published make it the front item
+     * @return true if the front item changed, false otherwise
+     */
+    public boolean update()
+    {
+        //nothing new published
+        if ((middle.get() & DIRTY) == 0)
+            return false;
+        
+        front = middle.getAndSet(front) & INDEX;
+        
+        return true;
+    }
+    
+    /**
+     * Get the item the reader is to read
+     * @return The front item
+     */
+    @SuppressWarnings("unchecked")
+    public T getFront()
+    {
+        return (T)items[front];
+    }
+}
\ No newline at end of file
@@ -0,0 +1,231 @@
+package com.gamesbykevin.bubblebobble2.shared;
+
+import com.gamesbykevin.bubblebobble2.maps.Map;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Image;
+
+/**
+ * Everything needed to draw the game for a single update.<br>
+ * The game thread fills a snapshot and hands it to the render thread,
+ * once published it isn't changed until the render thread is done with it.
+ * All arrays are created up front so filling a snapshot won't allocate memory.
+ * @author GOD
+ */
+public final class WorldSnapshot
+{
+    //the most sprites in a snapshot
+    public static final int CAPACITY = 256;
+    
+    /**
+     * The number of players we can display lives for
+     */
+    public static final int PLAYERS = 2;
+    
+    //the image for each sprite
+    private final Image[] images = new Image[CAPACITY];
+    
+    //the location on the image for each sprite
+    private final int[] sourceX = new int[CAPACITY], sourceY = new int[CAPACITY], sourceWidth = new int[CAPACITY], sourceHeight = new int[CAPACITY];
+    
+    //the north-west location where each sprite is drawn for the previous and current update
+    private final double[] previousX = new double[CAPACITY], previousY = new double[CAPACITY], x = new double[CAPACITY], y = new double[CAPACITY];
+    
+    //the size of each sprite
+    private final int[] width = new int[CAPACITY], height = new int[CAPACITY];
+    
+    //is each sprite flipped horizontally
+    private final boolean[] flip = new boolean[CAPACITY];
+    
+    //the number of sprites
+    private int count = 0;
+    
+    //the number of lives to display for each player, negative if none
+    private final int[] lives = new int[PLAYERS];
+    
+    //the text for the lives, and the number of lives the text was created for
+    private final String[] livesText = new String[PLAYERS];
+    private final int[] livesTextCount = new int[PLAYERS];
+    
+    //image covering the screen (game over), null if none
+    private Image overlay;
+    
+    //the size of the screen
+    private int screenWidth, screenHeight;
+    
+    //when the snapshot was taken
+    private long time;
+    
+    //does the snapshot contain the game
+    private boolean valid = false;
+    
+    public WorldSnapshot()
+    {
+        //default constructor
+    }
+    
+    /**
+     * Remove everything from the snapshot so it can be filled again
+     * @param time The time (nanoseconds) of the update
+     */
+    public void reset(final long time)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            images[i] = null;
+        }
+        
+        this.count = 0;
+        for (int i = 0; i < PLAYERS; i++)
+        {
+            this.lives[i] = -1;
+        }
+        
+        this.overlay = null;
+        this.valid = false;
+        this.time = time;
+    }
+    
+    /**
+     * Add a sprite to the snapshot, if the snapshot is full it won't be added
+     * @param image The image containing the sprite
+     * @param sourceX x-coordinate on the image
+     * @param sourceY y-coordinate on the image
+     * @param sourceWidth width on the image
+     * @param sourceHeight height on the image
+     * @param previousX north-west x-coordinate for the previous update
+     * @param previousY north-west y-coordinate for the previous update
+     * @param x north-west x-coordinate
+     * @param y north-west y-coordinate
+     * @param width width to draw
+     * @param height height to draw
+     * @param flip is the sprite flipped horizontally
+     */
+    public void add(final Image image, final int sourceX, final int sourceY, final int sourceWidth, final int sourceHeight, final double previousX, final double previousY, final double x, final double y, final int width, final int height, final boolean flip)
+    {
+        if (count >= CAPACITY || image == null)
+            return;
+        
+        this.images[count] = image;
+        this.sourceX[count] = sourceX;
+        this.sourceY[count] = sourceY;
+        this.sourceWidth[count] = sourceWidth;
+        this.sourceHeight[count] = sourceHeight;
+        this.previousX[count] = previousX;
+        this.previousY[count] = previousY;
+        this.x[count] = x;
+        this.y[count] = y;
+        this.width[count] = width;
+        this.height[count] = height;
+        this.flip[count] = flip;
+        
+        count++;
+    }
+    
+    /**
+     * Set the number of lives to display
+     * @param player The player (0 or 1)
+     * @param lives The number of lives
+     */
+    public void setLives(final int player, final int lives)
+    {
+        //only create new text when the lives change
+        if (livesText[player] == null || lives != livesTextCount[player])
+        {
+            this.livesText[player] = (lives < 0) ? "" + 0 : lives + "";
+            this.livesTextCount[player] = lives;
+        }
+        
+        this.lives[player] = lives;
+    }
+    
+    /**
+     * Set the image to cover the screen
+     * @param overlay The image to draw
+     * @param screenWidth The width of the screen
+     * @param screenHeight The height of the screen
+     */
+    public void setOverlay(final Image overlay, final int screenWidth, final int screenHeight)
+    {
+        this.overlay = overlay;
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+    }
+    
+    /**
+     * Flag if the snapshot contains the game
+     * @param valid true if the snapshot can be drawn instead of the game, false otherwise
+     */
+    public void setValid(final boolean valid)
+    {
+        this.valid = valid;
+    }
+    
+    public boolean isValid()
+    {
+        return this.valid;
+    }
+    
+    /**
+     * Get how far we are between the previous and current update
+     * @param now The current time (nanoseconds)
+     * @param duration The duration of each update (nanoseconds)
+     * @return The fraction (0 - 1) of the update that has passed since the snapshot was taken
+     */
+    public double getInterpolation(final long now, final double duration)
+    {
+        final double interpolation = (now - time) / duration;
+        
+        return (interpolation < 0) ? 0 : (interpolation > 1) ? 1 : interpolation;
+    }
+    
+    /**
+     * Draw the snapshot
+     * @param graphics Graphics object to write to
+     * @param font The font for the lives
+     * @param interpolation How far (0 - 1) we are between the previous and current update
+     */
+    public void render(final Graphics graphics, final Font font, final double interpolation)
+    {
+        if (overlay != null)
+        {
+            graphics.drawImage(overlay, 0, 0, screenWidth, screenHeight, null);
+            return;
+        }
+        
+        for (int i = 0; i < count; i++)
+        {
+            final int dx = (int)(previousX[i] + ((x[i] - previousX[i]) * interpolation));
+            final int dy = (int)(previousY[i] + ((y[i] - previousY[i]) * interpolation));
+            
+            final int sx = sourceX[i];
+            final int sy = sourceY[i];
+            
+            if (flip[i])
+            {
+                graphics.drawImage(images[i], dx + width[i], dy, dx, dy + height[i], sx, sy, sx + sourceWidth[i], sy + sourceHeight[i], null);
+            }
+            else
+            {
+                graphics.drawImage(images[i], dx, dy, dx + width[i], dy + height[i], sx, sy, sx + sourceWidth[i], sy + sourceHeight[i], null);
+            }
+        }
+        
+        //draw amount of lives, the first player on the left the second on the right
+        for (int i = 0; i < PLAYERS; i++)
+        {
+            if (lives[i] < 0)
+                continue;
+            
+            final int livesX = (i == 0) ? Map.BLOCK_SIZE : Map.WIDTH - (Map.BLOCK_SIZE * 3);
+            
+            graphics.setFont(font);
+            graphics.setColor(Color.BLACK);
+            graphics.fillRect(livesX, 0, Map.BLOCK_SIZE * 2, Map.BLOCK_SIZE);
+            graphics.setColor(Color.WHITE);
+            graphics.drawString(livesText[i], livesX + 1, Map.BLOCK_SIZE);
+        }
+    }
+}
\ No newline at end of file